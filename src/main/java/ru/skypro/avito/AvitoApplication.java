@@ -3,9 +3,11 @@ package ru.skypro.avito;
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @OpenAPIDefinition
+@EnableScheduling
 public class AvitoApplication {
   public static void main(String[] args) {
     SpringApplication.run(AvitoApplication.class, args);
@@ -0,0 +1,155 @@
+package ru.skypro.avito.blob;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * BlobCollector - это фоновый сборщик строк image и avatar, на которые больше не ссылается ни одна строка.
+ * Сервисы при замене или удалении изображения только отсоединяют его, не загружая и не удаляя данные файла
+ * в транзакции запроса, а сборщик находит такие строки анти-соединением (NOT EXISTS по всем ссылающимся таблицам)
+ * и удаляет их пачками по batch-size строк, каждую пачку в отдельной короткой транзакции, с паузой pause между пачками
+ * и не более max-batches пачек за запуск. При удалении условие отсутствия ссылок проверяется повторно.
+ * Новое изображение вставляется в одной транзакции со ссылкой на него, поэтому незафиксированные строки сборщик не видит.
+ * Освобожденный объем (по file_size) и число строк публикуются в метриках avito.blob-gc.reclaimed.*.
+ */
+@Slf4j
+@Component
+public class BlobCollector {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final List<Target> targets;
+    private final int batchSize;
+    private final long pauseMillis;
+    private final int maxBatches;
+
+    public BlobCollector(JdbcTemplate jdbcTemplate,
+                         TransactionTemplate transactionTemplate,
+                         MeterRegistry meterRegistry,
+                         @Value("${avito.blob-gc.batch-size:100}") int batchSize,
+                         @Value("${avito.blob-gc.pause:200ms}") Duration pause,
+                         @Value("${avito.blob-gc.max-batches:50}") int maxBatches) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.pauseMillis = pause.toMillis();
+        this.maxBatches = maxBatches;
+        this.targets = List.of(
+                new Target("image", "NOT EXISTS (SELECT 1 FROM ads a WHERE a.image_id = b.id) " +
+                        "AND NOT EXISTS (SELECT 1 FROM ad_image ai WHERE ai.image_id = b.id)", meterRegistry),
+                new Target("avatar", "NOT EXISTS (SELECT 1 FROM users u WHERE u.avatar_id = b.id)", meterRegistry));
+    }
+
+    /**
+     * Метод collect() удаляет строки image и avatar без ссылок.
+     */
+    @Scheduled(initialDelayString = "${avito.blob-gc.interval:600000}", fixedDelayString = "${avito.blob-gc.interval:600000}")
+    public void collect() {
+        for (Target target : targets) {
+            try {
+                collect(target);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void collect(Target target) throws InterruptedException {
+        long rows = 0;
+        long bytes = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            if (batch > 0) {
+                // Пауза между пачками ограничивает нагрузку сборщика на базу данных.
+                Thread.sleep(pauseMillis);
+            }
+            Reclaimed reclaimed = transactionTemplate.execute(status -> collectBatch(target));
+            if (reclaimed == null || reclaimed.candidates == 0) {
+                break;
+            }
+            rows += reclaimed.rows;
+            bytes += reclaimed.bytes;
+            if (reclaimed.candidates < batchSize) {
+                break;
+            }
+        }
+        if (rows > 0) {
+            target.rows.increment(rows);
+            target.bytes.increment(bytes);
+            log.info("Reclaimed {} orphaned {} rows, {} bytes", rows, target.table, bytes);
+        }
+    }
+
+    private Reclaimed collectBatch(Target target) {
+        List<long[]> candidates = jdbcTemplate.query(
+                "SELECT b.id, COALESCE(b.file_size, 0) AS file_size FROM " + target.table + " b WHERE " + target.orphan +
+                        " ORDER BY b.id LIMIT ?",
+                (rs, rowNum) -> new long[]{rs.getLong("id"), rs.getLong("file_size")},
+                batchSize);
+        if (candidates.isEmpty()) {
+            return new Reclaimed(0, 0, 0);
+        }
+        List<Object[]> ids = new ArrayList<>(candidates.size());
+        for (long[] candidate : candidates) {
+            ids.add(new Object[]{candidate[0]});
+        }
+        // Условие повторяется в DELETE: строку, на которую успели сослаться после выборки, удалять нельзя.
+        int[] deleted = jdbcTemplate.batchUpdate(
+                "DELETE FROM " + target.table + " b WHERE b.id = ? AND " + target.orphan, ids);
+        long rows = 0;
+        long bytes = 0;
+        for (int i = 0; i < deleted.length; i++) {
+            if (deleted[i] > 0) {
+                rows++;
+                bytes += candidates.get(i)[1];
+            }
+        }
+        return new Reclaimed(candidates.size(), rows, bytes);
+    }
+
+    private static final class Target {
+
+        private final String table;
+        private final String orphan;
+        private final Counter rows;
+        private final Counter bytes;
+
+        private Target(String table, String orphan, MeterRegistry meterRegistry) {
+            this.table = table;
+            this.orphan = orphan;
+            this.rows = Counter.builder("avito.blob-gc.reclaimed.rows")
+                    .description("Orphaned blob rows removed by the collector")
+                    .tag("table", table)
+                    .register(meterRegistry);
+            this.bytes = Counter.builder("avito.blob-gc.reclaimed.bytes")
+                    .description("Blob bytes reclaimed by the collector")
+                    .baseUnit("bytes")
+                    .tag("table", table)
+                    .register(meterRegistry);
+        }
+    }
+
+    private static final class Reclaimed {
+
+        private final int candidates;
+        private final long rows;
+        private final long bytes;
+
+        private Reclaimed(int candidates, long rows, long bytes) {
+            this.candidates = candidates;
+            this.rows = rows;
+            this.bytes = bytes;
+        }
+    }
+
+}
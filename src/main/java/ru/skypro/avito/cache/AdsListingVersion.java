@@ -0,0 +1,77 @@
+package ru.skypro.avito.cache;
+
+import org.springframework.stereotype.Component;
+import ru.skypro.avito.cache.invalidation.CacheRegion;
+import ru.skypro.avito.cache.invalidation.InvalidationBus;
+import ru.skypro.avito.configuration.datasource.ReplicaRoutingDataSource;
+import ru.skypro.avito.repository.AdsRepository;
+import ru.skypro.avito.repository.projection.AdsListingState;
+import ru.skypro.avito.util.EntityTags;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * AdsListingVersion - это глобальная версия списков объявлений (GET /ads и GET /ads/me).
+ * Версия увеличивается по сообщениям шины инвалидации области ADS, то есть при добавлении, изменении
+ * и удалении объявления на любом узле. Счетчик хранится в памяти узла и служит только ключом локальных кэшей.
+ * Метка (ETag) строится из состояния таблицы объявлений в базе данных (AdsListingState), поэтому она одинакова
+ * на всех узлах и после перезапуска. Состояние читается один раз на версию: первым запросом после изменения.
+ * Состояние читается с основной базы данных: метка, прочитанная с отстающей реплики, была бы сохранена
+ * для версии, уже включающей изменение, и ответ с новыми данными получил бы старую метку.
+ */
+@Component
+public class AdsListingVersion {
+
+    private final AdsRepository adsRepository;
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicReference<Tag> tag = new AtomicReference<>();
+
+    public AdsListingVersion(InvalidationBus invalidationBus, AdsRepository adsRepository) {
+        this.adsRepository = adsRepository;
+        invalidationBus.subscribe(message -> {
+            if (message.getRegion() == CacheRegion.ADS) {
+                version.incrementAndGet();
+            }
+        });
+    }
+
+    public long get() {
+        return version.get();
+    }
+
+    /**
+     * Метод getTag() возвращает слабый ETag списков объявлений для версии version.
+     * Метку нужно получить до загрузки данных списка. Для одной версии сохраняется первая вычисленная метка:
+     * она прочитана раньше любого ответа этой версии, поэтому метка никогда не новее тела ответа,
+     * и изменение, зафиксированное, но еще не доставленное шиной, не приведет к ошибочному 304.
+     * @param version
+     * @return
+     */
+    public String getTag(long version) {
+        Tag current = tag.get();
+        if (current != null && current.version == version) {
+            return current.value;
+        }
+        AdsListingState state;
+        try (ReplicaRoutingDataSource.PrimaryScope ignored = ReplicaRoutingDataSource.primaryScope()) {
+            state = adsRepository.findListingState();
+        }
+        Tag computed = new Tag(version, EntityTags.weak("ads", state.getCount(), state.getMaxId(), state.getVersionSum()));
+        Tag stored = tag.accumulateAndGet(computed,
+                (previous, next) -> previous != null && previous.version >= next.version ? previous : next);
+        return stored.version == version ? stored.value : computed.value;
+    }
+
+    private static final class Tag {
+
+        private final long version;
+        private final String value;
+
+        private Tag(long version, String value) {
+            this.version = version;
+            this.value = value;
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+package ru.skypro.avito.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * AdsPageCache - это кэш готовых (сериализованных) ответов публичного списка объявлений.
+ * Каждая запись хранит тело ответа и его gzip-копию, поэтому попадание в кэш не обращается ни к JPA, ни к Jackson.
+ * Каждая запись помечена глобальной версией списка объявлений AdsListingVersion, по которой она построена.
+ * Версия увеличивается при добавлении, изменении и удалении объявлений на любом узле, и записи со старой версией
+ * считаются промахом. Поэтому сброс кэша стоит одну атомарную операцию, а не обход всех записей.
+ * Размер кэша ограничен суммарным объемом тел и их gzip-копий (maximum-weight), а не числом записей:
+ * каждая запись содержит список объявлений целиком.
+ * Кроме того, запись живет не дольше ttl: он должен быть больше допустимого отставания реплик, чтобы страница,
+ * собранная по данным отстающей реплики, не пережила это отставание.
+ */
+@Slf4j
+@Component
+public class AdsPageCache {
+
+    private final Cache<String, Page> cache;
+
+    @Autowired
+    public AdsPageCache(@Value("${avito.cache.ads-page.maximum-weight:64MB}") DataSize maximumWeight,
+                        @Value("${avito.cache.ads-page.ttl:1m}") Duration ttl) {
+        this(maximumWeight, ttl, Ticker.systemTicker());
+    }
+
+    AdsPageCache(DataSize maximumWeight, Duration ttl, Ticker ticker) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumWeight.toBytes())
+                .weigher((String key, Page page) -> page.getBody().length + page.getGzipped().length)
+                .expireAfterWrite(ttl)
+                .ticker(ticker)
+                .executor(Runnable::run)
+                .build();
+    }
+
+    /**
+     * Метод get() возвращает запись по ключу, если она построена для версии списка объявлений version.
+     * Версию нужно прочитать до загрузки данных: тогда ответ, собранный параллельно с изменением, сохранится со старой версией
+     * и не будет отдан из кэша.
+     * @param key
+     * @param version
+     * @return
+     */
+    public Page get(String key, long version) {
+        Page page = cache.getIfPresent(key);
+        if (page == null || page.getVersion() != version) {
+            return null;
+        }
+        return page;
+    }
+
+    /**
+     * Метод put() сохраняет тело ответа, построенного для версии version, вместе с его gzip-копией.
+     * @param key
+     * @param version
+     * @param contentType
+     * @param body
+     * @return
+     */
+    public Page put(String key, long version, String contentType, byte[] body) {
+        Page page = new Page(version, contentType, body, gzip(body));
+        cache.put(key, page);
+        log.debug("Cached ads page {} ({} bytes, {} gzipped) for version {}", key, body.length, page.getGzipped().length, version);
+        return page;
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Page - это неизменяемая запись кэша: версия, тип содержимого, тело ответа и его gzip-копия.
+     */
+    @lombok.Value
+    public static class Page {
+        long version;
+        String contentType;
+        byte[] body;
+        byte[] gzipped;
+    }
+
+}
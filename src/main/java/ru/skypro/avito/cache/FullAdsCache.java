@@ -0,0 +1,203 @@
+package ru.skypro.avito.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.skypro.avito.cache.invalidation.CacheRegion;
+import ru.skypro.avito.cache.invalidation.InvalidationBus;
+import ru.skypro.avito.configuration.datasource.ReplicaRoutingDataSource;
+import ru.skypro.avito.dto.FullAds;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * FullAdsCache - это ограниченный по размеру кэш полной информации об объявлениях (FullAds) с временем жизни записей.
+ * Кэш поддерживает обратный индекс автор -> идентификаторы объявлений, чтобы при изменении данных автора
+ * сбрасывать только его объявления. Одновременные промахи по одному идентификатору объединяются в одну загрузку.
+ * Записи сбрасываются по сообщениям шины инвалидации (области ADS и AUTHOR), которые доставляются после фиксации транзакции
+ * на всех узлах, поэтому параллельный читатель не вернет в кэш незафиксированное состояние.
+ * Загрузка, во время которой сбрасывались объявления какого-либо автора, не остается в кэше: обратный индекс
+ * пополняется только в конце загрузки, и сброс автора мог пройти раньше, чем в индекс попал загружаемый идентификатор.
+ * Загрузки в кэш читают с основной базы данных (ReplicaRoutingDataSource.primaryScope()), а не с реплики:
+ * запись, построенная по отстающей реплике сразу после сброса, жила бы в кэше до истечения ttl.
+ * Каждая запись хранит ETag версий, из которых она построена, чтобы ответ с ETag из базы данных
+ * не отдавал более старую запись, если сообщение шины до этого узла еще не дошло.
+ */
+@Slf4j
+@Component
+public class FullAdsCache {
+
+    private final Cache<Long, Entry> cache;
+    private final ConcurrentMap<String, Set<Long>> adsByAuthor = new ConcurrentHashMap<>();
+    private final AtomicLong authorInvalidations = new AtomicLong();
+
+    public FullAdsCache(@Value("${avito.cache.full-ads.maximum-size:10000}") long maximumSize,
+                        @Value("${avito.cache.full-ads.ttl:10m}") Duration ttl,
+                        InvalidationBus invalidationBus) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .executor(Runnable::run)
+                .removalListener((Long id, Entry entry, RemovalCause cause) -> {
+                    if (entry != null) {
+                        unindex(entry.getFullAds().getEmail(), id);
+                    }
+                })
+                .build();
+        invalidationBus.subscribe(message -> {
+            if (message.getRegion() == CacheRegion.ADS) {
+                invalidate(Long.valueOf(message.getKey()));
+            } else if (message.getRegion() == CacheRegion.AUTHOR) {
+                invalidateAuthor(message.getKey());
+            }
+        });
+    }
+
+    /**
+     * Метод get() возвращает объявление из кэша или загружает его с помощью loader.
+     * Пока одна загрузка по идентификатору выполняется, остальные запросы того же идентификатора ожидают ее результата.
+     * Исключения загрузчика (например, AdsNotFoundException) пробрасываются вызывающему коду и не кэшируются.
+     * @param id
+     * @param loader
+     * @return
+     */
+    public FullAds get(Long id, Function<Long, Entry> loader) {
+        return getEntry(id, loader).getFullAds();
+    }
+
+    /**
+     * Метод getEntry() возвращает запись кэша (объявление вместе с ETag версий, из которых оно построено)
+     * или загружает ее с помощью loader так же, как метод get().
+     * @param id
+     * @param loader
+     * @return
+     */
+    public Entry getEntry(Long id, Function<Long, Entry> loader) {
+        long generation = authorInvalidations.get();
+        boolean[] loaded = new boolean[1];
+        Entry entry = cache.get(id, key -> {
+            Entry loadedEntry = loadFromPrimary(() -> loader.apply(key));
+            index(loadedEntry.getFullAds().getEmail(), key);
+            loaded[0] = true;
+            return loadedEntry;
+        });
+        if (loaded[0] && authorInvalidations.get() != generation) {
+            // Данные автора могли измениться во время загрузки: запись отдается вызывающему коду, но не кэшируется.
+            cache.asMap().remove(id, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Метод getAll() возвращает объявления с идентификаторами ids: найденные в кэше берутся из него,
+     * а все остальные загружаются одним вызовом loader и добавляются в кэш.
+     * Идентификаторы, для которых loader ничего не вернул, в результат не попадают и не кэшируются.
+     * @param ids
+     * @param loader
+     * @return
+     */
+    public Map<Long, FullAds> getAll(Collection<Long> ids, Function<Set<Long>, Map<Long, Entry>> loader) {
+        long generation = authorInvalidations.get();
+        Map<Long, Entry> loaded = new HashMap<>();
+        Map<Long, FullAds> result = new HashMap<>();
+        cache.getAll(ids, keys -> {
+            Set<Long> missing = new HashSet<>();
+            keys.forEach(missing::add);
+            Map<Long, Entry> entries = loadFromPrimary(() -> loader.apply(missing));
+            entries.forEach((id, entry) -> index(entry.getFullAds().getEmail(), id));
+            loaded.putAll(entries);
+            return entries;
+        }).forEach((id, entry) -> result.put(id, entry.getFullAds()));
+        if (!loaded.isEmpty() && authorInvalidations.get() != generation) {
+            loaded.forEach(cache.asMap()::remove);
+        }
+        return result;
+    }
+
+    /**
+     * Метод invalidateIfStale() сбрасывает запись объявления, если она построена не для версий с ETag tag.
+     * @param id
+     * @param tag
+     */
+    public void invalidateIfStale(Long id, String tag) {
+        cache.asMap().computeIfPresent(id, (key, entry) -> tag.equals(entry.getTag()) ? entry : null);
+    }
+
+    /**
+     * Метод invalidate() сбрасывает запись объявления.
+     * @param id
+     */
+    public void invalidate(Long id) {
+        log.debug("Invalidating cached ads with id: {}", id);
+        cache.invalidate(id);
+    }
+
+    /**
+     * Метод invalidateAuthor() сбрасывает все закэшированные объявления автора.
+     * @param username
+     */
+    public void invalidateAuthor(String username) {
+        // Счетчик увеличивается до чтения индекса, чтобы параллельная загрузка увидела сброс, даже если ее идентификатора в индексе еще нет.
+        authorInvalidations.incrementAndGet();
+        Set<Long> ids = adsByAuthor.remove(normalize(username));
+        if (ids != null) {
+            log.debug("Invalidating {} cached ads of author: {}", ids.size(), username);
+            cache.invalidateAll(ids);
+        }
+    }
+
+    private static <T> T loadFromPrimary(Supplier<T> loader) {
+        try (ReplicaRoutingDataSource.PrimaryScope ignored = ReplicaRoutingDataSource.primaryScope()) {
+            return loader.get();
+        }
+    }
+
+    private void index(String username, Long id) {
+        if (username != null) {
+            adsByAuthor.computeIfAbsent(normalize(username), key -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    private void unindex(String username, Long id) {
+        if (username != null) {
+            adsByAuthor.computeIfPresent(normalize(username), (key, ids) -> {
+                // Если объявление успели загрузить повторно, его запись в индексе нужно сохранить.
+                if (!cache.asMap().containsKey(id)) {
+                    ids.remove(id);
+                }
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    /**
+     * Имена пользователей ищутся без учета регистра, поэтому ключ обратного индекса приводится к нижнему регистру.
+     */
+    private static String normalize(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Entry - это запись кэша: полная информация об объявлении и ETag версий, из которых она построена.
+     */
+    @lombok.Value
+    public static class Entry {
+        FullAds fullAds;
+        String tag;
+    }
+
+}
@@ -0,0 +1,80 @@
+package ru.skypro.avito.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.skypro.avito.exception.LoadTimeoutException;
+import ru.skypro.avito.util.SingleFlight;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * SingleFlightLoader - это загрузчик сущностей, который объединяет одновременные чтения одной сущности в один запрос к базе данных.
+ * Ключ загрузки - тип сущности и ее идентификатор. Когда популярное объявление или изображение запрашивают сотни клиентов сразу,
+ * запрос выполняет только первый из них, а остальные получают его результат или его исключение (например, 404).
+ * Объединяются только загрузки внутри транзакций только для чтения: полученный объект принадлежит чужому контексту
+ * персистентности, поэтому изменять его нельзя. Вызовы из пишущих транзакций выполняются как обычно.
+ * Ожидание чужой загрузки ограничено timeout; по его истечении выбрасывается LoadTimeoutException (503).
+ */
+@Slf4j
+@Component
+public class SingleFlightLoader {
+
+    private final SingleFlight<Key, Object> singleFlight = new SingleFlight<>();
+    private final long timeoutNanos;
+    private final MeterRegistry meterRegistry;
+
+    public SingleFlightLoader(@Value("${avito.single-flight.timeout:5s}") Duration timeout,
+                              MeterRegistry meterRegistry) {
+        this.timeoutNanos = timeout.toNanos();
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Метод load() загружает сущность типа type с идентификатором id с помощью loader,
+     * разделяя загрузку с одновременными вызовами по тому же ключу.
+     * @param type
+     * @param id
+     * @param loader
+     * @return
+     * @param <T>
+     */
+    public <T> T load(Class<T> type, Object id, Supplier<T> loader) {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return loader.get();
+        }
+        boolean[] leader = new boolean[1];
+        try {
+            Object value = singleFlight.load(new Key(type, id), () -> {
+                leader[0] = true;
+                return loader.get();
+            }, timeoutNanos, TimeUnit.NANOSECONDS);
+            return type.cast(value);
+        } catch (TimeoutException e) {
+            log.warn("Timed out waiting for concurrent load of {} {}", type.getSimpleName(), id);
+            throw new LoadTimeoutException(type.getSimpleName() + " " + id);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LoadTimeoutException(type.getSimpleName() + " " + id);
+        } finally {
+            meterRegistry.counter("avito.single-flight.loads",
+                    "type", type.getSimpleName(),
+                    "role", leader[0] ? "leader" : "follower").increment();
+        }
+    }
+
+    /**
+     * Key - это ключ загрузки: тип сущности и ее идентификатор.
+     */
+    @lombok.Value
+    private static class Key {
+        Class<?> type;
+        Object id;
+    }
+
+}
@@ -0,0 +1,57 @@
+package ru.skypro.avito.cache.invalidation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * AbstractInvalidationBus - это общая часть реализаций шины: список подписчиков, доставка сообщений
+ * и откладывание действий до фиксации текущей транзакции.
+ */
+@Slf4j
+public abstract class AbstractInvalidationBus implements InvalidationBus {
+
+    private final List<InvalidationListener> listeners = new CopyOnWriteArrayList<>();
+    protected final String nodeId;
+
+    protected AbstractInvalidationBus(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    @Override
+    public void subscribe(InvalidationListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Метод deliver() передает сообщение всем подписчикам. Ошибка одного подписчика не мешает доставке остальным.
+     * @param message
+     */
+    protected void deliver(InvalidationMessage message) {
+        log.debug("Delivering invalidation {}", message);
+        for (InvalidationListener listener : listeners) {
+            try {
+                listener.onInvalidation(message);
+            } catch (RuntimeException e) {
+                log.warn("Invalidation listener failed for {}", message, e);
+            }
+        }
+    }
+
+    protected static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+}
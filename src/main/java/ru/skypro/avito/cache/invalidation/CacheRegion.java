@@ -0,0 +1,15 @@
+package ru.skypro.avito.cache.invalidation;
+
+/**
+ * CacheRegion - это перечисление областей кэша, записи которых могут сбрасываться через шину инвалидации.
+ * Ключ сообщения интерпретируется в зависимости от области: идентификатор объявления, изображения или аватара,
+ * имя пользователя для AUTHOR и USER, идентификатор объявления для COMMENTS.
+ */
+public enum CacheRegion {
+    ADS,
+    AUTHOR,
+    USER,
+    IMAGE,
+    AVATAR,
+    COMMENTS
+}
@@ -0,0 +1,13 @@
+package ru.skypro.avito.cache.invalidation;
+
+/**
+ * InvalidationBus - это шина сообщений об изменении данных, по которой кэши всех узлов приложения сбрасывают устаревшие записи.
+ * Публикация внутри транзакции доставляется подписчикам только после ее фиксации; при откате сообщение отбрасывается.
+ */
+public interface InvalidationBus {
+
+    void publish(CacheRegion region, Object key);
+
+    void subscribe(InvalidationListener listener);
+
+}
@@ -0,0 +1,8 @@
+package ru.skypro.avito.cache.invalidation;
+
+@FunctionalInterface
+public interface InvalidationListener {
+
+    void onInvalidation(InvalidationMessage message);
+
+}
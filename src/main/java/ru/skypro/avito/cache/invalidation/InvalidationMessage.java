@@ -0,0 +1,17 @@
+package ru.skypro.avito.cache.invalidation;
+
+import lombok.Value;
+
+/**
+ * InvalidationMessage - это сообщение шины инвалидации.
+ * version - монотонно возрастающая метка версии, присвоенная сообщению шиной; origin - идентификатор узла-отправителя.
+ */
+@Value
+public class InvalidationMessage {
+
+    long version;
+    CacheRegion region;
+    String key;
+    String origin;
+
+}
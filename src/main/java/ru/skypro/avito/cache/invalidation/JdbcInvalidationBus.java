@@ -0,0 +1,181 @@
+package ru.skypro.avito.cache.invalidation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * JdbcInvalidationBus - это реализация шины для нескольких узлов на основе таблицы cache_invalidation.
+ * Сообщение записывается в таблицу в той же транзакции, что и изменение данных, поэтому оно появляется только вместе с ними.
+ * Версией сообщения служит значение последовательности id, которое монотонно возрастает для всех узлов.
+ * Каждый узел периодически читает новые строки и доставляет своим подписчикам сообщения других узлов;
+ * свои сообщения узел доставляет сразу после фиксации транзакции.
+ * Последовательность выдает значения в порядке вставки, а не фиксации, поэтому пропуски в версиях запоминаются
+ * и перечитываются по списку версий в течение gap-timeout: так не теряются сообщения из транзакций, зафиксированных позже соседних.
+ * Реализация использует только стандартный SQL и работает как с PostgreSQL, так и с H2.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "avito.cache.invalidation.bus", havingValue = "jdbc")
+public class JdbcInvalidationBus extends AbstractInvalidationBus {
+
+    /**
+     * Ограничение на число одновременно отслеживаемых пропусков, чтобы скачок последовательности не занял всю память.
+     */
+    private static final int MAX_GAPS = 10_000;
+
+    private static final RowMapper<InvalidationMessage> MESSAGE_MAPPER = (rs, rowNum) -> new InvalidationMessage(
+            rs.getLong("id"),
+            CacheRegion.valueOf(rs.getString("region")),
+            rs.getString("cache_key"),
+            rs.getString("origin"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+    private final Duration gapTimeout;
+    private final Duration retention;
+
+    private final TreeMap<Long, Instant> gaps = new TreeMap<>();
+    private long lastVersion;
+
+    public JdbcInvalidationBus(JdbcTemplate jdbcTemplate,
+                               @Value("${avito.node-id:#{T(java.util.UUID).randomUUID().toString()}}") String nodeId,
+                               @Value("${avito.cache.invalidation.batch-size:500}") int batchSize,
+                               @Value("${avito.cache.invalidation.gap-timeout:10s}") Duration gapTimeout,
+                               @Value("${avito.cache.invalidation.retention:1h}") Duration retention) {
+        super(nodeId);
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+        this.gapTimeout = gapTimeout;
+        this.retention = retention;
+    }
+
+    /**
+     * При старте узел начинает читать сообщения с текущей максимальной версии: его собственные кэши еще пусты.
+     */
+    @PostConstruct
+    public void init() {
+        Long max = jdbcTemplate.queryForObject("SELECT MAX(id) FROM cache_invalidation", Long.class);
+        lastVersion = max == null ? 0 : max;
+        log.info("Invalidation bus started on node {} at version {}", nodeId, lastVersion);
+    }
+
+    /**
+     * Метод publish() записывает сообщение в таблицу в рамках текущей транзакции
+     * и доставляет его подписчикам этого узла после фиксации.
+     * @param region
+     * @param key
+     */
+    @Override
+    public void publish(CacheRegion region, Object key) {
+        String cacheKey = String.valueOf(key);
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO cache_invalidation (region, cache_key, origin, created_at) VALUES (?, ?, ?, ?)",
+                    new String[]{"id"});
+            statement.setString(1, region.name());
+            statement.setString(2, cacheKey);
+            statement.setString(3, nodeId);
+            statement.setTimestamp(4, Timestamp.from(Instant.now()));
+            return statement;
+        }, keyHolder);
+        long version = keyHolder.getKey().longValue();
+        afterCommit(() -> deliver(new InvalidationMessage(version, region, cacheKey, nodeId)));
+    }
+
+    /**
+     * Метод poll() перечитывает еще не закрытые пропуски, затем читает сообщения с версиями больше последней прочитанной
+     * и доставляет подписчикам сообщения других узлов. Пропуски запрашиваются отдельно по списку версий,
+     * поэтому открытый пропуск не мешает читать новые сообщения, сколько бы их ни было записано после него.
+     */
+    @Scheduled(fixedDelayString = "${avito.cache.invalidation.poll-interval:1000}")
+    public synchronized void poll() {
+        expireGaps();
+        pollGaps();
+
+        List<InvalidationMessage> messages = jdbcTemplate.query(
+                "SELECT id, region, cache_key, origin FROM cache_invalidation WHERE id > ? ORDER BY id LIMIT ?",
+                MESSAGE_MAPPER, lastVersion, batchSize);
+        for (InvalidationMessage message : messages) {
+            long version = message.getVersion();
+            Instant now = Instant.now();
+            for (long missing = lastVersion + 1; missing < version && gaps.size() < MAX_GAPS; missing++) {
+                gaps.put(missing, now);
+            }
+            lastVersion = version;
+            deliverForeign(message);
+        }
+    }
+
+    /**
+     * Метод cleanUp() удаляет сообщения старше retention: к этому времени их прочитали все работающие узлы.
+     */
+    @Scheduled(fixedDelayString = "${avito.cache.invalidation.cleanup-interval:600000}")
+    public void cleanUp() {
+        int removed = jdbcTemplate.update("DELETE FROM cache_invalidation WHERE created_at < ?",
+                Timestamp.from(Instant.now().minus(retention)));
+        log.debug("Removed {} old invalidation messages", removed);
+    }
+
+    public synchronized long getLastVersion() {
+        return lastVersion;
+    }
+
+    /**
+     * Сообщения из ранее обнаруженных пропусков читаются пачками по batch-size версий и доставляются один раз.
+     */
+    private void pollGaps() {
+        List<Long> versions = new ArrayList<>(gaps.keySet());
+        for (int from = 0; from < versions.size(); from += batchSize) {
+            List<Long> batch = versions.subList(from, Math.min(from + batchSize, versions.size()));
+            String placeholders = String.join(", ", Collections.nCopies(batch.size(), "?"));
+            List<InvalidationMessage> messages = jdbcTemplate.query(
+                    "SELECT id, region, cache_key, origin FROM cache_invalidation WHERE id IN (" + placeholders + ") ORDER BY id",
+                    MESSAGE_MAPPER, batch.toArray());
+            for (InvalidationMessage message : messages) {
+                if (gaps.remove(message.getVersion()) != null) {
+                    deliverForeign(message);
+                }
+            }
+        }
+    }
+
+    private void deliverForeign(InvalidationMessage message) {
+        if (!nodeId.equals(message.getOrigin())) {
+            deliver(message);
+        }
+    }
+
+    /**
+     * Пропуски, не заполненные за gap-timeout, считаются откатанными транзакциями и больше не перечитываются.
+     */
+    private void expireGaps() {
+        Instant threshold = Instant.now().minus(gapTimeout);
+        Iterator<Map.Entry<Long, Instant>> iterator = gaps.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getValue().isBefore(threshold)) {
+                iterator.remove();
+            }
+        }
+    }
+
+}
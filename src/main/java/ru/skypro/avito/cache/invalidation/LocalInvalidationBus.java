@@ -0,0 +1,29 @@
+package ru.skypro.avito.cache.invalidation;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LocalInvalidationBus - это реализация шины в пределах одной JVM. Подходит для запуска в один экземпляр и для тестов:
+ * сообщения получают версии из локального счетчика и доставляются подписчикам после фиксации транзакции.
+ */
+@Component
+@ConditionalOnProperty(name = "avito.cache.invalidation.bus", havingValue = "local", matchIfMissing = true)
+public class LocalInvalidationBus extends AbstractInvalidationBus {
+
+    private final AtomicLong version = new AtomicLong();
+
+    public LocalInvalidationBus(@Value("${avito.node-id:#{T(java.util.UUID).randomUUID().toString()}}") String nodeId) {
+        super(nodeId);
+    }
+
+    @Override
+    public void publish(CacheRegion region, Object key) {
+        String cacheKey = String.valueOf(key);
+        afterCommit(() -> deliver(new InvalidationMessage(version.incrementAndGet(), region, cacheKey, nodeId)));
+    }
+
+}
@@ -0,0 +1,32 @@
+package ru.skypro.avito.configuration.converter;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * BinaryFormatConverterConfig - это конфигурация конвертеров двоичных форматов CBOR (application/cbor)
+ * и Smile (application/x-jackson-smile) для мобильных клиентов: они меньше JSON и быстрее разбираются.
+ * ObjectMapper строится тем же Jackson2ObjectMapperBuilder, что и для JSON, поэтому настройки Spring Boot
+ * и фильтр свойств параметра fields= (JacksonFilterConfig) действуют во всех форматах.
+ * Конвертеры заменяют одноименные конвертеры по умолчанию и стоят после JSON, поэтому клиент, принимающий любой тип,
+ * по-прежнему получает JSON.
+ */
+@Configuration
+public class BinaryFormatConverterConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+}
@@ -0,0 +1,23 @@
+package ru.skypro.avito.configuration.converter;
+
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * JacksonFilterConfig - это конфигурация фильтров свойств Jackson по умолчанию.
+ * DTO, поддерживающие параметр fields=, помечены @JsonFilter; если ответ не сужен (MappingJacksonValue без фильтров),
+ * сериализуются все свойства.
+ */
+@Configuration
+public class JacksonFilterConfig {
+
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer defaultPropertyFilter() {
+        return builder -> builder.filters(new SimpleFilterProvider()
+                .setDefaultFilter(SimpleBeanPropertyFilter.serializeAll()));
+    }
+
+}
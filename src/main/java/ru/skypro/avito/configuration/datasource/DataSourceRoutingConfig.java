@@ -0,0 +1,88 @@
+package ru.skypro.avito.configuration.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DataSourceRoutingConfig - это конфигурация маршрутизации запросов между основной базой данных и репликами.
+ * Включается свойством avito.datasource.routing.enabled=true. Основная база берется из spring.datasource.*,
+ * реплики - из avito.datasource.replica-urls (с теми же учетными данными, если не заданы свои).
+ * Каждый маршрут получает собственный пул Hikari с метриками hikaricp.* и тегом pool.
+ */
+@Configuration
+@ConditionalOnProperty(name = "avito.datasource.routing.enabled", havingValue = "true")
+public class DataSourceRoutingConfig {
+
+    @Bean
+    public ReadYourWritesTracker readYourWritesTracker(
+            @Value("${avito.datasource.read-your-writes-window:5s}") Duration window,
+            @Value("${avito.datasource.read-your-writes-max-users:100000}") int maxUsers) {
+        return new ReadYourWritesTracker(window, maxUsers);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties,
+                                 ReadYourWritesTracker tracker,
+                                 ObjectProvider<MeterRegistry> meterRegistry,
+                                 @Value("${avito.datasource.replica-urls:}") List<String> replicaUrls,
+                                 @Value("${avito.datasource.replica-username:${spring.datasource.username:}}") String replicaUsername,
+                                 @Value("${avito.datasource.replica-password:${spring.datasource.password:}}") String replicaPassword,
+                                 @Value("${avito.datasource.primary-pool-size:10}") int primaryPoolSize,
+                                 @Value("${avito.datasource.replica-pool-size:10}") int replicaPoolSize) {
+        HikariDataSource primary = pool(ReplicaRoutingDataSource.PRIMARY, properties.determineUrl(),
+                properties.determineUsername(), properties.determinePassword(), primaryPoolSize, false, meterRegistry);
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            String url = replicaUrls.get(i).trim();
+            if (!url.isEmpty()) {
+                String name = "replica-" + (i + 1);
+                replicas.put(name, pool(name, url, replicaUsername, replicaPassword, replicaPoolSize, true, meterRegistry));
+            }
+        }
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replicas, tracker, meterRegistry::getObject);
+        routing.afterPropertiesSet();
+
+        // Настройки соединений по умолчанию задаются явно, чтобы прокси не брал соединение при создании бина.
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy();
+        proxy.setTargetDataSource(routing);
+        proxy.setDefaultAutoCommit(true);
+        proxy.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        proxy.afterPropertiesSet();
+        return proxy;
+    }
+
+    private static HikariDataSource pool(String name, String url, String username, String password,
+                                         int poolSize, boolean readOnly, ObjectProvider<MeterRegistry> meterRegistry) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(name);
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setMaximumPoolSize(poolSize);
+        dataSource.setReadOnly(readOnly);
+        // Пул запускается при первом соединении, когда реестр метрик уже можно получить без циклической зависимости.
+        dataSource.setMetricsTrackerFactory((poolName, poolStats) ->
+                new MicrometerMetricsTrackerFactory(meterRegistry.getObject()).create(poolName, poolStats));
+        return dataSource;
+    }
+
+}
@@ -0,0 +1,38 @@
+package ru.skypro.avito.configuration.datasource;
+
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionTimedOutException;
+import ru.skypro.avito.util.RequestDeadline;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DeadlineJpaTransactionManager - это менеджер транзакций JPA, который ограничивает таймаут каждой транзакции
+ * временем, оставшимся до крайнего срока запроса (RequestDeadline).
+ * Hibernate применяет оставшийся таймаут транзакции как setQueryTimeout() к каждому выполняемому запросу,
+ * поэтому медленный запрос или ожидание блокировки прерываются базой данных и не удерживают соединение пула дольше срока.
+ * Таймаут JDBC задается в секундах, поэтому оставшееся время округляется вверх.
+ */
+public class DeadlineJpaTransactionManager extends JpaTransactionManager {
+
+    public DeadlineJpaTransactionManager(EntityManagerFactory entityManagerFactory) {
+        super(entityManagerFactory);
+    }
+
+    @Override
+    protected int determineTimeout(TransactionDefinition definition) {
+        int timeout = super.determineTimeout(definition);
+        if (!RequestDeadline.isSet()) {
+            return timeout;
+        }
+        long remaining = RequestDeadline.remainingNanos();
+        if (remaining <= 0) {
+            throw new TransactionTimedOutException("Request deadline expired before transaction start");
+        }
+        long seconds = Math.min(Integer.MAX_VALUE, (remaining + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        return timeout == TransactionDefinition.TIMEOUT_DEFAULT ? (int) seconds : (int) Math.min(timeout, seconds);
+    }
+
+}
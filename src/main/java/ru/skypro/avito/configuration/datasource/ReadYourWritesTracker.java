@@ -0,0 +1,53 @@
+package ru.skypro.avito.configuration.datasource;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * ReadYourWritesTracker - это журнал недавних записей пользователей. В течение окна window после фиксации записи
+ * читающие транзакции пользователя направляются на основную базу данных, чтобы он видел свои изменения несмотря на отставание реплик.
+ * Размер журнала ограничен: при превышении maxUsers из него удаляются истекшие записи.
+ */
+public class ReadYourWritesTracker {
+
+    private final ConcurrentMap<String, Long> lastWrites = new ConcurrentHashMap<>();
+    private final long windowNanos;
+    private final int maxUsers;
+
+    public ReadYourWritesTracker(Duration window, int maxUsers) {
+        this.windowNanos = window.toNanos();
+        this.maxUsers = maxUsers;
+    }
+
+    public void markWrite(String username) {
+        if (username == null) {
+            return;
+        }
+        if (lastWrites.size() >= maxUsers) {
+            purgeExpired();
+        }
+        lastWrites.put(username, System.nanoTime());
+    }
+
+    public boolean isSticky(String username) {
+        if (username == null) {
+            return false;
+        }
+        Long writtenAt = lastWrites.get(username);
+        if (writtenAt == null) {
+            return false;
+        }
+        if (System.nanoTime() - writtenAt < windowNanos) {
+            return true;
+        }
+        lastWrites.remove(username, writtenAt);
+        return false;
+    }
+
+    private void purgeExpired() {
+        long now = System.nanoTime();
+        lastWrites.values().removeIf(writtenAt -> now - writtenAt >= windowNanos);
+    }
+
+}
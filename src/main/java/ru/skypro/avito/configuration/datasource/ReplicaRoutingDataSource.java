@@ -0,0 +1,125 @@
+package ru.skypro.avito.configuration.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * ReplicaRoutingDataSource - это источник данных, который направляет транзакции @Transactional(readOnly = true)
+ * на реплики (по кругу), а все остальные обращения - на основную базу данных.
+ * После фиксации пишущей транзакции пользователь на короткое время "прилипает" к основной базе (read-your-writes).
+ * Код, результат которого сохраняется в общих кэшах, читает с основной базы внутри primaryScope(): иначе читатель,
+ * не выполнявший запись, мог бы сразу после сброса кэша положить в него данные отстающей реплики на все время жизни записи.
+ * Должен использоваться через LazyConnectionDataSourceProxy, чтобы соединение бралось уже после того,
+ * как менеджер транзакций отметил транзакцию как только для чтения.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+
+    private static final ThreadLocal<Integer> PRIMARY_SCOPE = new ThreadLocal<>();
+
+    private final List<String> replicas;
+    private final ReadYourWritesTracker tracker;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Map<String, Counter> routed = new ConcurrentHashMap<>();
+    private final Supplier<MeterRegistry> meterRegistry;
+
+    /**
+     * Реестр метрик передается через Supplier: он создается позже источника данных и нужен только при первом соединении.
+     */
+    public ReplicaRoutingDataSource(DataSource primary,
+                                    Map<String, DataSource> replicas,
+                                    ReadYourWritesTracker tracker,
+                                    Supplier<MeterRegistry> meterRegistry) {
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        this.replicas = List.copyOf(replicas.keySet());
+        this.tracker = tracker;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String route = route();
+        routed.computeIfAbsent(route, key -> Counter.builder("avito.datasource.routed")
+                        .description("Connections handed out per route")
+                        .tag("route", key)
+                        .register(meterRegistry.get()))
+                .increment();
+        return route;
+    }
+
+    /**
+     * Метод primaryScope() направляет на основную базу данных соединения, взятые в текущем потоке до закрытия области.
+     * Соединение, уже взятое транзакцией до открытия области, не переключается, поэтому область открывается
+     * до первого запроса транзакции (например, вокруг загрузки в кэш). Области могут быть вложенными.
+     * @return
+     */
+    public static PrimaryScope primaryScope() {
+        Integer depth = PRIMARY_SCOPE.get();
+        PRIMARY_SCOPE.set(depth == null ? 1 : depth + 1);
+        return () -> {
+            int current = PRIMARY_SCOPE.get();
+            if (current == 1) {
+                PRIMARY_SCOPE.remove();
+            } else {
+                PRIMARY_SCOPE.set(current - 1);
+            }
+        };
+    }
+
+    private String route() {
+        String username = currentUsername();
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (!replicas.isEmpty() && !tracker.isSticky(username) && PRIMARY_SCOPE.get() == null) {
+                return replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+            }
+            return PRIMARY;
+        }
+        // Пишущая транзакция: после ее фиксации пользователь читает с основной базы в течение окна read-your-writes.
+        if (username != null && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    tracker.markWrite(username);
+                }
+            });
+        }
+        return PRIMARY;
+    }
+
+    /**
+     * PrimaryScope - это область чтения с основной базы данных, закрываемая в try-with-resources.
+     */
+    public interface PrimaryScope extends AutoCloseable {
+
+        @Override
+        void close();
+
+    }
+
+    private static String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+
+}
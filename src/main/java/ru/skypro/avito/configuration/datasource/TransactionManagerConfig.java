@@ -0,0 +1,26 @@
+package ru.skypro.avito.configuration.datasource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * TransactionManagerConfig - это конфигурация менеджера транзакций, учитывающего крайний срок запроса.
+ * Заменяет JpaTransactionManager, который Spring Boot создает по умолчанию.
+ */
+@Configuration
+public class TransactionManagerConfig {
+
+    @Bean
+    public PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory,
+                                                         ObjectProvider<TransactionManagerCustomizers> customizers) {
+        DeadlineJpaTransactionManager transactionManager = new DeadlineJpaTransactionManager(entityManagerFactory);
+        customizers.ifAvailable(c -> c.customize(transactionManager));
+        return transactionManager;
+    }
+
+}
@@ -0,0 +1,31 @@
+package ru.skypro.avito.configuration.executor;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * ImageProcessingExecutorConfig - это конфигурация пула потоков для проверки и хеширования загружаемых изображений.
+ * Пул и очередь ограничены; когда очередь заполнена, задачу выполняет вызывающий поток запроса (CallerRunsPolicy),
+ * поэтому под нагрузкой обработка замедляется, но не отклоняется и не копит неограниченную очередь файлов в памяти.
+ */
+@Configuration
+public class ImageProcessingExecutorConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolTaskExecutor imageProcessingExecutor(@Value("${avito.image.processing.threads:4}") int threads,
+                                                          @Value("${avito.image.processing.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("image-processing-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+}
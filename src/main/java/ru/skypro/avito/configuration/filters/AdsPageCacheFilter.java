@@ -0,0 +1,190 @@
+package ru.skypro.avito.configuration.filters;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import ru.skypro.avito.cache.AdsListingVersion;
+import ru.skypro.avito.cache.AdsPageCache;
+import ru.skypro.avito.configuration.datasource.ReplicaRoutingDataSource;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * AdsPageCacheFilter - это фильтр, который отдает анонимные запросы GET /ads из кэша готовых ответов AdsPageCache.
+ * Ключ кэша строится только из параметра fields - единственного параметра, который влияет на список;
+ * запросы с любыми другими параметрами обрабатываются контроллером без кэша, чтобы произвольные параметры
+ * не размножали записи с одним и тем же содержимым.
+ * Клиенту, принимающему gzip, отдается сжатая копия с заголовком Content-Encoding, остальным - исходное тело.
+ * При промахе запрос обрабатывается контроллером как обычно, а тело ответа сохраняется в кэш. Такой запрос читает
+ * данные с основной базы данных: страница живет в кэше до изменения списка, и данные отстающей реплики
+ * отдавались бы из кэша и после того, как реплика догонит основную базу.
+ * Запрос с If-None-Match, совпадающим с ETag текущей версии списка, получает 304 без обращения к кэшу.
+ * Запросы с учетными данными и запросы, в которых JSON не является предпочтительным форматом (например, CBOR или Smile),
+ * в кэш не попадают.
+ */
+@Component
+@RequiredArgsConstructor
+public class AdsPageCacheFilter extends OncePerRequestFilter {
+
+    private static final String PATH = "/ads";
+    private static final String FIELDS = "fields";
+    private static final List<MediaType> PRODUCIBLE = List.of(
+            MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR, new MediaType("application", "x-jackson-smile"));
+
+    private final AdsPageCache adsPageCache;
+    private final AdsListingVersion listingVersion;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"GET".equals(request.getMethod())
+                || !PATH.equals(request.getRequestURI().substring(request.getContextPath().length()))
+                || request.getHeader(HttpHeaders.AUTHORIZATION) != null
+                || request.getParameterMap().keySet().stream().anyMatch(name -> !FIELDS.equals(name))
+                || !prefersJson(request.getHeader(HttpHeaders.ACCEPT));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        // Версия читается один раз до загрузки данных: по ней проверяется If-None-Match, выбирается запись кэша
+        // и помечается новый ответ, поэтому ответ, собранный во время изменения списка, не переживет это изменение.
+        long version = listingVersion.get();
+        if (new ServletWebRequest(request, response).checkNotModified(listingVersion.getTag(version))) {
+            return;
+        }
+
+        String key = key(request.getParameterValues(FIELDS));
+        AdsPageCache.Page page = adsPageCache.get(key, version);
+        if (page != null) {
+            write(request, response, page);
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        try (ReplicaRoutingDataSource.PrimaryScope ignored = ReplicaRoutingDataSource.primaryScope()) {
+            filterChain.doFilter(request, wrapper);
+        }
+
+        if (wrapper.getStatus() != HttpStatus.OK.value() || !isJson(wrapper.getContentType())) {
+            wrapper.copyBodyToResponse();
+            return;
+        }
+        page = adsPageCache.put(key, version, wrapper.getContentType(), wrapper.getContentAsByteArray());
+        wrapper.resetBuffer();
+        write(request, response, page);
+    }
+
+    private static void write(HttpServletRequest request, HttpServletResponse response, AdsPageCache.Page page)
+            throws IOException {
+        byte[] body = page.getBody();
+        if (acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            body = page.getGzipped();
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(page.getContentType());
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    /**
+     * Строит ключ кэша из значений параметра fields, отсортированных по значению.
+     */
+    private static String key(String[] fields) {
+        StringBuilder key = new StringBuilder(PATH);
+        if (fields == null) {
+            return key.toString();
+        }
+        String[] values = fields.clone();
+        Arrays.sort(values);
+        char separator = '?';
+        for (String value : values) {
+            key.append(separator)
+                    .append(FIELDS)
+                    .append('=')
+                    .append(URLEncoder.encode(value, StandardCharsets.UTF_8));
+            separator = '&';
+        }
+        return key.toString();
+    }
+
+    /**
+     * Проверяет, что JSON - предпочтительный для клиента формат: первый по весу q и точности тип из Accept,
+     * который может отдать приложение, совместим с application/json. Так же формат выбирает Spring MVC,
+     * поэтому клиенту, предпочитающему CBOR или Smile, не отдается закэшированный JSON.
+     */
+    private static boolean prefersJson(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return true;
+        }
+        try {
+            List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+            MediaType.sortBySpecificityAndQuality(mediaTypes);
+            return mediaTypes.stream()
+                    .filter(mediaType -> mediaType.getQualityValue() > 0)
+                    .filter(mediaType -> PRODUCIBLE.stream().anyMatch(mediaType::isCompatibleWith))
+                    .findFirst()
+                    .map(mediaType -> mediaType.isCompatibleWith(MediaType.APPLICATION_JSON))
+                    .orElse(false);
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+    private static boolean isJson(String contentType) {
+        try {
+            return contentType != null && MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(contentType));
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Проверяет, что клиент принимает gzip: кодировка указана явно или через "*", и ее вес q не равен нулю.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim();
+            if (!"gzip".equalsIgnoreCase(name) && !"*".equals(name)) {
+                continue;
+            }
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2));
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            return quality > 0;
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,99 @@
+package ru.skypro.avito.configuration.filters;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.skypro.avito.configuration.filters.RateLimits.EndpointClass;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * AuthRateLimitFilter - это фильтр, ограничивающий попытки входа и проверки учетных данных корзиной класса AUTH (RateLimits).
+ * Фильтр стоит перед Spring Security и перед ограничением одновременных запросов,
+ * поэтому при исчерпанном лимите пароль не проверяется (BCrypt) и запрос не занимает место в лимите.
+ * Вход и регистрация расходуют токен IP-адреса клиента при каждом запросе. Запрос с заголовком Authorization тоже
+ * относится к классу AUTH, а его корзина определяется пользователем из заголовка вместе с IP-адресом: клиенты
+ * за одним адресом не делят лимит, а перебор паролей одного пользователя ограничен. Токен берется до проверки
+ * учетных данных и возвращается, если они не отклонены (401), поэтому одновременные запросы с неверным паролем
+ * не проходят все сразу, а обычные запросы пользователя с Basic-аутентификацией не тратят лимит входа.
+ * IP-адрес клиента за балансировщиком берется из X-Forwarded-For: заголовок учитывается только от доверенных прокси
+ * (server.forward-headers-strategy и server.tomcat.remoteip.internal-proxies).
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "avito.rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 3)
+public class AuthRateLimitFilter extends OncePerRequestFilter {
+
+    private static final String BASIC = "Basic ";
+
+    private final RateLimits rateLimits;
+
+    public AuthRateLimitFilter(RateLimits rateLimits) {
+        this.rateLimits = rateLimits;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean loginOrRegister = isLoginOrRegister(request);
+        if (!loginOrRegister && request.getHeader(HttpHeaders.AUTHORIZATION) == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        // Пользователь еще не проверен, поэтому имя из заголовка служит только частью ключа вместе с IP-адресом.
+        String client = loginOrRegister
+                ? "ip:" + request.getRemoteAddr()
+                : "user:" + username(request.getHeader(HttpHeaders.AUTHORIZATION)) + "|ip:" + request.getRemoteAddr();
+        long wait = rateLimits.tryAcquire(EndpointClass.AUTH, client);
+        if (wait > 0) {
+            log.debug("Auth rate limit exceeded for {} on {} {}", client, request.getMethod(), request.getRequestURI());
+            RateLimits.reject(response, wait);
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+        if (!loginOrRegister && response.getStatus() != HttpStatus.UNAUTHORIZED.value()) {
+            rateLimits.refund(EndpointClass.AUTH, client);
+        }
+    }
+
+    /**
+     * Возвращает имя пользователя из заголовка Authorization со схемой Basic в нижнем регистре
+     * или пустую строку, если заголовок другой схемы или не разбирается.
+     */
+    private static String username(String authorization) {
+        if (authorization == null || !authorization.regionMatches(true, 0, BASIC, 0, BASIC.length())) {
+            return "";
+        }
+        try {
+            String credentials = new String(Base64.getDecoder().decode(authorization.substring(BASIC.length()).trim()),
+                    StandardCharsets.UTF_8);
+            int separator = credentials.indexOf(':');
+            return (separator < 0 ? credentials : credentials.substring(0, separator)).toLowerCase(Locale.ROOT);
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+
+    static boolean isLoginOrRegister(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return "POST".equals(request.getMethod()) && ("/login".equals(path) || "/register".equals(path));
+    }
+
+}
@@ -0,0 +1,128 @@
+package ru.skypro.avito.configuration.filters;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.skypro.avito.util.AdaptiveConcurrencyLimit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * ConcurrencyLimitFilter - это фильтр, ограничивающий число одновременно выполняемых запросов адаптивным лимитом
+ * (AdaptiveConcurrencyLimit), который подбирается по задержке ответов.
+ * Когда база данных замедляется, задержка растет, лимит снижается, и лишние запросы сразу получают
+ * 503 Service Unavailable с заголовком Retry-After вместо того, чтобы ждать в очереди пула потоков.
+ * Лимиты раздельные для классов запросов с разной стоимостью: чтение, выдача изображений,
+ * вход и регистрация (BCrypt) и все остальные запросы.
+ * Фильтр стоит перед Spring Security, чтобы проверка пароля Basic-аутентификации тоже выполнялась в пределах лимита.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "avito.concurrency-limit.enabled", havingValue = "true", matchIfMissing = true)
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 1)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    /**
+     * EndpointClass - это класс запросов с отдельным лимитом.
+     */
+    enum EndpointClass {
+        READ,
+        IMAGE,
+        AUTH,
+        OTHER
+    }
+
+    private final Map<EndpointClass, AdaptiveConcurrencyLimit> limits = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, Counter> rejected = new EnumMap<>(EndpointClass.class);
+
+    public ConcurrencyLimitFilter(@Value("${avito.concurrency-limit.initial-limit:20}") int initialLimit,
+                                  @Value("${avito.concurrency-limit.min-limit:2}") int minLimit,
+                                  @Value("${avito.concurrency-limit.tolerance:2}") double tolerance,
+                                  @Value("${avito.concurrency-limit.read.max-limit:200}") int readMaxLimit,
+                                  @Value("${avito.concurrency-limit.image.max-limit:50}") int imageMaxLimit,
+                                  @Value("${avito.concurrency-limit.auth.max-limit:#{T(java.lang.Runtime).getRuntime().availableProcessors() * 2}}") int authMaxLimit,
+                                  @Value("${avito.concurrency-limit.other.max-limit:100}") int otherMaxLimit,
+                                  MeterRegistry meterRegistry) {
+        limits.put(EndpointClass.READ, new AdaptiveConcurrencyLimit(initialLimit, minLimit, readMaxLimit, tolerance));
+        limits.put(EndpointClass.IMAGE, new AdaptiveConcurrencyLimit(initialLimit, minLimit, imageMaxLimit, tolerance));
+        limits.put(EndpointClass.AUTH, new AdaptiveConcurrencyLimit(initialLimit, minLimit, authMaxLimit, tolerance));
+        limits.put(EndpointClass.OTHER, new AdaptiveConcurrencyLimit(initialLimit, minLimit, otherMaxLimit, tolerance));
+
+        limits.forEach((endpointClass, limit) -> {
+            String tag = endpointClass.name().toLowerCase(Locale.ROOT);
+            Gauge.builder("avito.concurrency-limit.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                    .description("Current adaptive concurrency limit")
+                    .tag("class", tag)
+                    .register(meterRegistry);
+            Gauge.builder("avito.concurrency-limit.in-flight", limit, AdaptiveConcurrencyLimit::getInFlight)
+                    .description("Requests currently in flight")
+                    .tag("class", tag)
+                    .register(meterRegistry);
+            rejected.put(endpointClass, Counter.builder("avito.concurrency-limit.rejected")
+                    .description("Requests shed because the concurrency limit was reached")
+                    .tag("class", tag)
+                    .register(meterRegistry));
+        });
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+        EndpointClass endpointClass = classify(request);
+        AdaptiveConcurrencyLimit limit = limits.get(endpointClass);
+
+        int inFlight = limit.tryAcquire();
+        if (inFlight == 0) {
+            rejected.get(endpointClass).increment();
+            log.debug("Concurrency limit {} reached for {} requests", limit.getLimit(), endpointClass);
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean dropped = true;
+        try {
+            filterChain.doFilter(request, response);
+            // 503 и 504 означают перегрузку ниже по стеку (например, таймаут запроса к базе данных).
+            int status = response.getStatus();
+            dropped = status == HttpStatus.SERVICE_UNAVAILABLE.value() || status == HttpStatus.GATEWAY_TIMEOUT.value();
+        } finally {
+            limit.release(System.nanoTime() - start, inFlight, dropped);
+        }
+    }
+
+    private static EndpointClass classify(HttpServletRequest request) {
+        String method = request.getMethod();
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if ("POST".equals(method) && ("/login".equals(path) || "/register".equals(path))) {
+            return EndpointClass.AUTH;
+        }
+        if ("GET".equals(method) || "HEAD".equals(method)) {
+            if (path.startsWith("/ads/image/") || path.startsWith("/users/avatar/")) {
+                return EndpointClass.IMAGE;
+            }
+            return EndpointClass.READ;
+        }
+        return EndpointClass.OTHER;
+    }
+
+}
@@ -0,0 +1,106 @@
+package ru.skypro.avito.configuration.filters;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.skypro.avito.util.RequestDeadline;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * DeadlineFilter - это фильтр, назначающий запросу крайний срок обработки (RequestDeadline).
+ * Срок по умолчанию зависит от класса запроса: чтение, изменение или загрузка файла. Клиент может задать свой срок
+ * заголовком X-Request-Timeout (в миллисекундах), но не больше max.
+ * Оставшееся время становится таймаутом каждой транзакции и, через нее, каждого запроса к базе данных
+ * (DeadlineJpaTransactionManager). Если запрос завершился ошибкой после истечения срока, клиент получает
+ * 503 Service Unavailable с заголовком Retry-After.
+ * Фильтр стоит первым, чтобы в срок входило и ожидание в остальных фильтрах.
+ */
+@Slf4j
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 2)
+public class DeadlineFilter extends OncePerRequestFilter {
+
+    public static final String TIMEOUT_HEADER = "X-Request-Timeout";
+
+    private final Duration readTimeout;
+    private final Duration writeTimeout;
+    private final Duration uploadTimeout;
+    private final Duration maxTimeout;
+    private final Counter expired;
+
+    public DeadlineFilter(@Value("${avito.deadline.read:5s}") Duration readTimeout,
+                          @Value("${avito.deadline.write:10s}") Duration writeTimeout,
+                          @Value("${avito.deadline.upload:30s}") Duration uploadTimeout,
+                          @Value("${avito.deadline.max:30s}") Duration maxTimeout,
+                          MeterRegistry meterRegistry) {
+        this.readTimeout = readTimeout;
+        this.writeTimeout = writeTimeout;
+        this.uploadTimeout = uploadTimeout;
+        this.maxTimeout = maxTimeout;
+        this.expired = Counter.builder("avito.deadline.expired")
+                .description("Requests that failed after their deadline expired")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestDeadline.start(timeout(request));
+        try {
+            filterChain.doFilter(request, response);
+        } catch (ServletException | RuntimeException e) {
+            if (!RequestDeadline.isExpired() || response.isCommitted()) {
+                throw e;
+            }
+            expired.increment();
+            log.debug("Deadline expired for {} {}", request.getMethod(), request.getRequestURI(), e);
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        } finally {
+            RequestDeadline.clear();
+        }
+    }
+
+    private Duration timeout(HttpServletRequest request) {
+        String header = request.getHeader(TIMEOUT_HEADER);
+        if (header != null) {
+            try {
+                long millis = Long.parseLong(header.trim());
+                if (millis > 0) {
+                    return millis < maxTimeout.toMillis() ? Duration.ofMillis(millis) : maxTimeout;
+                }
+            } catch (NumberFormatException e) {
+                log.debug("Ignoring malformed {} header: {}", TIMEOUT_HEADER, header);
+            }
+        }
+        // К загрузкам относятся и части загрузки по частям (application/octet-stream), и ее завершение (параметр upload).
+        String contentType = request.getContentType();
+        if (contentType != null && (contentType.toLowerCase(Locale.ROOT).startsWith("multipart/")
+                || contentType.toLowerCase(Locale.ROOT).startsWith("application/octet-stream"))
+                || request.getParameter("upload") != null) {
+            return uploadTimeout;
+        }
+        String method = request.getMethod();
+        if ("GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method)) {
+            return readTimeout;
+        }
+        return writeTimeout;
+    }
+
+}
@@ -0,0 +1,277 @@
+package ru.skypro.avito.configuration.filters;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import ru.skypro.avito.idempotency.IdempotencyStore;
+import ru.skypro.avito.idempotency.IdempotencyStore.StoredResponse;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * IdempotencyFilter - это фильтр, который делает повторы POST /ads и POST /ads/{id}/comments с заголовком
+ * Idempotency-Key безопасными: первый запрос выполняется и его успешный ответ сохраняется в IdempotencyStore,
+ * а повтор с тем же ключом получает сохраненный ответ с заголовком Idempotent-Replayed, не создавая дубликатов.
+ * Фильтр стоит до UploadAdmissionFilter и DispatcherServlet, поэтому повтор загрузки отвечает, не читая тело запроса.
+ * Ключи привязаны к пользователю. Пока первый запрос выполняется, повтор получает 409 Conflict;
+ * ключ, использованный для другого запроса, - 422 Unprocessable Entity. Неуспешный ответ не сохраняется,
+ * и запрос можно повторить с тем же ключом. Если же успешный ответ не удалось сохранить, ключ не освобождается:
+ * изменение уже выполнено, и повтор до истечения lock-timeout получает 409, а не создает дубликат.
+ * Запрос определяется методом, путем и SHA-256 тела JSON (например, текста комментария), поэтому повтор с тем же ключом,
+ * но другим телом получает 422. Тело JSON для этого читается заранее и ограничено max-body-size (иначе 413);
+ * тело multipart-запроса в отпечаток не входит, чтобы не читать файл до UploadAdmissionFilter.
+ */
+@Slf4j
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER + 2)
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    public static final String REPLAYED = "Idempotent-Replayed";
+
+    private static final Pattern PATH = Pattern.compile("/ads(/\\d+/comments)?");
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyStore store;
+    private final long maxBodySize;
+    private final Counter stored;
+    private final Counter replayed;
+    private final Counter conflicts;
+
+    public IdempotencyFilter(IdempotencyStore store,
+                             @Value("${avito.idempotency.max-body-size:64KB}") DataSize maxBodySize,
+                             MeterRegistry meterRegistry) {
+        this.store = store;
+        this.maxBodySize = maxBodySize.toBytes();
+        this.stored = counter(meterRegistry, "stored");
+        this.replayed = counter(meterRegistry, "replayed");
+        this.conflicts = counter(meterRegistry, "conflict");
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod())
+                || request.getHeader(IDEMPOTENCY_KEY) == null
+                || !PATH.matcher(path(request)).matches();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+        String username = username();
+        String key = request.getHeader(IDEMPOTENCY_KEY);
+        if (username == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            response.setStatus(HttpStatus.BAD_REQUEST.value());
+            return;
+        }
+
+        String fingerprint = request.getMethod() + " " + path(request);
+        if (isJson(request.getContentType())) {
+            byte[] body = request.getInputStream().readNBytes((int) Math.min(Integer.MAX_VALUE - 1, maxBodySize) + 1);
+            if (body.length > maxBodySize) {
+                response.setStatus(HttpStatus.PAYLOAD_TOO_LARGE.value());
+                return;
+            }
+            fingerprint += " " + sha256(body);
+            request = new CachedBodyRequest(request, body);
+        }
+
+        String id = IdempotencyStore.id(username, key);
+        Optional<StoredResponse> existing = store.find(id);
+        if (existing.isEmpty()) {
+            if (store.tryLock(id, fingerprint)) {
+                proceed(id, request, response, filterChain);
+                return;
+            }
+            // Ключ между поиском и вставкой занял параллельный повтор.
+            existing = store.find(id);
+        }
+        replay(existing.orElse(null), fingerprint, response);
+    }
+
+    private void proceed(String id,
+                         HttpServletRequest request,
+                         HttpServletResponse response,
+                         FilterChain filterChain)
+            throws ServletException, IOException {
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        boolean succeeded = false;
+        try {
+            filterChain.doFilter(request, wrapper);
+            int status = wrapper.getStatus();
+            if (status >= 200 && status < 300) {
+                // Изменение выполнено: с этого момента ключ не освобождается, а клиент получает успешный ответ,
+                // даже если сохранить его не удалось.
+                succeeded = true;
+                try {
+                    store.complete(id, status, wrapper.getContentType(), wrapper.getContentAsByteArray());
+                    stored.increment();
+                } catch (RuntimeException e) {
+                    log.warn("Failed to store idempotent response, key stays locked until lock-timeout", e);
+                }
+            }
+        } finally {
+            if (!succeeded) {
+                store.release(id);
+            }
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    private void replay(StoredResponse existing, String fingerprint, HttpServletResponse response) throws IOException {
+        if (existing == null || !existing.isCompleted()) {
+            conflicts.increment();
+            response.setStatus(HttpStatus.CONFLICT.value());
+            return;
+        }
+        if (!fingerprint.equals(existing.getRequest())) {
+            conflicts.increment();
+            response.setStatus(HttpStatus.UNPROCESSABLE_ENTITY.value());
+            return;
+        }
+        replayed.increment();
+        log.debug("Replaying stored response for {}", fingerprint);
+        response.setStatus(existing.getStatus());
+        response.setHeader(REPLAYED, "true");
+        if (existing.getContentType() != null) {
+            response.setContentType(existing.getContentType());
+        }
+        if (existing.getBody() != null) {
+            response.setContentLength(existing.getBody().length);
+            response.getOutputStream().write(existing.getBody());
+        }
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static boolean isJson(String contentType) {
+        try {
+            return contentType != null && MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(contentType));
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+    private static String sha256(byte[] body) {
+        try {
+            return String.format("%064x", new BigInteger(1, MessageDigest.getInstance("SHA-256").digest(body)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String username() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("avito.idempotency.requests")
+                .description("Requests carrying an Idempotency-Key")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * CachedBodyRequest - это запрос, тело которого уже прочитано фильтром и отдается дальше из памяти.
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        private CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() throws UnsupportedEncodingException {
+            String encoding = getCharacterEncoding() != null ? getCharacterEncoding() : StandardCharsets.UTF_8.name();
+            return new BufferedReader(new InputStreamReader(getInputStream(), encoding));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+package ru.skypro.avito.configuration.filters;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.skypro.avito.configuration.filters.RateLimits.EndpointClass;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * RateLimitFilter - это фильтр, ограничивающий частоту запросов чтения и изменения одного клиента корзинами токенов (RateLimits).
+ * Клиент - это аутентифицированный пользователь, а для анонимных запросов - IP-адрес.
+ * Вход, регистрация и проверка учетных данных ограничиваются раньше, до Spring Security, фильтром AuthRateLimitFilter.
+ * При превышении лимита возвращается 429 Too Many Requests с заголовком Retry-After.
+ * Фильтр стоит сразу после Spring Security и до кэша ответов, поэтому попадания в кэш тоже расходуют лимит.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "avito.rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER + 1)
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimits rateLimits;
+
+    public RateLimitFilter(RateLimits rateLimits) {
+        this.rateLimits = rateLimits;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+        EndpointClass endpointClass = classify(request);
+        if (endpointClass == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String client = client(request);
+        long wait = rateLimits.tryAcquire(endpointClass, client);
+        if (wait == 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        log.debug("Rate limit exceeded for {} on {} {}", client, request.getMethod(), request.getRequestURI());
+        RateLimits.reject(response, wait);
+    }
+
+    /**
+     * Определяет класс запроса; предварительные CORS-запросы (OPTIONS), вход и регистрация здесь не ограничиваются.
+     */
+    private static EndpointClass classify(HttpServletRequest request) {
+        String method = request.getMethod();
+        if ("OPTIONS".equals(method) || AuthRateLimitFilter.isLoginOrRegister(request)) {
+            return null;
+        }
+        if ("GET".equals(method) || "HEAD".equals(method)) {
+            return EndpointClass.READ;
+        }
+        return EndpointClass.WRITE;
+    }
+
+    /**
+     * Фильтр выполняется после Spring Security, поэтому пользователь здесь уже проверен и подменить его нельзя.
+     * Адрес берется из getRemoteAddr(): заголовки прокси учитываются, только если их разбор включен в настройках сервера.
+     */
+    private static String client(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "user:" + authentication.getName();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+}
@@ -0,0 +1,153 @@
+package ru.skypro.avito.configuration.filters;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import ru.skypro.avito.util.TokenBucket;
+
+import javax.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RateLimits - это корзины токенов (TokenBucket) клиентов и настройки лимитов по классам запросов,
+ * общие для фильтров RateLimitFilter и AuthRateLimitFilter.
+ * Для каждого класса запросов (вход и регистрация, чтение, изменение) у клиента своя корзина со своими настройками,
+ * поэтому перебор паролей не расходует лимит чтения и наоборот.
+ * Корзины хранятся в ограниченном по размеру кэше; корзина, к которой не обращались дольше времени полного пополнения,
+ * удаляется - она все равно была бы полной. Получение токена не берет блокировок.
+ */
+@Component
+@ConditionalOnProperty(name = "avito.rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+public class RateLimits {
+
+    /**
+     * EndpointClass - это класс запросов, для которого настраивается отдельный лимит.
+     */
+    enum EndpointClass {
+        AUTH,
+        READ,
+        WRITE
+    }
+
+    private final Map<EndpointClass, Limit> limits = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, Counter> allowed = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, Counter> rejected = new EnumMap<>(EndpointClass.class);
+    private final Cache<String, TokenBucket> buckets;
+
+    public RateLimits(@Value("${avito.rate-limit.auth.capacity:10}") long authCapacity,
+                      @Value("${avito.rate-limit.auth.rate:0.5}") double authRate,
+                      @Value("${avito.rate-limit.read.capacity:200}") long readCapacity,
+                      @Value("${avito.rate-limit.read.rate:50}") double readRate,
+                      @Value("${avito.rate-limit.write.capacity:30}") long writeCapacity,
+                      @Value("${avito.rate-limit.write.rate:5}") double writeRate,
+                      @Value("${avito.rate-limit.max-buckets:100000}") long maxBuckets,
+                      MeterRegistry meterRegistry) {
+        limits.put(EndpointClass.AUTH, new Limit(authCapacity, authRate));
+        limits.put(EndpointClass.READ, new Limit(readCapacity, readRate));
+        limits.put(EndpointClass.WRITE, new Limit(writeCapacity, writeRate));
+
+        Duration idle = limits.values().stream()
+                .map(Limit::refillTime)
+                .max(Duration::compareTo)
+                .orElseThrow();
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxBuckets)
+                .expireAfterAccess(idle)
+                .executor(Runnable::run)
+                .build();
+
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            String tag = endpointClass.name().toLowerCase(Locale.ROOT);
+            allowed.put(endpointClass, Counter.builder("avito.rate-limit.requests")
+                    .description("Requests checked by the rate limiter")
+                    .tag("class", tag)
+                    .tag("outcome", "allowed")
+                    .register(meterRegistry));
+            rejected.put(endpointClass, Counter.builder("avito.rate-limit.requests")
+                    .description("Requests checked by the rate limiter")
+                    .tag("class", tag)
+                    .tag("outcome", "rejected")
+                    .register(meterRegistry));
+        }
+        Gauge.builder("avito.rate-limit.buckets", buckets, Cache::estimatedSize)
+                .description("Token buckets currently tracked")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Метод tryAcquire() берет токен из корзины клиента client для класса запросов endpointClass
+     * и учитывает результат в метриках.
+     * @param endpointClass
+     * @param client
+     * @return 0, если токен получен, иначе время в наносекундах, через которое токен появится
+     */
+    long tryAcquire(EndpointClass endpointClass, String client) {
+        long now = System.nanoTime();
+        long wait = bucket(endpointClass, client, now).tryAcquire(now);
+        (wait == 0 ? allowed : rejected).get(endpointClass).increment();
+        return wait;
+    }
+
+    /**
+     * Метод refund() возвращает в корзину клиента client токен, взятый методом tryAcquire(),
+     * если запрос не должен был расходовать лимит.
+     * @param endpointClass
+     * @param client
+     */
+    void refund(EndpointClass endpointClass, String client) {
+        TokenBucket bucket = buckets.getIfPresent(endpointClass + ":" + client);
+        if (bucket != null) {
+            bucket.refund(System.nanoTime());
+        }
+    }
+
+    /**
+     * Метод reject() отвечает 429 Too Many Requests с заголовком Retry-After, округленным вверх до секунды.
+     * @param response
+     * @param wait
+     */
+    static void reject(HttpServletResponse response, long wait) {
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait - 1) + 1)));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+    }
+
+    private TokenBucket bucket(EndpointClass endpointClass, String client, long now) {
+        Limit limit = limits.get(endpointClass);
+        return buckets.get(endpointClass + ":" + client, key -> limit.newBucket(now));
+    }
+
+    /**
+     * Limit - это настройки корзины одного класса запросов: емкость и скорость пополнения в токенах в секунду.
+     */
+    private static final class Limit {
+
+        private final long capacity;
+        private final double rate;
+
+        private Limit(long capacity, double rate) {
+            this.capacity = capacity;
+            this.rate = rate;
+        }
+
+        private TokenBucket newBucket(long nowNanos) {
+            return new TokenBucket(capacity, rate, nowNanos);
+        }
+
+        private Duration refillTime() {
+            return Duration.ofMillis((long) Math.ceil(capacity * 1000 / rate));
+        }
+
+    }
+
+}
@@ -0,0 +1,169 @@
+package ru.skypro.avito.configuration.filters;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.skypro.avito.upload.UploadSessionStore;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UploadAdmissionFilter - это фильтр, ограничивающий суммарный объем одновременно принимаемых загрузок файлов.
+ * Загрузки (multipart-запросы) буферизуются в памяти целиком, поэтому несколько больших файлов одновременно
+ * могут заполнить кучу. Фильтр учитывает размер каждой загрузки по Content-Length в семафоре с бюджетом max-in-flight
+ * (в килобайтах) и пропускает запрос дальше, только получив разрешения на весь его размер.
+ * Если бюджет занят, запрос ждет не дольше max-wait, а затем получает 503 Service Unavailable с заголовком Retry-After.
+ * Разбор multipart выполняется уже в DispatcherServlet, поэтому отклоненный запрос не занимает память.
+ * Части загрузки по частям (application/octet-stream) учитываются так же, по Content-Length. Запрос завершения загрузки
+ * (с параметром upload) учитывается по размеру файла сессии: сервис изображений читает файл в память целиком.
+ * Параметр upload ищется только в строке запроса и только у запросов, которые не являются загрузками:
+ * getParameter() заставил бы Tomcat разобрать тело multipart до проверки бюджета.
+ */
+@Slf4j
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER + 3)
+public class UploadAdmissionFilter extends OncePerRequestFilter {
+
+    private static final long UNIT = DataSize.ofKilobytes(1).toBytes();
+    private static final String UPLOAD = "upload";
+
+    private final Semaphore budget;
+    private final int budgetPermits;
+    private final int unknownLengthPermits;
+    private final long maxWaitNanos;
+    private final long retryAfterSeconds;
+    private final Timer waitTimer;
+    private final Counter rejected;
+    private final UploadSessionStore uploadSessionStore;
+
+    public UploadAdmissionFilter(@Value("${avito.upload.max-in-flight:64MB}") DataSize maxInFlight,
+                                 @Value("${avito.upload.max-wait:2s}") Duration maxWait,
+                                 @Value("${spring.servlet.multipart.max-request-size:10MB}") DataSize maxRequestSize,
+                                 UploadSessionStore uploadSessionStore,
+                                 MeterRegistry meterRegistry) {
+        this.uploadSessionStore = uploadSessionStore;
+        this.budgetPermits = permits(maxInFlight.toBytes(), Integer.MAX_VALUE);
+        // Семафор справедливый: иначе поток мелких загрузок мог бы бесконечно обгонять ожидающую крупную.
+        this.budget = new Semaphore(budgetPermits, true);
+        this.unknownLengthPermits = permits(maxRequestSize.toBytes(), budgetPermits);
+        this.maxWaitNanos = maxWait.toNanos();
+        this.retryAfterSeconds = Math.max(1, maxWait.toSeconds());
+        this.waitTimer = Timer.builder("avito.upload.admission.wait")
+                .description("Time uploads waited for the in-flight byte budget")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("avito.upload.admission.rejected")
+                .description("Uploads rejected because the in-flight byte budget was exhausted")
+                .register(meterRegistry);
+        Gauge.builder("avito.upload.in-flight.bytes", budget, b -> (double) (budgetPermits - b.availablePermits()) * UNIT)
+                .description("Upload bytes currently admitted")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !isUpload(request) && uploadId(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+        String uploadId = isUpload(request) ? null : uploadId(request);
+        long contentLength;
+        int permits;
+        if (uploadId != null) {
+            // Размер завершаемой загрузки известен по сессии; несуществующую сессию отклонит контроллер.
+            contentLength = uploadSessionStore.size(uploadId);
+            if (contentLength < 0) {
+                filterChain.doFilter(request, response);
+                return;
+            }
+            permits = permits(contentLength, budgetPermits);
+        } else {
+            // Без Content-Length (chunked) размер заранее неизвестен, поэтому резервируется максимально допустимый размер запроса.
+            contentLength = request.getContentLengthLong();
+            permits = contentLength < 0 ? unknownLengthPermits : permits(contentLength, budgetPermits);
+        }
+
+        long start = System.nanoTime();
+        boolean admitted;
+        try {
+            admitted = budget.tryAcquire(permits, maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        if (!admitted) {
+            rejected.increment();
+            log.debug("Upload of {} bytes rejected, in-flight budget exhausted", contentLength);
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            budget.release(permits);
+        }
+    }
+
+    private static boolean isUpload(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.toLowerCase(Locale.ROOT);
+        return type.startsWith("multipart/") || type.startsWith(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+    }
+
+    /**
+     * Возвращает значение параметра upload из строки запроса, не обращаясь к телу запроса, или null, если параметра нет.
+     */
+    private static String uploadId(HttpServletRequest request) {
+        String query = request.getQueryString();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            String name = separator < 0 ? pair : pair.substring(0, separator);
+            if (UPLOAD.equals(URLDecoder.decode(name, StandardCharsets.UTF_8))) {
+                return separator < 0 ? "" : URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Переводит байты в разрешения семафора (килобайты с округлением вверх), не больше max:
+     * запрос крупнее всего бюджета занимает его целиком, а не ждет недостижимого числа разрешений.
+     */
+    private static int permits(long bytes, int max) {
+        return (int) Math.min(max, Math.max(1, (bytes + UNIT - 1) / UNIT));
+    }
+
+}
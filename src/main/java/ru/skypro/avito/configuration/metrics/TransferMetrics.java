@@ -0,0 +1,50 @@
+package ru.skypro.avito.configuration.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * TransferMetrics - это счетчики объема принятых и отданных файлов изображений объявлений и аватаров
+ * в метрике avito.transfer.bytes с тегами direction (upload, download) и kind (image, avatar).
+ */
+@Component
+public class TransferMetrics {
+
+    public static final String IMAGE = "image";
+    public static final String AVATAR = "avatar";
+
+    private final MeterRegistry meterRegistry;
+
+    public TransferMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Метод uploaded() учитывает принятый файл.
+     * @param kind
+     * @param bytes
+     */
+    public void uploaded(String kind, long bytes) {
+        counter("upload", kind).increment(bytes);
+    }
+
+    /**
+     * Метод downloaded() учитывает отданный файл.
+     * @param kind
+     * @param bytes
+     */
+    public void downloaded(String kind, long bytes) {
+        counter("download", kind).increment(bytes);
+    }
+
+    private Counter counter(String direction, String kind) {
+        return Counter.builder("avito.transfer.bytes")
+                .description("Bytes of image and avatar files transferred")
+                .baseUnit("bytes")
+                .tag("direction", direction)
+                .tag("kind", kind)
+                .register(meterRegistry);
+    }
+
+}
@@ -6,19 +6,31 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import ru.skypro.avito.cache.FullAdsCache;
+import ru.skypro.avito.configuration.metrics.TransferMetrics;
 import ru.skypro.avito.dto.*;
+import ru.skypro.avito.exception.IncorrectArgumentException;
+import ru.skypro.avito.repository.projection.AdsField;
 import ru.skypro.avito.service.AdsService;
+import ru.skypro.avito.service.TrendingService;
 import ru.skypro.avito.service.impl.ImageServiceImpl;
+import ru.skypro.avito.upload.UploadSessionStore;
+import ru.skypro.avito.upload.UploadedFile;
+import ru.skypro.avito.util.SparseFields;
 
 import javax.validation.Valid;
 import java.io.IOException;
+import java.util.List;
 
 
 @CrossOrigin(value = "http://localhost:3000")
@@ -30,6 +42,9 @@ public class AdsController {
 
     private final AdsService adsService;
     private final ImageServiceImpl imageService;
+    private final TrendingService trendingService;
+    private final UploadSessionStore uploadSessionStore;
+    private final TransferMetrics transferMetrics;
 
     @Operation(
             summary = "Получить все объявления", tags = "Объявления",
@@ -37,12 +52,22 @@ public class AdsController {
                     @ApiResponse(
                             responseCode = "200", description = "OK",
                             content = {@Content(mediaType = "application/json",
-                                        schema = @Schema(implementation = ResponseWrapper.class))})
+                                        schema = @Schema(implementation = ResponseWrapper.class))}),
+                    @ApiResponse(responseCode = "304", description = "Not modified", content = @Content),
+                    @ApiResponse(responseCode = "400", description = "Bad request", content = @Content)
                 }
     )
     @GetMapping
-    public ResponseWrapper<AdsDto> getAllAds() {
-        return ResponseWrapper.of(adsService.getAllAds());
+    public MappingJacksonValue getAllAds(@RequestParam(value = "fields", required = false) String fields,
+                                         WebRequest request) {
+        if (request.checkNotModified(adsService.getListingTag())) {
+            return null;
+        }
+        if (fields == null) {
+            return new MappingJacksonValue(ResponseWrapper.of(adsService.getAllAds()));
+        }
+        List<AdsField> selected = SparseFields.parse(fields, AdsField.class, AdsField::forName);
+        return SparseFields.narrow(ResponseWrapper.of(adsService.getAllAds(selected)), AdsDto.FIELDS_FILTER, selected);
     }
 
     @Operation(
@@ -66,6 +91,31 @@ public class AdsController {
                 .body(adsService.addAds(imageFile, createAds, authentication));
     }
 
+    @Operation(
+            summary = "Добавить объявление с изображением, загруженным по частям", tags = "Объявления",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "201", description = "Created",
+                            content = {@Content(mediaType = "application/json",
+                                        schema = @Schema(implementation = AdsDto.class))}),
+                    @ApiResponse(responseCode = "401", description = "Unauthorised", content = @Content),
+                    @ApiResponse(responseCode = "404", description = "Not found", content = @Content),
+                    @ApiResponse(responseCode = "409", description = "Conflict", content = @Content)
+            }
+    )
+    @PostMapping(params = "upload", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<AdsDto> addAdsFromUpload(@RequestParam("upload") String uploadId,
+                                                   @Valid
+                                                   @RequestBody CreateAds createAds,
+                                                   Authentication authentication) throws IOException {
+        // Если объявление не сохранено, сессия загрузки остается, и завершение можно повторить.
+        try (UploadedFile imageFile = uploadSessionStore.complete(uploadId, authentication.getName())) {
+            AdsDto ads = adsService.addAds(imageFile, createAds, authentication);
+            imageFile.commit();
+            return ResponseEntity.status(HttpStatus.CREATED).body(ads);
+        }
+    }
+
     @Operation(
             summary = "Получить информацию об объявлении", tags = "Объявления",
             responses = {
@@ -73,12 +123,60 @@ public class AdsController {
                             responseCode = "200", description = "OK",
                             content = {@Content(mediaType = "application/json",
                                         schema = @Schema(implementation = FullAds.class))}),
+                    @ApiResponse(responseCode = "304", description = "Not modified", content = @Content),
                     @ApiResponse(responseCode = "404", description = "Not found", content = @Content)
             }
     )
     @GetMapping("/{id}")
-    public ResponseEntity<FullAds> getFullAd(@PathVariable("id") Integer id) {
-        return ResponseEntity.ok(adsService.getAdsById(id));
+    public ResponseEntity<FullAds> getFullAd(@PathVariable("id") Long id, WebRequest request) {
+        // Версии объявления и автора читаются из базы данных только для условного запроса:
+        // ответ 304 строится по ним и не считается просмотром. Без If-None-Match объявление и его ETag берутся из кэша.
+        boolean conditional = request.getHeader(HttpHeaders.IF_NONE_MATCH) != null;
+        if (conditional) {
+            String tag = adsService.getAdsTag(id);
+            if (tag != null && request.checkNotModified(tag)) {
+                return null;
+            }
+        }
+        FullAdsCache.Entry entry = adsService.getTaggedAdsById(id);
+        trendingService.recordView(id);
+        if (conditional) {
+            // ETag условного запроса уже выставлен методом checkNotModified().
+            return ResponseEntity.ok(entry.getFullAds());
+        }
+        return ResponseEntity.ok().eTag(entry.getTag()).body(entry.getFullAds());
+    }
+
+    @Operation(
+            summary = "Получить информацию о нескольких объявлениях", tags = "Объявления",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200", description = "OK",
+                            content = {@Content(mediaType = "application/json",
+                                        schema = @Schema(implementation = FullAdsBatch.class))}),
+                    @ApiResponse(responseCode = "400", description = "Bad request", content = @Content)
+            }
+    )
+    @GetMapping("/batch")
+    public FullAdsBatch getAdsBatch(@RequestParam("ids") List<Long> ids) {
+        return adsService.getAdsByIds(ids);
+    }
+
+    @Operation(
+            summary = "Получить популярные объявления", tags = "Объявления",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200", description = "OK",
+                            content = {@Content(mediaType = "application/json",
+                                        schema = @Schema(implementation = ResponseWrapper.class))})
+            }
+    )
+    @GetMapping("/trending")
+    public ResponseWrapper<AdsDto> getTrendingAds(@RequestParam(value = "limit", defaultValue = "20") Integer limit) {
+        if (limit < 0) {
+            throw new IncorrectArgumentException();
+        }
+        return ResponseWrapper.of(trendingService.getTrendingAds(limit));
     }
 
     @Operation(
@@ -93,7 +191,7 @@ public class AdsController {
     @PreAuthorize("@adsServiceImpl.getAdsById(#id).getEmail()" +
                     "== authentication.name or hasRole('ROLE_ADMIN')")
     @DeleteMapping("/{id}")
-    public ResponseEntity<?> removeAds(@PathVariable("id") Integer id) {
+    public ResponseEntity<?> removeAds(@PathVariable("id") Long id) {
         adsService.removeAdsById(id);
         return ResponseEntity.ok().build();
     }
@@ -107,15 +205,17 @@ public class AdsController {
                                         schema = @Schema(implementation = AdsDto.class))}),
             @ApiResponse(responseCode = "401", description = "Unauthorised", content = @Content), //где получить?
             @ApiResponse(responseCode = "403", description = "Forbidden", content = @Content),
-            @ApiResponse(responseCode = "404", description = "Not found", content = @Content)
+            @ApiResponse(responseCode = "404", description = "Not found", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Conflict", content = @Content)
         }
     )
     @PreAuthorize("@adsServiceImpl.getAdsById(#id).getEmail()" +
                     "== authentication.name or hasRole('ROLE_ADMIN')")
     @PatchMapping("/{id}")
-    public ResponseEntity<AdsDto> updateAds(@PathVariable("id") Integer id,
+    public ResponseEntity<AdsDto> updateAds(@PathVariable("id") Long id,
+                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
                                             @RequestBody CreateAds createAds) {
-        return ResponseEntity.ok(adsService.updateAds(id, createAds));
+        return ResponseEntity.ok(adsService.updateAds(id, createAds, ifMatch));
     }
 
     @Operation(
@@ -125,13 +225,34 @@ public class AdsController {
                             responseCode = "200", description = "OK",
                             content = {@Content(mediaType = "application/json",
                                     schema = @Schema(implementation = ResponseWrapper.class))}),
+                    @ApiResponse(responseCode = "304", description = "Not modified", content = @Content),
+                    @ApiResponse(responseCode = "400", description = "Bad request", content = @Content),
                     @ApiResponse(responseCode = "401", description = "Unauthorised", content = @Content), //где получить?
-                    @ApiResponse(responseCode = "403", description = "Forbidden", content = @Content)
+                    @ApiResponse(responseCode = "403", description = "Forbidden", content = @Content),
+                    @ApiResponse(responseCode = "410", description = "Gone", content = @Content)
             }
     )
     @GetMapping("/me")
-    public ResponseWrapper<AdsDto> getAdsMe(Authentication authentication) {
-        return ResponseWrapper.of(adsService.getAdsMe(authentication));
+    public MappingJacksonValue getAdsMe(@RequestParam(value = "fields", required = false) String fields,
+                                        @RequestParam(value = "since", required = false) String since,
+                                        Authentication authentication,
+                                        WebRequest request) {
+        // Ответ синхронизации содержит новую метку since, поэтому он не сверяется с ETag списка.
+        if (since != null) {
+            DeltaWrapper<AdsDto> delta = adsService.getAdsMeSince(authentication, since);
+            return fields == null ? new MappingJacksonValue(delta)
+                    : SparseFields.narrow(delta, AdsDto.FIELDS_FILTER,
+                    SparseFields.parse(fields, AdsField.class, AdsField::forName));
+        }
+        if (request.checkNotModified(adsService.getListingTag())) {
+            return null;
+        }
+        if (fields == null) {
+            return new MappingJacksonValue(ResponseWrapper.of(adsService.getAdsMe(authentication)));
+        }
+        List<AdsField> selected = SparseFields.parse(fields, AdsField.class, AdsField::forName);
+        return SparseFields.narrow(ResponseWrapper.of(adsService.getAdsMe(authentication, selected)),
+                AdsDto.FIELDS_FILTER, selected);
     }
 
     @Operation(
@@ -147,16 +268,72 @@ public class AdsController {
     @PreAuthorize("@adsServiceImpl.getAdsById(#id).getEmail()" +
                     "== authentication.name or hasRole('ROLE_ADMIN')")
     @PatchMapping(value = "/{id}/image", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<?> updateAdsImage(@PathVariable("id") Integer id,
+    public ResponseEntity<?> updateAdsImage(@PathVariable("id") Long id,
                                             @RequestPart("image") MultipartFile imageFile) throws IOException {
         adsService.updateAdsImage(id, imageFile);
         return ResponseEntity.ok().build();
     }
 
+    @Operation(
+            summary = "Обновить картинку объявления изображением, загруженным по частям", tags = "Объявления",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "OK", content = @Content),
+                    @ApiResponse(responseCode = "404", description = "Not found", content = @Content),
+                    @ApiResponse(responseCode = "409", description = "Conflict", content = @Content)
+            }
+    )
+    @PreAuthorize("@adsServiceImpl.getAdsById(#id).getEmail()" +
+                    "== authentication.name or hasRole('ROLE_ADMIN')")
+    @PatchMapping(value = "/{id}/image", params = "upload")
+    public ResponseEntity<?> updateAdsImageFromUpload(@PathVariable("id") Long id,
+                                                      @RequestParam("upload") String uploadId,
+                                                      Authentication authentication) throws IOException {
+        try (UploadedFile imageFile = uploadSessionStore.complete(uploadId, authentication.getName())) {
+            adsService.updateAdsImage(id, imageFile);
+            imageFile.commit();
+        }
+        return ResponseEntity.ok().build();
+    }
+
+    @Operation(
+            summary = "Добавить изображения в галерею объявления", tags = "Объявления",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "OK", content = @Content),
+                    @ApiResponse(responseCode = "400", description = "Bad request", content = @Content),
+                    @ApiResponse(responseCode = "404", description = "Not found", content = @Content)
+            }
+    )
+    @PreAuthorize("@adsServiceImpl.getAdsById(#id).getEmail()" +
+                    "== authentication.name or hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/{id}/images", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> addAdsImages(@PathVariable("id") Long id,
+                                          @RequestPart("images") List<MultipartFile> imageFiles) {
+        // Файлы проверяются и хешируются параллельно вне транзакции, а сохраняются одной транзакцией.
+        adsService.addAdsImages(id, imageService.prepareImages(imageFiles));
+        return ResponseEntity.ok().build();
+    }
+
+    @Operation(
+            summary = "Удалить изображение из галереи объявления", tags = "Объявления",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "OK", content = @Content),
+                    @ApiResponse(responseCode = "404", description = "Not found", content = @Content)
+            }
+    )
+    @PreAuthorize("@adsServiceImpl.getAdsById(#id).getEmail()" +
+                    "== authentication.name or hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/{id}/images/{imageId}")
+    public ResponseEntity<?> removeAdsImage(@PathVariable("id") Long id, @PathVariable("imageId") Long imageId) {
+        adsService.removeAdsImage(id, imageId);
+        return ResponseEntity.ok().build();
+    }
+
     @Operation(hidden = true)
     @GetMapping(value = "/image/{id}", produces = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public byte[] getImage(@PathVariable("id") Integer id) {
-        return imageService.getImageById(id).getData();
+    public byte[] getImage(@PathVariable("id") Long id) {
+        byte[] data = imageService.getImageById(id).getData();
+        transferMetrics.downloaded(TransferMetrics.IMAGE, data.length);
+        return data;
     }
 
 }
@@ -0,0 +1,54 @@
+package ru.skypro.avito.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import ru.skypro.avito.dto.ChangeDto;
+import ru.skypro.avito.dto.ResponseWrapper;
+import ru.skypro.avito.exception.IncorrectArgumentException;
+import ru.skypro.avito.outbox.OutboxStore;
+
+@CrossOrigin(value = "http://localhost:3000")
+@RestController
+@RequestMapping("/changes")
+@Tag(name = "Лента изменений")
+public class ChangesController {
+
+    private final OutboxStore outboxStore;
+    private final int maxLimit;
+
+    public ChangesController(OutboxStore outboxStore,
+                             @Value("${avito.outbox.feed.max-limit:1000}") int maxLimit) {
+        this.outboxStore = outboxStore;
+        this.maxLimit = maxLimit;
+    }
+
+    @Operation(
+            summary = "Получить изменения после позиции after", tags = "Лента изменений",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200", description = "OK",
+                            content = {@Content(mediaType = "application/json",
+                                        schema = @Schema(implementation = ResponseWrapper.class))}),
+                    @ApiResponse(responseCode = "400", description = "Bad request", content = @Content),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
+                    @ApiResponse(responseCode = "403", description = "Forbidden", content = @Content)
+            }
+    )
+    @PreAuthorize("hasAuthority('ADMIN')")
+    @GetMapping
+    public ResponseWrapper<ChangeDto> getChanges(@RequestParam(value = "after", defaultValue = "0") Long after,
+                                                 @RequestParam(value = "limit", defaultValue = "100") Integer limit) {
+        // Потребитель передает seq последней полученной записи; каждый опрос - один проход по индексу с этой позиции.
+        if (after < 0 || limit <= 0 || limit > maxLimit) {
+            throw new IncorrectArgumentException();
+        }
+        return ResponseWrapper.of(outboxStore.findAfter(after, limit));
+    }
+
+}
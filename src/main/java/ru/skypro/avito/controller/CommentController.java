@@ -6,13 +6,21 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.skypro.avito.dto.AdsCommentDto;
+import ru.skypro.avito.dto.DeltaWrapper;
 import ru.skypro.avito.dto.ResponseWrapper;
+import ru.skypro.avito.repository.projection.CommentField;
 import ru.skypro.avito.service.CommentService;
+import ru.skypro.avito.util.SparseFields;
+
+import java.util.List;
 
 @CrossOrigin(value = "http://localhost:3000")
 @RestController
@@ -25,8 +33,27 @@ public class CommentController {
 
     @Operation(summary = "Получить комментарии объявления", tags = "Комментарии")
     @GetMapping("/{id}/comments")
-    public ResponseWrapper<AdsCommentDto> getComments(@PathVariable("id") Integer id) {
-        return ResponseWrapper.of(commentService.getComments(id));
+    public MappingJacksonValue getComments(@PathVariable("id") Long id,
+                                           @RequestParam(value = "fields", required = false) String fields,
+                                           @RequestParam(value = "since", required = false) String since,
+                                           WebRequest request) {
+        // Ответ синхронизации содержит новую метку since, поэтому он не сверяется с ETag списка.
+        if (since != null) {
+            DeltaWrapper<AdsCommentDto> delta = commentService.getCommentsSince(id, since);
+            return fields == null ? new MappingJacksonValue(delta)
+                    : SparseFields.narrow(delta, AdsCommentDto.FIELDS_FILTER,
+                    SparseFields.parse(fields, CommentField.class, CommentField::forName));
+        }
+        String tag = commentService.getCommentsTag(id);
+        if (tag != null && request.checkNotModified(tag)) {
+            return null;
+        }
+        if (fields == null) {
+            return new MappingJacksonValue(ResponseWrapper.of(commentService.getComments(id)));
+        }
+        List<CommentField> selected = SparseFields.parse(fields, CommentField.class, CommentField::forName);
+        return SparseFields.narrow(ResponseWrapper.of(commentService.getComments(id, selected)),
+                AdsCommentDto.FIELDS_FILTER, selected);
     }
 
     @Operation(
@@ -41,7 +68,7 @@ public class CommentController {
             }
     )
     @PostMapping("/{id}/comments")
-    public ResponseEntity<AdsCommentDto> addAdsComment(@PathVariable("id") Integer id,
+    public ResponseEntity<AdsCommentDto> addAdsComment(@PathVariable("id") Long id,
                                                        @RequestBody AdsCommentDto adsCommentDto,
                                                        Authentication authentication) {
         return ResponseEntity.ok(commentService.addAdsComment(id, adsCommentDto, authentication));
@@ -59,8 +86,8 @@ public class CommentController {
     @PreAuthorize("@commentServiceImpl.getCommentById(#commentId).getAuthor().username" +
             "== authentication.name or hasRole('ROLE_ADMIN')")
     @DeleteMapping("/{adId}/comments/{commentId}")
-    public ResponseEntity<?> deleteAdsComment(@PathVariable("adId") Integer adId,
-                                              @PathVariable("commentId") Integer commentId) {
+    public ResponseEntity<?> deleteAdsComment(@PathVariable("adId") Long adId,
+                                              @PathVariable("commentId") Long commentId) {
         commentService.deleteAdsComment(adId, commentId);
         return ResponseEntity.ok().build();
     }
@@ -73,16 +100,18 @@ public class CommentController {
                                         schema = @Schema(implementation = AdsCommentDto.class))}),
                     @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
                     @ApiResponse(responseCode = "403", description = "Forbidden", content = @Content),
-                    @ApiResponse(responseCode = "404", description = "Not Found", content = @Content)
+                    @ApiResponse(responseCode = "404", description = "Not Found", content = @Content),
+                    @ApiResponse(responseCode = "409", description = "Conflict", content = @Content)
             }
     )
     @PreAuthorize("@commentServiceImpl.getCommentById(#commentId).getAuthor().username" +
             "== authentication.name or hasRole('ROLE_ADMIN')")
     @PatchMapping("/{adId}/comments/{commentId}")
-    public ResponseEntity<AdsCommentDto> updateComments(@PathVariable("adId") Integer adId,
-                                                        @PathVariable("commentId") Integer commentId,
+    public ResponseEntity<AdsCommentDto> updateComments(@PathVariable("adId") Long adId,
+                                                        @PathVariable("commentId") Long commentId,
+                                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
                                                         @RequestBody AdsCommentDto adsCommentDto) {
-        return ResponseEntity.ok(commentService.updateComments(adId, commentId, adsCommentDto));
+        return ResponseEntity.ok(commentService.updateComments(adId, commentId, adsCommentDto, ifMatch));
     }
 
 }
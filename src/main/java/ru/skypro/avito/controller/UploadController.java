@@ -0,0 +1,97 @@
+package ru.skypro.avito.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import ru.skypro.avito.dto.CreateUpload;
+import ru.skypro.avito.dto.UploadStatus;
+import ru.skypro.avito.upload.UploadSessionStore;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+
+@CrossOrigin(value = "http://localhost:3000")
+@RestController
+@RequestMapping("/uploads")
+@RequiredArgsConstructor
+@Tag(name = "Загрузка файлов")
+public class UploadController {
+
+    private final UploadSessionStore uploadSessionStore;
+
+    @Operation(
+            summary = "Начать загрузку изображения по частям", tags = "Загрузка файлов",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "201", description = "Created",
+                            content = {@Content(mediaType = "application/json",
+                                        schema = @Schema(implementation = UploadStatus.class))}),
+                    @ApiResponse(responseCode = "400", description = "Bad request", content = @Content),
+                    @ApiResponse(responseCode = "409", description = "Conflict", content = @Content)
+            }
+    )
+    @PostMapping
+    public ResponseEntity<UploadStatus> createUpload(@RequestBody CreateUpload createUpload,
+                                                     Authentication authentication) throws IOException {
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(uploadSessionStore.create(authentication.getName(),
+                        createUpload.getSize(), createUpload.getContentType()));
+    }
+
+    @Operation(
+            summary = "Загрузить часть изображения с позиции offset", tags = "Загрузка файлов",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200", description = "OK",
+                            content = {@Content(mediaType = "application/json",
+                                        schema = @Schema(implementation = UploadStatus.class))}),
+                    @ApiResponse(responseCode = "400", description = "Bad request", content = @Content),
+                    @ApiResponse(responseCode = "404", description = "Not found", content = @Content)
+            }
+    )
+    @PutMapping(value = "/{id}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public UploadStatus uploadChunk(@PathVariable("id") String id,
+                                    @RequestParam("offset") long offset,
+                                    HttpServletRequest request,
+                                    Authentication authentication) throws IOException {
+        return uploadSessionStore.write(id, authentication.getName(),
+                offset, request.getContentLengthLong(), request.getInputStream());
+    }
+
+    @Operation(
+            summary = "Получить состояние загрузки", tags = "Загрузка файлов",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200", description = "OK",
+                            content = {@Content(mediaType = "application/json",
+                                        schema = @Schema(implementation = UploadStatus.class))}),
+                    @ApiResponse(responseCode = "404", description = "Not found", content = @Content)
+            }
+    )
+    @GetMapping("/{id}")
+    public UploadStatus getUpload(@PathVariable("id") String id, Authentication authentication) {
+        return uploadSessionStore.status(id, authentication.getName());
+    }
+
+    @Operation(
+            summary = "Отменить загрузку", tags = "Загрузка файлов",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "OK", content = @Content),
+                    @ApiResponse(responseCode = "404", description = "Not found", content = @Content)
+            }
+    )
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> removeUpload(@PathVariable("id") String id, Authentication authentication) {
+        uploadSessionStore.discard(id, authentication.getName());
+        return ResponseEntity.ok().build();
+    }
+
+}
@@ -11,10 +11,13 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import ru.skypro.avito.configuration.metrics.TransferMetrics;
 import ru.skypro.avito.dto.NewPassword;
 import ru.skypro.avito.dto.UserDto;
 import ru.skypro.avito.service.impl.AvatarServiceImpl;
 import ru.skypro.avito.service.impl.UserServiceImpl;
+import ru.skypro.avito.upload.UploadSessionStore;
+import ru.skypro.avito.upload.UploadedFile;
 
 import java.io.IOException;
 
@@ -27,6 +30,8 @@ public class UserController {
 
     private final UserServiceImpl userService;
     private final AvatarServiceImpl avatarService;
+    private final UploadSessionStore uploadSessionStore;
+    private final TransferMetrics transferMetrics;
 
     @Operation(
             summary = "Обновление пароля", tags = "Пользователи",
@@ -97,10 +102,30 @@ public class UserController {
         return ResponseEntity.ok().build();
     }
 
+    @Operation(
+            summary = "Обновить аватар изображением, загруженным по частям", tags = "Пользователи",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "OK", content = @Content),
+                    @ApiResponse(responseCode = "404", description = "Not found", content = @Content),
+                    @ApiResponse(responseCode = "409", description = "Conflict", content = @Content)
+            }
+    )
+    @PatchMapping(value = "/me/image", params = "upload")
+    public ResponseEntity<?> updateUserAvatarFromUpload(@RequestParam("upload") String uploadId,
+                                                        Authentication authentication) throws IOException {
+        try (UploadedFile avatarFile = uploadSessionStore.complete(uploadId, authentication.getName())) {
+            userService.updateUserAvatar(avatarFile, authentication);
+            avatarFile.commit();
+        }
+        return ResponseEntity.ok().build();
+    }
+
     @Operation(hidden = true)
     @GetMapping(value = "/avatar/{id}", produces = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public byte[] getAvatar(@PathVariable("id") Integer id) {
-        return avatarService.getImageById(id).getData();
+    public byte[] getAvatar(@PathVariable("id") Long id) {
+        byte[] data = avatarService.getImageById(id).getData();
+        transferMetrics.downloaded(TransferMetrics.AVATAR, data.length);
+        return data;
     }
 
 }
@@ -1,13 +1,17 @@
 package ru.skypro.avito.dto;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 
 @Data
+@JsonFilter(AdsCommentDto.FIELDS_FILTER)
 public class AdsCommentDto {
 
+    public static final String FIELDS_FILTER = "commentFields";
+
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
-    private Integer author;
+    private Long author;
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     private String authorImage;
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
@@ -15,7 +19,7 @@ public class AdsCommentDto {
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     private String createdAt;
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
-    private Integer pk;
+    private Long pk;
     private String text;
 
 }
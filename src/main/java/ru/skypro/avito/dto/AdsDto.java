@@ -1,17 +1,21 @@
 package ru.skypro.avito.dto;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 
 @Data
+@JsonFilter(AdsDto.FIELDS_FILTER)
 public class AdsDto {
 
+    public static final String FIELDS_FILTER = "adsFields";
+
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
-    private Integer author;
+    private Long author;
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     private String image;
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
-    private Integer pk;
+    private Long pk;
     private int price;
     private String title;
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
@@ -0,0 +1,20 @@
+package ru.skypro.avito.dto;
+
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * ChangeDto - это запись ленты изменений: seq - позиция в ленте, type - тип события (AdCreated, CommentAdded, ...),
+ * key - идентификатор объявления или имя пользователя, data - поля события.
+ */
+@Data
+public class ChangeDto {
+
+    private Long seq;
+    private String type;
+    private String key;
+    private String createdAt;
+    private Map<String, Object> data;
+
+}
@@ -0,0 +1,11 @@
+package ru.skypro.avito.dto;
+
+import lombok.Data;
+
+@Data
+public class CreateUpload {
+
+    private Long size;
+    private String contentType;
+
+}
@@ -0,0 +1,26 @@
+package ru.skypro.avito.dto;
+
+import lombok.Data;
+
+import java.util.Collection;
+
+/**
+ * DeltaWrapper - это ответ синхронизации: changed - созданные или измененные после since элементы,
+ * deleted - идентификаторы удаленных после since элементов, since - метка, которую нужно передать в следующий запрос.
+ */
+@Data
+public class DeltaWrapper<T> {
+
+    private Collection<T> changed;
+    private Collection<Long> deleted;
+    private String since;
+
+    public static <T> DeltaWrapper<T> of(Collection<T> changed, Collection<Long> deleted, String since) {
+        DeltaWrapper<T> deltaWrapper = new DeltaWrapper<>();
+        deltaWrapper.changed = changed;
+        deltaWrapper.deleted = deleted;
+        deltaWrapper.since = since;
+        return deltaWrapper;
+    }
+
+}
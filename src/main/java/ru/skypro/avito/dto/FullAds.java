@@ -2,15 +2,18 @@ package ru.skypro.avito.dto;
 
 import lombok.Data;
 
+import java.util.List;
+
 @Data
 public class FullAds {
 
-    private Integer pk;
+    private Long pk;
     private String authorLastName;
     private String authorFirstName;
     private String description;
     private String email;
     private String image;
+    private List<String> images;
     private String phone;
     private int price;
     private String title;
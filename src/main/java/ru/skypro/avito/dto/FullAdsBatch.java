@@ -0,0 +1,22 @@
+package ru.skypro.avito.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class FullAdsBatch {
+
+    private int count;
+    private List<FullAds> results;
+    private List<Long> missing;
+
+    public static FullAdsBatch of(List<FullAds> results, List<Long> missing) {
+        FullAdsBatch batch = new FullAdsBatch();
+        batch.results = results;
+        batch.count = results.size();
+        batch.missing = missing;
+        return batch;
+    }
+
+}
@@ -0,0 +1,27 @@
+package ru.skypro.avito.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+public class UploadStatus {
+
+    private String id;
+    private long size;
+    private long received;
+    private List<Range> missing;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Range {
+
+        private long start;
+        private long end;
+
+    }
+
+}
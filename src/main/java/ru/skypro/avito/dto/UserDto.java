@@ -7,7 +7,7 @@ import lombok.Data;
 public class UserDto {
 
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
-    private Integer id;
+    private Long id;
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     private String username;
     private String firstName;
@@ -0,0 +1,19 @@
+package ru.skypro.avito.event;
+
+import lombok.Value;
+
+/**
+ * AdCreated - это событие: объявление создано.
+ */
+@Value
+public class AdCreated implements DomainEvent {
+
+    Long adsId;
+    Long authorId;
+
+    @Override
+    public Object getKey() {
+        return adsId;
+    }
+
+}
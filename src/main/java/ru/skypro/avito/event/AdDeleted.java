@@ -0,0 +1,18 @@
+package ru.skypro.avito.event;
+
+import lombok.Value;
+
+/**
+ * AdDeleted - это событие: объявление удалено.
+ */
+@Value
+public class AdDeleted implements DomainEvent {
+
+    Long adsId;
+
+    @Override
+    public Object getKey() {
+        return adsId;
+    }
+
+}
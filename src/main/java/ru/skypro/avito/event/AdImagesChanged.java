@@ -0,0 +1,18 @@
+package ru.skypro.avito.event;
+
+import lombok.Value;
+
+/**
+ * AdImagesChanged - это событие: изменены изображения объявления (обложка или галерея).
+ */
+@Value
+public class AdImagesChanged implements DomainEvent {
+
+    Long adsId;
+
+    @Override
+    public Object getKey() {
+        return adsId;
+    }
+
+}
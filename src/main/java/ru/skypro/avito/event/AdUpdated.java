@@ -0,0 +1,18 @@
+package ru.skypro.avito.event;
+
+import lombok.Value;
+
+/**
+ * AdUpdated - это событие: изменены детали объявления.
+ */
+@Value
+public class AdUpdated implements DomainEvent {
+
+    Long adsId;
+
+    @Override
+    public Object getKey() {
+        return adsId;
+    }
+
+}
@@ -0,0 +1,19 @@
+package ru.skypro.avito.event;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * AuditLogEventHandler - это обработчик, записывающий все зафиксированные изменения в журнал аудита
+ * (логгер ru.skypro.avito.event.AuditLogEventHandler).
+ */
+@Slf4j
+@Component
+public class AuditLogEventHandler implements DomainEventHandler {
+
+    @Override
+    public void handle(DomainEvent event) {
+        log.info("{}", event);
+    }
+
+}
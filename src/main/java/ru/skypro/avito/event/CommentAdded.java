@@ -0,0 +1,19 @@
+package ru.skypro.avito.event;
+
+import lombok.Value;
+
+/**
+ * CommentAdded - это событие: к объявлению добавлен комментарий.
+ */
+@Value
+public class CommentAdded implements DomainEvent {
+
+    Long adsId;
+    Long commentId;
+
+    @Override
+    public Object getKey() {
+        return adsId;
+    }
+
+}
@@ -0,0 +1,19 @@
+package ru.skypro.avito.event;
+
+import lombok.Value;
+
+/**
+ * CommentDeleted - это событие: комментарий удален.
+ */
+@Value
+public class CommentDeleted implements DomainEvent {
+
+    Long adsId;
+    Long commentId;
+
+    @Override
+    public Object getKey() {
+        return adsId;
+    }
+
+}
@@ -0,0 +1,19 @@
+package ru.skypro.avito.event;
+
+import lombok.Value;
+
+/**
+ * CommentUpdated - это событие: изменен текст комментария.
+ */
+@Value
+public class CommentUpdated implements DomainEvent {
+
+    Long adsId;
+    Long commentId;
+
+    @Override
+    public Object getKey() {
+        return adsId;
+    }
+
+}
@@ -0,0 +1,20 @@
+package ru.skypro.avito.event;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * DeadLetter - это событие, которое обработчик handler не смог обработать за все попытки
+ * или которое не поместилось в очередь конвейера (тогда handler равен null, а attempts - 0).
+ */
+@Value
+public class DeadLetter {
+
+    DomainEvent event;
+    String handler;
+    String error;
+    int attempts;
+    Instant failedAt;
+
+}
@@ -0,0 +1,19 @@
+package ru.skypro.avito.event;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * DomainEvent - это событие предметной области, публикуемое сервисами при изменении данных.
+ * События доставляются обработчикам (DomainEventHandler) только после фиксации транзакции и вне потока запроса.
+ * События с одним ключом обрабатываются строго в порядке публикации.
+ */
+public interface DomainEvent {
+
+    /**
+     * Метод getKey() возвращает ключ упорядочивания события: идентификатор объявления или имя пользователя.
+     * @return
+     */
+    @JsonIgnore
+    Object getKey();
+
+}
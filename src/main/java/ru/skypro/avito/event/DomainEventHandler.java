@@ -0,0 +1,12 @@
+package ru.skypro.avito.event;
+
+/**
+ * DomainEventHandler - это обработчик событий предметной области. Все бины-обработчики получают каждое событие
+ * в потоке конвейера DomainEventPipeline и сами отбирают нужные им типы событий.
+ * Обработчик должен быть идемпотентным: при ошибке событие передается ему повторно.
+ */
+public interface DomainEventHandler {
+
+    void handle(DomainEvent event) throws Exception;
+
+}
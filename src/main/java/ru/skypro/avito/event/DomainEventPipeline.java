@@ -0,0 +1,188 @@
+package ru.skypro.avito.event;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ClassUtils;
+import ru.skypro.avito.util.StripedExecutor;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DomainEventPipeline - это конвейер асинхронной обработки событий предметной области.
+ * Сервисы публикуют события через ApplicationEventPublisher внутри транзакции, а конвейер получает их только
+ * после ее фиксации (при откате события отбрасываются) и передает обработчикам в потоках StripedExecutor:
+ * события одного объявления или пользователя обрабатываются по порядку, разных - параллельно.
+ * Очереди ограничены. Событие, полученное после фиксации транзакции, ставится в очередь без ожидания:
+ * в этот момент соединение с базой данных еще занято транзакцией, и ожидание места держало бы его.
+ * Если очередь полосы заполнена, такое событие сразу отправляется в dead letter. Событие, опубликованное
+ * вне транзакции, ждет места не дольше max-wait (обратное давление), после чего тоже отправляется в dead letter. Ошибка обработчика повторяется до max-attempts раз
+ * с экспоненциальной задержкой; событие, так и не обработанное, также попадает в dead letter.
+ * Dead letter хранит последние dead-letter.capacity событий в памяти узла и пишет каждое в лог с уровнем error.
+ */
+@Slf4j
+@Component
+public class DomainEventPipeline {
+
+    private final List<DomainEventHandler> handlers;
+    private final StripedExecutor executor;
+    private final MeterRegistry meterRegistry;
+    private final long maxWaitNanos;
+    private final int maxAttempts;
+    private final long backoffMillis;
+    private final int deadLetterCapacity;
+    private final Duration shutdownTimeout;
+    private final Deque<DeadLetter> deadLetters = new ArrayDeque<>();
+    private final Counter rejected;
+    private final Counter failed;
+
+    public DomainEventPipeline(List<DomainEventHandler> handlers,
+                               MeterRegistry meterRegistry,
+                               @Value("${avito.events.stripes:4}") int stripes,
+                               @Value("${avito.events.queue-capacity:1000}") int queueCapacity,
+                               @Value("${avito.events.max-wait:1s}") Duration maxWait,
+                               @Value("${avito.events.retry.max-attempts:3}") int maxAttempts,
+                               @Value("${avito.events.retry.backoff:200ms}") Duration backoff,
+                               @Value("${avito.events.dead-letter.capacity:1000}") int deadLetterCapacity,
+                               @Value("${avito.events.shutdown-timeout:10s}") Duration shutdownTimeout) {
+        this.handlers = handlers;
+        this.executor = new StripedExecutor(stripes, queueCapacity, "domain-events-");
+        this.meterRegistry = meterRegistry;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMillis = backoff.toMillis();
+        this.deadLetterCapacity = deadLetterCapacity;
+        this.shutdownTimeout = shutdownTimeout;
+        this.rejected = Counter.builder("avito.events.dead-lettered")
+                .description("Domain events sent to the dead letter")
+                .tag("reason", "rejected")
+                .register(meterRegistry);
+        this.failed = Counter.builder("avito.events.dead-lettered")
+                .description("Domain events sent to the dead letter")
+                .tag("reason", "failed")
+                .register(meterRegistry);
+        Gauge.builder("avito.events.queued", executor, StripedExecutor::queued)
+                .description("Domain events waiting in the pipeline queues")
+                .register(meterRegistry);
+        Gauge.builder("avito.events.dead-letters", this, DomainEventPipeline::deadLetterCount)
+                .description("Domain events currently held in the dead letter")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Метод onEvent() принимает событие после фиксации транзакции (или сразу, если транзакции нет)
+     * и ставит его в очередь полосы его ключа. Внутри обратного вызова фиксации ресурсы транзакции еще не освобождены,
+     * поэтому там событие ставится в очередь без ожидания.
+     * @param event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEvent(DomainEvent event) {
+        meterRegistry.counter("avito.events.published", "type", event.getClass().getSimpleName()).increment();
+        long waitNanos = TransactionSynchronizationManager.isActualTransactionActive() ? 0 : maxWaitNanos;
+        boolean accepted;
+        try {
+            accepted = executor.submit(event.getKey(), () -> dispatch(event), waitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        }
+        if (!accepted) {
+            rejected.increment();
+            deadLetter(new DeadLetter(event, null, "Pipeline queue is full", 0, Instant.now()));
+        }
+    }
+
+    /**
+     * Метод getDeadLetters() возвращает события, хранящиеся в dead letter, от старых к новым.
+     * @return
+     */
+    public List<DeadLetter> getDeadLetters() {
+        synchronized (deadLetters) {
+            return new ArrayList<>(deadLetters);
+        }
+    }
+
+    private int deadLetterCount() {
+        synchronized (deadLetters) {
+            return deadLetters.size();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        if (!executor.shutdown(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            log.warn("Domain event pipeline stopped with {} events still queued", executor.queued());
+        }
+    }
+
+    private void dispatch(DomainEvent event) {
+        for (DomainEventHandler handler : handlers) {
+            handle(handler, event);
+        }
+    }
+
+    /**
+     * Обработчики вызываются по отдельности: повтор после ошибки одного обработчика не вызывает повторно остальные.
+     * Задержка между попытками занимает поток полосы, поэтому следующие события того же ключа не обгоняют повторяемое.
+     */
+    private void handle(DomainEventHandler handler, DomainEvent event) {
+        String name = ClassUtils.getUserClass(handler).getSimpleName();
+        for (int attempt = 1; ; attempt++) {
+            long start = System.nanoTime();
+            try {
+                handler.handle(event);
+                record(name, "success", start);
+                return;
+            } catch (Exception e) {
+                record(name, "failure", start);
+                if (attempt >= maxAttempts) {
+                    failed.increment();
+                    deadLetter(new DeadLetter(event, name, String.valueOf(e), attempt, Instant.now()));
+                    return;
+                }
+                log.debug("Handler {} failed on {}, attempt {} of {}", name, event, attempt, maxAttempts, e);
+                try {
+                    Thread.sleep(backoffMillis << (attempt - 1));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    failed.increment();
+                    deadLetter(new DeadLetter(event, name, String.valueOf(e), attempt, Instant.now()));
+                    return;
+                }
+            }
+        }
+    }
+
+    private void record(String handler, String outcome, long start) {
+        Timer.builder("avito.events.handle")
+                .description("Time domain event handlers spent on one attempt")
+                .tag("handler", handler)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private void deadLetter(DeadLetter deadLetter) {
+        log.error("Domain event dead-lettered: {}", deadLetter);
+        synchronized (deadLetters) {
+            if (deadLetters.size() >= deadLetterCapacity) {
+                deadLetters.pollFirst();
+            }
+            deadLetters.addLast(deadLetter);
+        }
+    }
+
+}
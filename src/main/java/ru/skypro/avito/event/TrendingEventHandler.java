@@ -0,0 +1,28 @@
+package ru.skypro.avito.event;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.skypro.avito.service.TrendingService;
+
+/**
+ * TrendingEventHandler - это обработчик, обновляющий рейтинг популярных объявлений по событиям создания
+ * и удаления объявлений и добавления комментариев. Рейтинг меняется только для зафиксированных изменений.
+ */
+@Component
+@RequiredArgsConstructor
+public class TrendingEventHandler implements DomainEventHandler {
+
+    private final TrendingService trendingService;
+
+    @Override
+    public void handle(DomainEvent event) {
+        if (event instanceof AdCreated) {
+            trendingService.recordCreated(((AdCreated) event).getAdsId());
+        } else if (event instanceof CommentAdded) {
+            trendingService.recordComment(((CommentAdded) event).getAdsId());
+        } else if (event instanceof AdDeleted) {
+            trendingService.remove(((AdDeleted) event).getAdsId());
+        }
+    }
+
+}
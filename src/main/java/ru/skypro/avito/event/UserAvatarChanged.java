@@ -0,0 +1,18 @@
+package ru.skypro.avito.event;
+
+import lombok.Value;
+
+/**
+ * UserAvatarChanged - это событие: изменен аватар пользователя.
+ */
+@Value
+public class UserAvatarChanged implements DomainEvent {
+
+    String username;
+
+    @Override
+    public Object getKey() {
+        return username;
+    }
+
+}
@@ -0,0 +1,18 @@
+package ru.skypro.avito.event;
+
+import lombok.Value;
+
+/**
+ * UserPasswordChanged - это событие: изменен пароль пользователя.
+ */
+@Value
+public class UserPasswordChanged implements DomainEvent {
+
+    String username;
+
+    @Override
+    public Object getKey() {
+        return username;
+    }
+
+}
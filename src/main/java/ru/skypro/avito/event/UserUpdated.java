@@ -0,0 +1,18 @@
+package ru.skypro.avito.event;
+
+import lombok.Value;
+
+/**
+ * UserUpdated - это событие: изменены данные пользователя.
+ */
+@Value
+public class UserUpdated implements DomainEvent {
+
+    String username;
+
+    @Override
+    public Object getKey() {
+        return username;
+    }
+
+}
@@ -1,6 +1,9 @@
 package ru.skypro.avito.exception;
 
 public class BadCredentialsException extends RuntimeException {
+    public BadCredentialsException() {
+    }
+
     public BadCredentialsException(String user_not_found) {
 
     }
@@ -0,0 +1,9 @@
+package ru.skypro.avito.exception;
+
+public class LoadTimeoutException extends RuntimeException {
+
+    public LoadTimeoutException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,4 @@
+package ru.skypro.avito.exception;
+
+public class UploadConflictException extends RuntimeException {
+}
@@ -2,10 +2,12 @@ package ru.skypro.avito.exception.handlers;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import ru.skypro.avito.exception.IncorrectArgumentException;
 import ru.skypro.avito.exception.IncorrectUsernameException;
 
+@ControllerAdvice
 public class BadRequestControllerAdvice {
 
     @ExceptionHandler(IncorrectUsernameException.class)
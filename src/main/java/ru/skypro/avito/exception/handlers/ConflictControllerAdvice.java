@@ -0,0 +1,25 @@
+package ru.skypro.avito.exception.handlers;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import ru.skypro.avito.exception.UploadConflictException;
+import ru.skypro.avito.exception.VersionConflictException;
+
+
+@ControllerAdvice
+public class ConflictControllerAdvice {
+
+    @ExceptionHandler({VersionConflictException.class, ObjectOptimisticLockingFailureException.class})
+    public ResponseEntity<?> versionConflict() {
+        return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+
+    @ExceptionHandler(UploadConflictException.class)
+    public ResponseEntity<?> uploadConflict() {
+        return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+
+}
@@ -0,0 +1,18 @@
+package ru.skypro.avito.exception.handlers;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import ru.skypro.avito.exception.SyncTokenExpiredException;
+
+
+@ControllerAdvice
+public class GoneControllerAdvice {
+
+    @ExceptionHandler(SyncTokenExpiredException.class)
+    public ResponseEntity<?> syncTokenExpired() {
+        return ResponseEntity.status(HttpStatus.GONE).build();
+    }
+
+}
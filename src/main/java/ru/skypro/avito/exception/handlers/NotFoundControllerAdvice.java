@@ -7,6 +7,7 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import ru.skypro.avito.exception.AdsNotFoundException;
 import ru.skypro.avito.exception.CommentNotFoundException;
 import ru.skypro.avito.exception.ImageNotFoundException;
+import ru.skypro.avito.exception.UploadNotFoundException;
 import ru.skypro.avito.exception.UsernameNotFoundException;
 
 
@@ -33,4 +34,9 @@ public class NotFoundControllerAdvice {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
     }
 
+    @ExceptionHandler(UploadNotFoundException.class)
+    public ResponseEntity<?> notFoundUpload() {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+    }
+
 }
@@ -0,0 +1,23 @@
+package ru.skypro.avito.exception.handlers;
+
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import ru.skypro.avito.exception.LoadTimeoutException;
+
+
+@ControllerAdvice
+public class ServiceUnavailableControllerAdvice {
+
+    @ExceptionHandler({LoadTimeoutException.class, QueryTimeoutException.class, TransactionTimedOutException.class})
+    public ResponseEntity<?> serviceUnavailable() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .build();
+    }
+
+}
@@ -0,0 +1,163 @@
+package ru.skypro.avito.idempotency;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * IdempotencyStore - это хранилище ответов на запросы с заголовком Idempotency-Key в таблице idempotency_key.
+ * Ключ строки - SHA-256 от имени пользователя и ключа идемпотентности: строка фиксированной длины,
+ * поиск выполняется по первичному ключу, а одинаковые ключи разных пользователей не пересекаются.
+ * Строка создается до выполнения запроса без ответа ("занята") и дополняется ответом после успешного выполнения.
+ * Записи хранятся ttl и удаляются пачками по batch-size строк, чтобы очистка не держала длинную транзакцию.
+ */
+@Slf4j
+@Component
+public class IdempotencyStore {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration ttl;
+    private final Duration lockTimeout;
+    private final int batchSize;
+
+    public IdempotencyStore(JdbcTemplate jdbcTemplate,
+                            @Value("${avito.idempotency.ttl:24h}") Duration ttl,
+                            @Value("${avito.idempotency.lock-timeout:60s}") Duration lockTimeout,
+                            @Value("${avito.idempotency.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttl = ttl;
+        this.lockTimeout = lockTimeout;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Метод id() строит ключ строки по имени пользователя и ключу идемпотентности.
+     * @param username
+     * @param key
+     * @return
+     */
+    public static String id(String username, String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(username.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(key.getBytes(StandardCharsets.UTF_8));
+            return String.format("%064x", new BigInteger(1, digest.digest()));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Метод find() предполагает поиск записи по ключу. Записи старше ttl и занятые дольше lock-timeout
+     * (узел, выполнявший запрос, мог упасть) считаются отсутствующими и удаляются.
+     * @param id
+     * @return
+     */
+    public Optional<StoredResponse> find(String id) {
+        List<StoredResponse> rows = jdbcTemplate.query(
+                "SELECT request, status, content_type, body, created_at FROM idempotency_key WHERE id = ?",
+                (rs, rowNum) -> new StoredResponse(rs.getString("request"),
+                        (Integer) rs.getObject("status"),
+                        rs.getString("content_type"),
+                        rs.getBytes("body"),
+                        rs.getTimestamp("created_at").toInstant()),
+                id);
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        StoredResponse stored = rows.get(0);
+        Instant now = Instant.now();
+        if (stored.getCreatedAt().isBefore(now.minus(ttl))
+                || (!stored.isCompleted() && stored.getCreatedAt().isBefore(now.minus(lockTimeout)))) {
+            jdbcTemplate.update("DELETE FROM idempotency_key WHERE id = ? AND created_at = ?",
+                    id, Timestamp.from(stored.getCreatedAt()));
+            return Optional.empty();
+        }
+        return Optional.of(stored);
+    }
+
+    /**
+     * Метод tryLock() предполагает создание занятой записи для запроса.
+     * @param id
+     * @param request метод, путь и хэш тела запроса; повтор с тем же ключом должен быть тем же запросом
+     * @return false, если запись с таким ключом уже есть (ее создал параллельный повтор)
+     */
+    public boolean tryLock(String id, String request) {
+        try {
+            jdbcTemplate.update("INSERT INTO idempotency_key (id, request, created_at) VALUES (?, ?, ?)",
+                    id, request, Timestamp.from(Instant.now()));
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Метод complete() сохраняет ответ в занятую запись.
+     * @param id
+     * @param status
+     * @param contentType
+     * @param body
+     */
+    public void complete(String id, int status, String contentType, byte[] body) {
+        jdbcTemplate.update("UPDATE idempotency_key SET status = ?, content_type = ?, body = ? WHERE id = ?",
+                status, contentType, body, id);
+    }
+
+    /**
+     * Метод release() удаляет запись, например если запрос завершился ошибкой и клиент может повторить его с тем же ключом.
+     * @param id
+     */
+    public void release(String id) {
+        jdbcTemplate.update("DELETE FROM idempotency_key WHERE id = ?", id);
+    }
+
+    /**
+     * Метод cleanUp() удаляет записи старше ttl пачками по batchSize строк.
+     */
+    @Scheduled(fixedDelayString = "${avito.idempotency.cleanup-interval:600000}")
+    public void cleanUp() {
+        Timestamp threshold = Timestamp.from(Instant.now().minus(ttl));
+        int total = 0;
+        int removed;
+        do {
+            removed = jdbcTemplate.update("DELETE FROM idempotency_key WHERE id IN " +
+                    "(SELECT id FROM idempotency_key WHERE created_at < ? LIMIT ?)", threshold, batchSize);
+            total += removed;
+        } while (removed == batchSize);
+        log.debug("Removed {} expired idempotency keys", total);
+    }
+
+    /**
+     * StoredResponse - это запись хранилища: запрос и, если он уже выполнен, его ответ.
+     */
+    @lombok.Value
+    public static class StoredResponse {
+
+        String request;
+        Integer status;
+        String contentType;
+        byte[] body;
+        Instant createdAt;
+
+        public boolean isCompleted() {
+            return status != null;
+        }
+
+    }
+
+}
@@ -7,6 +7,11 @@ import org.mapstruct.factory.Mappers;
 import ru.skypro.avito.dto.AdsCommentDto;
 import ru.skypro.avito.model.Avatar;
 import ru.skypro.avito.model.Comment;
+import ru.skypro.avito.repository.projection.CommentField;
+
+import javax.persistence.Tuple;
+import java.time.Instant;
+import java.util.List;
 
 
 @Mapper(componentModel = "spring")
@@ -36,4 +41,39 @@ public interface AdsCommentMapper {
         return USER_AVATAR + avatar.getId();
     }
 
+    /**
+     * Метод toDto() предполагает заполнение AdsCommentDto только запрошенными полями из строки выборки.
+     * Значения в строке идут в порядке списка полей; остальные поля DTO не заполняются.
+     * @param row
+     * @param fields
+     * @return
+     */
+    default AdsCommentDto toDto(Tuple row, List<CommentField> fields) {
+        AdsCommentDto dto = new AdsCommentDto();
+        for (int i = 0; i < fields.size(); i++) {
+            Object value = row.get(i);
+            switch (fields.get(i)) {
+                case PK:
+                    dto.setPk((Long) value);
+                    break;
+                case AUTHOR:
+                    dto.setAuthor((Long) value);
+                    break;
+                case AUTHOR_IMAGE:
+                    dto.setAuthorImage(value == null ? null : USER_AVATAR + value);
+                    break;
+                case AUTHOR_FIRST_NAME:
+                    dto.setAuthorFirstName((String) value);
+                    break;
+                case CREATED_AT:
+                    dto.setCreatedAt(value == null ? null : ((Instant) value).toString());
+                    break;
+                case TEXT:
+                    dto.setText((String) value);
+                    break;
+            }
+        }
+        return dto;
+    }
+
 }
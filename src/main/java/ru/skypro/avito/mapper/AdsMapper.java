@@ -9,6 +9,11 @@ import ru.skypro.avito.dto.CreateAds;
 import ru.skypro.avito.dto.FullAds;
 import ru.skypro.avito.model.Ads;
 import ru.skypro.avito.model.Image;
+import ru.skypro.avito.repository.projection.AdsField;
+import ru.skypro.avito.repository.projection.AdsSummary;
+
+import javax.persistence.Tuple;
+import java.util.List;
 
 
 @Mapper(componentModel = "spring")
@@ -27,11 +32,15 @@ public interface AdsMapper {
     @Mapping(target = "image", source = "image", qualifiedByName = "imageMapping")
     AdsDto toDto(Ads ads);
 
+    @Mapping(target = "image", source = "imageId", qualifiedByName = "imageIdMapping")
+    AdsDto toDto(AdsSummary summary);
+
     @Mapping(target = "authorFirstName", source = "author.firstName")
     @Mapping(target = "authorLastName", source = "author.lastName")
     @Mapping(target = "phone", source = "author.phone")
     @Mapping(target = "email", source = "author.username")
     @Mapping(target = "image", source = "image", qualifiedByName = "imageMapping")
+    @Mapping(target = "images", ignore = true)
     @Mapping(target = "pk", source = "id")
     FullAds toFullAds(Ads ads);
 
@@ -43,4 +52,49 @@ public interface AdsMapper {
         return ADS_IMAGE + image.getId();
     }
 
+    @Named("imageIdMapping")
+    default String imageIdMapping(Long imageId) {
+        if (imageId == null) {
+            return null;
+        }
+        return ADS_IMAGE + imageId;
+    }
+
+    /**
+     * Метод toDto() предполагает заполнение AdsDto только запрошенными полями из строки выборки.
+     * Значения в строке идут в порядке списка полей; остальные поля DTO не заполняются.
+     * @param row
+     * @param fields
+     * @return
+     */
+    default AdsDto toDto(Tuple row, List<AdsField> fields) {
+        AdsDto dto = new AdsDto();
+        for (int i = 0; i < fields.size(); i++) {
+            Object value = row.get(i);
+            switch (fields.get(i)) {
+                case PK:
+                    dto.setPk((Long) value);
+                    break;
+                case AUTHOR:
+                    dto.setAuthor((Long) value);
+                    break;
+                case IMAGE:
+                    dto.setImage(imageIdMapping((Long) value));
+                    break;
+                case PRICE:
+                    if (value != null) {
+                        dto.setPrice((Integer) value);
+                    }
+                    break;
+                case TITLE:
+                    dto.setTitle((String) value);
+                    break;
+                case DESCRIPTION:
+                    dto.setDescription((String) value);
+                    break;
+            }
+        }
+        return dto;
+    }
+
 }
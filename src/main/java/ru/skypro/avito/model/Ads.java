@@ -7,6 +7,7 @@ import lombok.NoArgsConstructor;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
+import java.time.Instant;
 import java.util.List;
 
 @Entity
@@ -17,8 +18,9 @@ import java.util.List;
 public class Ads {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Integer id;
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ads_seq")
+    @SequenceGenerator(name = "ads_seq", sequenceName = "ads_seq", allocationSize = 50)
+    private Long id;
     @NotNull
     private String title;
     private String description;
@@ -26,8 +28,14 @@ public class Ads {
     private Integer price;
     @ManyToOne(fetch = FetchType.LAZY)
     private User author;
-    @OneToOne(cascade = CascadeType.ALL)
+    @OneToOne(cascade = {CascadeType.PERSIST, CascadeType.MERGE}, fetch = FetchType.LAZY)
     private Image image;
+    @Version
+    private Long version;
+    @Column(insertable = false, updatable = false)
+    private Long commentsVersion;
+    @Column(insertable = false, updatable = false)
+    private Instant updatedAt;
     @JsonIgnore
     @OneToMany(mappedBy = "ads", cascade = CascadeType.ALL)
     private List<Comment> comments;
@@ -0,0 +1,26 @@
+package ru.skypro.avito.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "ad_image")
+public class AdsImage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ad_image_seq")
+    @SequenceGenerator(name = "ad_image_seq", sequenceName = "ad_image_seq", allocationSize = 50)
+    private Long id;
+    @ManyToOne(fetch = FetchType.LAZY)
+    private Ads ads;
+    @ManyToOne(fetch = FetchType.LAZY)
+    private Image image;
+    private Integer position;
+
+}
@@ -0,0 +1,22 @@
+package ru.skypro.avito.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "ads_tombstone")
+public class AdsTombstone {
+
+    @Id
+    private Long adsId;
+    private Long authorId;
+    private Instant deletedAt;
+
+}
@@ -17,8 +17,9 @@ import java.time.Instant;
 public class Comment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Integer id;
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "comment_seq")
+    @SequenceGenerator(name = "comment_seq", sequenceName = "comment_seq", allocationSize = 50)
+    private Long id;
     @NotNull
     private Instant createdAt;
     @NotNull
@@ -27,5 +28,7 @@ public class Comment {
     private Ads ads;
     @ManyToOne(fetch = FetchType.LAZY)
     private User author;
+    @Column(insertable = false, updatable = false)
+    private Instant updatedAt;
 
 }
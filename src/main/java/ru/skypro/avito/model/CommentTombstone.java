@@ -0,0 +1,22 @@
+package ru.skypro.avito.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "comment_tombstone")
+public class CommentTombstone {
+
+    @Id
+    private Long commentId;
+    private Long adsId;
+    private Instant deletedAt;
+
+}
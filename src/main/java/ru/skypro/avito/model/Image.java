@@ -15,10 +15,12 @@ import javax.persistence.*;
 public class Image {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Integer id;
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "image_seq")
+    @SequenceGenerator(name = "image_seq", sequenceName = "image_seq", allocationSize = 50)
+    private Long id;
     private String mediaType;
     private Long fileSize;
+    private String hash;
     @Lob
     @Type(type="org.hibernate.type.BinaryType")
     private byte[] data;
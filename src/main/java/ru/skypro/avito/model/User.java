@@ -17,8 +17,9 @@ import java.util.List;
 public class User {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Integer id;
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
+    private Long id;
     @NotNull
     private String username;
     @NotNull
@@ -32,11 +33,13 @@ public class User {
     private Boolean enabled;
     @Enumerated(EnumType.STRING)
     private Role role;
+    @Version
+    private Long version;
     @OneToMany(mappedBy = "author", cascade = CascadeType.ALL)
     private List<Ads> ads;
     @OneToMany(mappedBy = "author", cascade = CascadeType.ALL)
     private List<Comment> comments;
-    @OneToOne(cascade = CascadeType.ALL)
+    @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private Avatar avatar;
 
 }
\ No newline at end of file
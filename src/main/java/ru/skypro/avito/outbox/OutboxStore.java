@@ -0,0 +1,159 @@
+package ru.skypro.avito.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.skypro.avito.dto.ChangeDto;
+import ru.skypro.avito.event.DomainEvent;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * OutboxStore - это транзакционный outbox и лента изменений для внешних потребителей (поиск, хранилище данных, рассылки).
+ * Каждое событие предметной области записывается в таблицу outbox синхронно, в той же транзакции, что и изменение данных,
+ * поэтому запись появляется тогда и только тогда, когда зафиксировано само изменение.
+ * Позицию в ленте (seq) строкам присваивает relay() уже после фиксации: пачками, по порядку id, под блокировкой
+ * строки outbox_relay, поэтому на нескольких узлах seq выдается одним потоком без пропусков и повторов.
+ * Благодаря этому лента только дописывается в конец, и потребитель, читающий ее с последнего полученного seq,
+ * не пропустит строку из транзакции, зафиксированной позже соседних. Опубликованные строки хранятся retention.
+ */
+@Slf4j
+@Component
+public class OutboxStore {
+
+    private static final TypeReference<Map<String, Object>> DATA_TYPE = new TypeReference<>() {
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final Duration retention;
+    private final Counter published;
+
+    public OutboxStore(JdbcTemplate jdbcTemplate,
+                       TransactionTemplate transactionTemplate,
+                       ObjectMapper objectMapper,
+                       MeterRegistry meterRegistry,
+                       @Value("${avito.outbox.batch-size:500}") int batchSize,
+                       @Value("${avito.outbox.retention:7d}") Duration retention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.retention = retention;
+        this.published = Counter.builder("avito.outbox.published")
+                .description("Outbox rows published to the change feed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Метод onEvent() записывает событие в outbox в рамках текущей транзакции.
+     * @param event
+     * @throws JsonProcessingException
+     */
+    @EventListener
+    public void onEvent(DomainEvent event) throws JsonProcessingException {
+        jdbcTemplate.update("INSERT INTO outbox (type, event_key, payload, created_at) VALUES (?, ?, ?, ?)",
+                event.getClass().getSimpleName(),
+                String.valueOf(event.getKey()),
+                objectMapper.writeValueAsString(event),
+                Timestamp.from(Instant.now()));
+    }
+
+    /**
+     * Метод relay() публикует в ленту зафиксированные строки outbox пачками по batch-size строк.
+     */
+    @Scheduled(fixedDelayString = "${avito.outbox.relay-interval:1000}")
+    public void relay() {
+        int total = 0;
+        int relayed;
+        do {
+            Integer batch = transactionTemplate.execute(status -> relayBatch());
+            relayed = batch == null ? 0 : batch;
+            total += relayed;
+        } while (relayed == batchSize);
+        if (total > 0) {
+            published.increment(total);
+            log.debug("Published {} outbox rows", total);
+        }
+    }
+
+    /**
+     * Метод findAfter() возвращает не более limit записей ленты с позицией больше after.
+     * @param after
+     * @param limit
+     * @return
+     */
+    public List<ChangeDto> findAfter(long after, int limit) {
+        return jdbcTemplate.query(
+                "SELECT seq, type, event_key, payload, created_at FROM outbox WHERE seq > ? ORDER BY seq LIMIT ?",
+                (rs, rowNum) -> {
+                    ChangeDto change = new ChangeDto();
+                    change.setSeq(rs.getLong("seq"));
+                    change.setType(rs.getString("type"));
+                    change.setKey(rs.getString("event_key"));
+                    change.setCreatedAt(rs.getTimestamp("created_at").toInstant().toString());
+                    change.setData(readData(rs.getString("payload")));
+                    return change;
+                },
+                after, limit);
+    }
+
+    /**
+     * Метод cleanUp() удаляет опубликованные строки старше retention пачками по batch-size строк.
+     */
+    @Scheduled(fixedDelayString = "${avito.outbox.cleanup-interval:600000}")
+    public void cleanUp() {
+        Timestamp threshold = Timestamp.from(Instant.now().minus(retention));
+        int total = 0;
+        int removed;
+        do {
+            removed = jdbcTemplate.update("DELETE FROM outbox WHERE id IN " +
+                    "(SELECT id FROM outbox WHERE published_at < ? LIMIT ?)", threshold, batchSize);
+            total += removed;
+        } while (removed == batchSize);
+        log.debug("Removed {} published outbox rows", total);
+    }
+
+    private int relayBatch() {
+        // Блокировка строки outbox_relay делает выдачу seq последовательной для всех узлов.
+        long lastSeq = jdbcTemplate.queryForObject("SELECT last_seq FROM outbox_relay WHERE id = 1 FOR UPDATE", Long.class);
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT id FROM outbox WHERE seq IS NULL ORDER BY id LIMIT ?", Long.class, batchSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> updates = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            updates.add(new Object[]{++lastSeq, now, id});
+        }
+        jdbcTemplate.batchUpdate("UPDATE outbox SET seq = ?, published_at = ? WHERE id = ?", updates);
+        jdbcTemplate.update("UPDATE outbox_relay SET last_seq = ? WHERE id = 1", lastSeq);
+        return ids.size();
+    }
+
+    private Map<String, Object> readData(String payload) {
+        try {
+            return objectMapper.readValue(payload, DATA_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Malformed outbox payload", e);
+        }
+    }
+
+}
@@ -0,0 +1,36 @@
+package ru.skypro.avito.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.skypro.avito.model.AdsImage;
+import ru.skypro.avito.repository.projection.AdsImageRef;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AdsImageRepository extends JpaRepository<AdsImage, Long> {
+
+    @Query("select ai.ads.id as adsId, ai.image.id as imageId from AdsImage ai " +
+            "where ai.ads.id in :adsIds order by ai.position")
+    List<AdsImageRef> findRefsByAdsIdIn(@Param("adsIds") Collection<Long> adsIds);
+
+    @Query("select i.hash from AdsImage ai join ai.image i where ai.ads.id = :adsId")
+    List<String> findHashesByAdsId(@Param("adsId") Long adsId);
+
+    @Query("select coalesce(max(ai.position), 0) from AdsImage ai where ai.ads.id = :adsId")
+    int findMaxPositionByAdsId(@Param("adsId") Long adsId);
+
+    Optional<AdsImage> findByAdsIdAndImageId(Long adsId, Long imageId);
+
+    Optional<AdsImage> findFirstByAdsIdOrderByPosition(Long adsId);
+
+    @Modifying
+    @Query("delete from AdsImage ai where ai.ads.id = :adsId")
+    void deleteAllByAdsId(@Param("adsId") Long adsId);
+
+}
@@ -1,16 +1,94 @@
 package ru.skypro.avito.repository;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.skypro.avito.model.Ads;
+import ru.skypro.avito.repository.projection.AdsField;
+import ru.skypro.avito.repository.projection.AdsSummary;
+import ru.skypro.avito.repository.projection.AdsListingState;
+import ru.skypro.avito.repository.projection.AdsVersion;
+import ru.skypro.avito.repository.projection.CommentsVersion;
 
+import javax.persistence.LockModeType;
+import javax.persistence.Tuple;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 
 @Repository
-public interface AdsRepository extends JpaRepository<Ads, Integer> {
+public interface AdsRepository extends JpaRepository<Ads, Long>, SparseFieldRepository {
 
-    List<Ads> findAllByAuthorId(Integer id);
+    List<Ads> findAllByAuthorId(Long id);
 
-}
+    List<Ads> findAllByAuthorIdAndUpdatedAtAfter(Long id, Instant since);
+
+    @EntityGraph(attributePaths = "author")
+    Optional<Ads> findWithAuthorById(Long id);
+
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    Optional<Ads> findWithVersionIncrementById(Long id);
+
+    @Query("select i.hash from Ads a join a.image i where a.id = :id")
+    Optional<String> findImageHashById(@Param("id") Long id);
+
+    @Query("select a from Ads a left join fetch a.author where a.id in :ids")
+    List<Ads> findAllWithAuthorByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select a.version as version, u.version as authorVersion " +
+            "from Ads a left join a.author u where a.id = :id")
+    Optional<AdsVersion> findVersionById(@Param("id") Long id);
+
+    @Query("select count(a) as count, coalesce(max(a.id), 0) as maxId, coalesce(sum(a.version), 0) as versionSum " +
+            "from Ads a")
+    AdsListingState findListingState();
+
+    @Query("select a.commentsVersion as version, " +
+            "(select coalesce(sum(u.version), 0) from Comment c join c.author u where c.ads = a) as authorsVersion " +
+            "from Ads a where a.id = :id")
+    Optional<CommentsVersion> findCommentsVersionById(@Param("id") Long id);
 
+    @Modifying
+    @Query("update Ads a set a.commentsVersion = a.commentsVersion + 1 where a.id = :id")
+    void incrementCommentsVersion(@Param("id") Long id);
+
+    @Modifying
+    @Query("update Ads a set a.commentsVersion = a.commentsVersion + 1 " +
+            "where a.id = :id and (:version is null or a.commentsVersion = :version)")
+    int incrementCommentsVersion(@Param("id") Long id, @Param("version") Long expectedVersion);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Ads a set a.title = :title, a.description = :description, a.price = :price, " +
+            "a.version = a.version + 1, a.updatedAt = :updatedAt " +
+            "where a.id = :id and (:version is null or a.version = :version)")
+    int updateDetails(@Param("id") Long id,
+                      @Param("title") String title,
+                      @Param("description") String description,
+                      @Param("price") Integer price,
+                      @Param("version") Long expectedVersion,
+                      @Param("updatedAt") Instant updatedAt);
+
+    @Modifying
+    @Query("update Ads a set a.updatedAt = :updatedAt where a.id = :id")
+    void touch(@Param("id") Long id, @Param("updatedAt") Instant updatedAt);
+
+    @Query("select a.id as pk, a.author.id as author, a.image.id as imageId, a.price as price, " +
+            "a.title as title, a.description as description from Ads a where a.id = :id")
+    Optional<AdsSummary> findSummaryById(@Param("id") Long id);
+
+    default List<Tuple> findAllFields(List<AdsField> fields) {
+        return selectFields("from Ads a", fields, Map.of());
+    }
+
+    default List<Tuple> findAllFieldsByAuthorId(List<AdsField> fields, Long authorId) {
+        return selectFields("from Ads a where a.author.id = :authorId", fields, Map.of("authorId", authorId));
+    }
+
+}
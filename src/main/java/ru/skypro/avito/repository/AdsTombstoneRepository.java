@@ -0,0 +1,23 @@
+package ru.skypro.avito.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.skypro.avito.model.AdsTombstone;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface AdsTombstoneRepository extends JpaRepository<AdsTombstone, Long> {
+
+    @Query("select t.adsId from AdsTombstone t where t.authorId = :authorId and t.deletedAt > :since")
+    List<Long> findAdsIdsByAuthorIdAndDeletedAtAfter(@Param("authorId") Long authorId, @Param("since") Instant since);
+
+    @Modifying
+    @Query("delete from AdsTombstone t where t.deletedAt < :threshold")
+    int deleteAllByDeletedAtBefore(@Param("threshold") Instant threshold);
+
+}
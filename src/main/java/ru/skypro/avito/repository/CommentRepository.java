@@ -1,16 +1,47 @@
 package ru.skypro.avito.repository;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.skypro.avito.model.Comment;
+import ru.skypro.avito.repository.projection.AdsActivity;
+import ru.skypro.avito.repository.projection.CommentField;
+
+import javax.persistence.Tuple;
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface CommentRepository extends JpaRepository<Comment, Integer> {
+public interface CommentRepository extends JpaRepository<Comment, Long>, SparseFieldRepository {
+
+    Optional<Comment> findByIdAndAdsId(Long commentId, Long adId);
+
+    @EntityGraph(attributePaths = "author")
+    List<Comment> findAllByAdsId (Long id);
+
+    List<Comment> findAllByAdsIdAndUpdatedAtAfter(Long id, Instant since);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Comment c set c.text = :text, c.updatedAt = :updatedAt where c.id = :id and c.ads.id = :adsId")
+    int updateText(@Param("id") Long commentId, @Param("adsId") Long adId, @Param("text") String text,
+                   @Param("updatedAt") Instant updatedAt);
+
+    @Modifying
+    @Query("update Comment c set c.updatedAt = :updatedAt where c.author.id = :authorId")
+    int touchAllByAuthorId(@Param("authorId") Long authorId, @Param("updatedAt") Instant updatedAt);
 
-    Optional<Comment> findByIdAndAdsId(Integer commentId, Integer adId);
+    @Query("select c.ads.id as adsId, count(c) as comments, max(c.createdAt) as lastCommentAt " +
+            "from Comment c group by c.ads.id")
+    Stream<AdsActivity> streamAdsActivity();
 
-    List<Comment> findAllByAdsId (Integer id);
+    default List<Tuple> findAllFieldsByAdsId(List<CommentField> fields, Long adsId) {
+        return selectFields("from Comment c left join c.author u where c.ads.id = :adsId", fields, Map.of("adsId", adsId));
+    }
 
 }
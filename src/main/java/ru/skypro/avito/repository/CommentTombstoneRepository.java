@@ -0,0 +1,27 @@
+package ru.skypro.avito.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.skypro.avito.model.CommentTombstone;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface CommentTombstoneRepository extends JpaRepository<CommentTombstone, Long> {
+
+    @Query("select t.commentId from CommentTombstone t where t.adsId = :adsId and t.deletedAt > :since")
+    List<Long> findCommentIdsByAdsIdAndDeletedAtAfter(@Param("adsId") Long adsId, @Param("since") Instant since);
+
+    @Modifying
+    @Query("delete from CommentTombstone t where t.adsId = :adsId")
+    void deleteAllByAdsId(@Param("adsId") Long adsId);
+
+    @Modifying
+    @Query("delete from CommentTombstone t where t.deletedAt < :threshold")
+    int deleteAllByDeletedAtBefore(@Param("threshold") Instant threshold);
+
+}
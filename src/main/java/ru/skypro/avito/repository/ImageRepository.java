@@ -5,5 +5,5 @@ import org.springframework.stereotype.Repository;
 import ru.skypro.avito.model.Image;
 
 @Repository
-public interface ImageRepository extends JpaRepository<Image, Integer> {
+public interface ImageRepository extends JpaRepository<Image, Long> {
 }
@@ -0,0 +1,17 @@
+package ru.skypro.avito.repository;
+
+import ru.skypro.avito.repository.projection.SelectableField;
+
+import javax.persistence.Tuple;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SparseFieldRepository - это фрагмент репозитория для выборки только запрошенных полей (параметр fields=).
+ * Каждая строка результата содержит значения в порядке списка полей.
+ */
+public interface SparseFieldRepository {
+
+    List<Tuple> selectFields(String from, List<? extends SelectableField> fields, Map<String, ?> parameters);
+
+}
@@ -0,0 +1,33 @@
+package ru.skypro.avito.repository;
+
+import ru.skypro.avito.repository.projection.SelectableField;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * SparseFieldRepositoryImpl - это реализация SparseFieldRepository на JPQL.
+ * Текст запроса зависит только от набора полей, поэтому его разбор кэшируется Hibernate (query plan cache),
+ * а число различных запросов ограничено числом сочетаний полей.
+ */
+public class SparseFieldRepositoryImpl implements SparseFieldRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Tuple> selectFields(String from, List<? extends SelectableField> fields, Map<String, ?> parameters) {
+        String select = fields.stream()
+                .map(SelectableField::getExpression)
+                .collect(Collectors.joining(", ", "select ", " "));
+        TypedQuery<Tuple> query = entityManager.createQuery(select + from, Tuple.class);
+        parameters.forEach(query::setParameter);
+        return query.getResultList();
+    }
+
+}
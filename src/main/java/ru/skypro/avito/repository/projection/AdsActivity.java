@@ -0,0 +1,17 @@
+package ru.skypro.avito.repository.projection;
+
+import java.time.Instant;
+
+/**
+ * AdsActivity - это проекция агрегированной активности по объявлению (количество комментариев и время последнего комментария),
+ * используемая для восстановления рейтинга популярных объявлений при старте приложения.
+ */
+public interface AdsActivity {
+
+    Long getAdsId();
+
+    Long getComments();
+
+    Instant getLastCommentAt();
+
+}
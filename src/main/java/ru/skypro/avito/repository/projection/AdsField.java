@@ -0,0 +1,51 @@
+package ru.skypro.avito.repository.projection;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * AdsField - это поля краткой информации об объявлении (AdsDto), доступные для выборочного запроса.
+ * Выражения относятся к псевдониму a сущности Ads; автор и изображение берутся из внешних ключей без соединений.
+ */
+public enum AdsField implements SelectableField {
+
+    PK("pk", "a.id"),
+    AUTHOR("author", "a.author.id"),
+    IMAGE("image", "a.image.id"),
+    PRICE("price", "a.price"),
+    TITLE("title", "a.title"),
+    DESCRIPTION("description", "a.description");
+
+    private static final Map<String, AdsField> BY_NAME = Arrays.stream(values())
+            .collect(Collectors.toMap(AdsField::getName, Function.identity()));
+
+    private final String name;
+    private final String expression;
+
+    AdsField(String name, String expression) {
+        this.name = name;
+        this.expression = expression;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getExpression() {
+        return expression;
+    }
+
+    /**
+     * Метод forName() предполагает поиск поля по его имени в JSON.
+     * @param name
+     * @return null, если такого поля нет
+     */
+    public static AdsField forName(String name) {
+        return BY_NAME.get(name);
+    }
+
+}
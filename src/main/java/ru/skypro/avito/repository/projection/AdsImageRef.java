@@ -0,0 +1,12 @@
+package ru.skypro.avito.repository.projection;
+
+/**
+ * AdsImageRef - это проекция строки галереи объявления: только идентификаторы, без данных изображения.
+ */
+public interface AdsImageRef {
+
+    Long getAdsId();
+
+    Long getImageId();
+
+}
@@ -0,0 +1,16 @@
+package ru.skypro.avito.repository.projection;
+
+/**
+ * AdsListingState - это проекция состояния таблицы объявлений, по которому строится ETag списков объявлений:
+ * число объявлений, наибольший идентификатор и сумма версий. Добавление объявления увеличивает наибольший идентификатор,
+ * удаление уменьшает число объявлений, а изменение увеличивает сумму версий, поэтому любое изменение списка меняет состояние.
+ */
+public interface AdsListingState {
+
+    Long getCount();
+
+    Long getMaxId();
+
+    Long getVersionSum();
+
+}
@@ -0,0 +1,21 @@
+package ru.skypro.avito.repository.projection;
+
+/**
+ * AdsSummary - это проекция полей краткой информации об объявлении (AdsDto).
+ * Идентификаторы автора и изображения берутся из внешних ключей, поэтому связанные сущности не загружаются.
+ */
+public interface AdsSummary {
+
+    Long getPk();
+
+    Long getAuthor();
+
+    Long getImageId();
+
+    Integer getPrice();
+
+    String getTitle();
+
+    String getDescription();
+
+}
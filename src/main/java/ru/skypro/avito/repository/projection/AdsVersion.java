@@ -0,0 +1,13 @@
+package ru.skypro.avito.repository.projection;
+
+/**
+ * AdsVersion - это проекция версий, от которых зависит полная информация об объявлении:
+ * версия самого объявления и версия его автора (имя, телефон и email автора входят в ответ).
+ */
+public interface AdsVersion {
+
+    Long getVersion();
+
+    Long getAuthorVersion();
+
+}
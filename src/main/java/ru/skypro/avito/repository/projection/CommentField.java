@@ -0,0 +1,51 @@
+package ru.skypro.avito.repository.projection;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * CommentField - это поля комментария (AdsCommentDto), доступные для выборочного запроса.
+ * Выражения относятся к псевдониму c сущности Comment и псевдониму u ее автора (left join).
+ */
+public enum CommentField implements SelectableField {
+
+    PK("pk", "c.id"),
+    AUTHOR("author", "c.author.id"),
+    AUTHOR_IMAGE("authorImage", "u.avatar.id"),
+    AUTHOR_FIRST_NAME("authorFirstName", "u.firstName"),
+    CREATED_AT("createdAt", "c.createdAt"),
+    TEXT("text", "c.text");
+
+    private static final Map<String, CommentField> BY_NAME = Arrays.stream(values())
+            .collect(Collectors.toMap(CommentField::getName, Function.identity()));
+
+    private final String name;
+    private final String expression;
+
+    CommentField(String name, String expression) {
+        this.name = name;
+        this.expression = expression;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getExpression() {
+        return expression;
+    }
+
+    /**
+     * Метод forName() предполагает поиск поля по его имени в JSON.
+     * @param name
+     * @return null, если такого поля нет
+     */
+    public static CommentField forName(String name) {
+        return BY_NAME.get(name);
+    }
+
+}
@@ -0,0 +1,15 @@
+package ru.skypro.avito.repository.projection;
+
+/**
+ * CommentsVersion - это проекция версий, от которых зависит список комментариев объявления:
+ * версия списка комментариев и сумма версий авторов комментариев (имя и аватар автора входят в ответ).
+ * Версии только растут, поэтому изменение любого автора увеличивает сумму, а добавление, изменение
+ * и удаление комментария увеличивает версию списка.
+ */
+public interface CommentsVersion {
+
+    Long getVersion();
+
+    Long getAuthorsVersion();
+
+}
@@ -0,0 +1,13 @@
+package ru.skypro.avito.repository.projection;
+
+/**
+ * SelectableField - это поле DTO, которое можно запросить параметром fields=.
+ * Поле знает свое имя в JSON и JPQL-выражение, которым оно выбирается, поэтому в запрос попадают только нужные столбцы.
+ */
+public interface SelectableField {
+
+    String getName();
+
+    String getExpression();
+
+}
@@ -2,9 +2,14 @@ package ru.skypro.avito.service;
 
 import org.springframework.security.core.Authentication;
 import org.springframework.web.multipart.MultipartFile;
+import ru.skypro.avito.cache.FullAdsCache;
 import ru.skypro.avito.dto.AdsDto;
 import ru.skypro.avito.dto.CreateAds;
+import ru.skypro.avito.dto.DeltaWrapper;
 import ru.skypro.avito.dto.FullAds;
+import ru.skypro.avito.dto.FullAdsBatch;
+import ru.skypro.avito.model.Image;
+import ru.skypro.avito.repository.projection.AdsField;
 
 import java.io.IOException;
 import java.util.List;
@@ -13,17 +18,35 @@ public interface AdsService {
 
     List<AdsDto> getAllAds();
 
+    List<AdsDto> getAllAds(List<AdsField> fields);
+
     AdsDto addAds(MultipartFile imageFiles, CreateAds createAds, Authentication authentication) throws IOException;
 
-    FullAds getAdsById(Integer id);
+    FullAds getAdsById(Long id);
+
+    FullAdsCache.Entry getTaggedAdsById(Long id);
+
+    FullAdsBatch getAdsByIds(List<Long> ids);
+
+    String getAdsTag(Long id);
+
+    String getListingTag();
 
-    void removeAdsById(Integer id);
+    void removeAdsById(Long id);
 
-    AdsDto updateAds(Integer id, CreateAds createAds);
+    AdsDto updateAds(Long id, CreateAds createAds, String ifMatch);
 
-    void updateAdsImage(Integer id, MultipartFile imageFile) throws IOException;
+    void updateAdsImage(Long id, MultipartFile imageFile) throws IOException;
+
+    void addAdsImages(Long id, List<Image> images);
+
+    void removeAdsImage(Long id, Long imageId);
 
     List<AdsDto> getAdsMe(Authentication authentication);
 
+    List<AdsDto> getAdsMe(Authentication authentication, List<AdsField> fields);
+
+    DeltaWrapper<AdsDto> getAdsMeSince(Authentication authentication, String since);
+
 }
 
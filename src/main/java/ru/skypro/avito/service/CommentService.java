@@ -2,21 +2,29 @@ package ru.skypro.avito.service;
 
 import org.springframework.security.core.Authentication;
 import ru.skypro.avito.dto.AdsCommentDto;
+import ru.skypro.avito.dto.DeltaWrapper;
 import ru.skypro.avito.model.Comment;
+import ru.skypro.avito.repository.projection.CommentField;
 
 import java.util.List;
 
 public interface CommentService {
 
-    AdsCommentDto addAdsComment(Integer id, AdsCommentDto adsCommentDto,
+    AdsCommentDto addAdsComment(Long id, AdsCommentDto adsCommentDto,
                                 Authentication authentication);
 
-    void deleteAdsComment(Integer adId, Integer commentId);
+    void deleteAdsComment(Long adId, Long commentId);
 
-    AdsCommentDto updateComments(Integer adId, Integer commentId, AdsCommentDto adsCommentDto);
+    AdsCommentDto updateComments(Long adId, Long commentId, AdsCommentDto adsCommentDto, String ifMatch);
 
-    List<AdsCommentDto> getComments(Integer id);
+    List<AdsCommentDto> getComments(Long id);
 
-    Comment getCommentById(Integer id);
+    List<AdsCommentDto> getComments(Long id, List<CommentField> fields);
+
+    DeltaWrapper<AdsCommentDto> getCommentsSince(Long id, String since);
+
+    String getCommentsTag(Long id);
+
+    Comment getCommentById(Long id);
 
 }
@@ -6,6 +6,7 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.skypro.avito.dto.CustomUserDetails;
 import ru.skypro.avito.dto.RegisterReq;
 import ru.skypro.avito.enums.Role;
@@ -29,6 +30,7 @@ public class CustomUserDetailsService implements UserDetailsService {
      * @return
      * @throws UsernameNotFoundException
      */
+    @Transactional(readOnly = true)
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
 
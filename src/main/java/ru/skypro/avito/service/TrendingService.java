@@ -0,0 +1,19 @@
+package ru.skypro.avito.service;
+
+import ru.skypro.avito.dto.AdsDto;
+
+import java.util.List;
+
+public interface TrendingService {
+
+    void recordView(Long adsId);
+
+    void recordComment(Long adsId);
+
+    void recordCreated(Long adsId);
+
+    void remove(Long adsId);
+
+    List<AdsDto> getTrendingAds(int limit);
+
+}
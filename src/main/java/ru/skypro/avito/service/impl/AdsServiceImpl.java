@@ -2,24 +2,60 @@ package ru.skypro.avito.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
+import ru.skypro.avito.cache.AdsListingVersion;
+import ru.skypro.avito.cache.FullAdsCache;
+import ru.skypro.avito.cache.SingleFlightLoader;
+import ru.skypro.avito.cache.invalidation.CacheRegion;
+import ru.skypro.avito.cache.invalidation.InvalidationBus;
+import ru.skypro.avito.configuration.datasource.ReplicaRoutingDataSource;
 import ru.skypro.avito.dto.AdsDto;
 import ru.skypro.avito.dto.CreateAds;
+import ru.skypro.avito.dto.DeltaWrapper;
 import ru.skypro.avito.dto.FullAds;
+import ru.skypro.avito.dto.FullAdsBatch;
+import ru.skypro.avito.event.AdCreated;
+import ru.skypro.avito.event.AdDeleted;
+import ru.skypro.avito.event.AdImagesChanged;
+import ru.skypro.avito.event.AdUpdated;
 import ru.skypro.avito.exception.AdsNotFoundException;
+import ru.skypro.avito.exception.ImageNotFoundException;
 import ru.skypro.avito.exception.IncorrectArgumentException;
+import ru.skypro.avito.exception.VersionConflictException;
 import ru.skypro.avito.mapper.AdsMapper;
 import ru.skypro.avito.model.Ads;
+import ru.skypro.avito.model.AdsImage;
+import ru.skypro.avito.model.AdsTombstone;
 import ru.skypro.avito.model.Image;
 import ru.skypro.avito.model.User;
+import ru.skypro.avito.repository.AdsImageRepository;
 import ru.skypro.avito.repository.AdsRepository;
+import ru.skypro.avito.repository.AdsTombstoneRepository;
+import ru.skypro.avito.repository.CommentTombstoneRepository;
+import ru.skypro.avito.repository.projection.AdsField;
+import ru.skypro.avito.repository.projection.AdsImageRef;
 import ru.skypro.avito.service.AdsService;
+import ru.skypro.avito.util.EntityTags;
+import ru.skypro.avito.util.SyncTokens;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -30,12 +66,30 @@ public class AdsServiceImpl implements AdsService {
 
     private final UserServiceImpl userService;
     private final AdsRepository adsRepository;
+    private final AdsImageRepository adsImageRepository;
+    private final AdsTombstoneRepository adsTombstoneRepository;
+    private final CommentTombstoneRepository commentTombstoneRepository;
     private final ImageServiceImpl imageService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final FullAdsCache fullAdsCache;
+    private final InvalidationBus invalidationBus;
+    private final AdsListingVersion listingVersion;
+    private final SingleFlightLoader singleFlightLoader;
+
+    @Value("${avito.ads.batch.max-size:100}")
+    private int maxBatchSize;
+    @Value("${avito.ads.gallery.max-images:10}")
+    private int maxGalleryImages;
+    @Value("${avito.sync.overlap:1m}")
+    private Duration syncOverlap;
+    @Value("${avito.sync.tombstone-retention:30d}")
+    private Duration tombstoneRetention;
 
     /**
      * Метод getAllAds() переопределяет метод из интерфейса или родительского класса и предполагает получение списка всех объявлений.
      * @return
      */
+    @Transactional(readOnly = true)
     @Override
     public List<AdsDto> getAllAds() {
         // Выводится отладочное сообщение в лог, используя уровень логирования "debug".
@@ -55,6 +109,22 @@ public class AdsServiceImpl implements AdsService {
         // Список с маппированными объявлениями в виде объектов DTO возвращается как результат выполнения метода.
     }
 
+    /**
+     * Метод getAllAds() предполагает получение списка всех объявлений, в которых заполнены только поля fields.
+     * Из базы данных выбираются только столбцы запрошенных полей.
+     * @param fields
+     * @return
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public List<AdsDto> getAllAds(List<AdsField> fields) {
+        log.debug("Getting fields {} of all ads", fields);
+        return adsRepository.findAllFields(fields)
+                .stream()
+                .map(row -> AdsMapper.INSTANCE.toDto(row, fields))
+                .collect(Collectors.toList());
+    }
+
     /**
      * Метод addAds() переопределяет метод из интерфейса или родительского класса и предполагает добавление нового объявления.
      * @param imageFile
@@ -90,9 +160,15 @@ public class AdsServiceImpl implements AdsService {
         ads.setImage(image);
 
         // Объявление сохраняется в базу данных с использованием репозитория adsRepository.
-        return AdsMapper.INSTANCE.toDto(adsRepository.save(ads));
+        Ads savedAds = adsRepository.save(ads);
+
+        // Узлы приложения оповещаются о новом объявлении после фиксации транзакции,
+        // а обработчики событий (рейтинг популярных объявлений, журнал аудита) получают событие AdCreated.
+        invalidationBus.publish(CacheRegion.ADS, savedAds.getId());
+        eventPublisher.publishEvent(new AdCreated(savedAds.getId(), user.getId()));
 
         // Результат сохранения, объект Ads, маппится в объект DTO (AdsDto) с использованием маппера AdsMapper.INSTANCE::toDto
+        return AdsMapper.INSTANCE.toDto(savedAds);
     }
 
     /**
@@ -100,44 +176,156 @@ public class AdsServiceImpl implements AdsService {
      * @param id
      * @return
      */
-    public FullAds getAdsById(Integer id) {
+    @Transactional(readOnly = true)
+    public FullAds getAdsById(Long id) {
         // Выводится отладочное сообщение в лог, используя уровень логирования "debug", с указанием переданного идентификатора.
         log.debug("Getting ads by id: {}", id);
 
-        // Используется маппер AdsMapper для преобразования найденного объявления, полученного с помощью метода findAdsById(id),
-        // в объект FullAds (DTO с полной информацией об объявлении).
-        return AdsMapper.INSTANCE.toFullAds(findAdsById(id));
+        // Объявление ищется в кэше FullAdsCache. При промахе используется маппер AdsMapper для преобразования найденного объявления,
+        // полученного с помощью метода findAdsById(id), в объект FullAds (DTO с полной информацией об объявлении).
+        // Метод вызывается и из @PreAuthorize, поэтому попадание в кэш экономит запрос на каждой проверке прав.
+        // Вместе с объявлением в кэш записывается ETag версий, из которых оно построено.
+        return fullAdsCache.get(id, key -> toEntries(List.of(findAdsById(key))).get(key));
 
         // Преобразованный объект FullAds возвращается как результат выполнения метода.
     }
 
+    /**
+     * Метод getTaggedAdsById() предполагает получение объявления вместе с ETag версий, из которых оно построено.
+     * При попадании в кэш FullAdsCache метка берется из записи кэша, поэтому запрос к базе данных не выполняется.
+     * @param id
+     * @return
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public FullAdsCache.Entry getTaggedAdsById(Long id) {
+        log.debug("Getting tagged ads by id: {}", id);
+        return fullAdsCache.getEntry(id, key -> toEntries(List.of(findAdsById(key))).get(key));
+    }
+
+    /**
+     * Метод getAdsByIds() предполагает получение полной информации о нескольких объявлениях по списку идентификаторов.
+     * Объявления, найденные в кэше FullAdsCache, берутся из него, остальные загружаются одним запросом вместе с авторами
+     * и преобразуются тем же маппером AdsMapper.toFullAds, что и при получении одного объявления.
+     * Порядок результатов совпадает с порядком идентификаторов в запросе, повторы идентификаторов отбрасываются,
+     * а идентификаторы несуществующих объявлений возвращаются отдельным списком missing.
+     * @param ids
+     * @return
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public FullAdsBatch getAdsByIds(List<Long> ids) {
+        log.debug("Getting {} ads by ids", ids.size());
+
+        // Размер пачки ограничен, чтобы один запрос не загружал произвольно много объявлений.
+        Set<Long> unique = new LinkedHashSet<>(ids);
+        unique.remove(null);
+        if (unique.size() > maxBatchSize) {
+            throw new IncorrectArgumentException();
+        }
+
+        Map<Long, FullAds> found = fullAdsCache.getAll(unique,
+                missing -> toEntries(adsRepository.findAllWithAuthorByIdIn(missing)));
+
+        List<FullAds> results = new ArrayList<>(found.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : unique) {
+            FullAds fullAds = found.get(id);
+            if (fullAds != null) {
+                results.add(fullAds);
+            } else {
+                missing.add(id);
+            }
+        }
+        return FullAdsBatch.of(results, missing);
+    }
+
+    /**
+     * Метод getAdsTag() предполагает получение ETag полной информации об объявлении по версиям объявления и его автора.
+     * Сущности не загружаются: версии читаются одним запросом-проекцией. Если в кэше лежит объявление, построенное
+     * для других версий (сообщение шины еще не дошло до этого узла), запись сбрасывается, чтобы ответ соответствовал ETag.
+     * Для несуществующего объявления возвращается null. Версии читаются с основной базы данных: по ним проверяется запись кэша,
+     * и версия с отстающей реплики сбросила бы свежую запись, а в одном запросе следующая загрузка пошла бы на ту же реплику.
+     * @param id
+     * @return
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public String getAdsTag(Long id) {
+        try (ReplicaRoutingDataSource.PrimaryScope ignored = ReplicaRoutingDataSource.primaryScope()) {
+            return findAdsTag(id);
+        }
+    }
+
+    private String findAdsTag(Long id) {
+        return adsRepository.findVersionById(id)
+                .map(version -> {
+                    String tag = adsTag(id, version.getVersion(), version.getAuthorVersion());
+                    fullAdsCache.invalidateIfStale(id, tag);
+                    return tag;
+                })
+                .orElse(null);
+    }
+
+    /**
+     * Метод getListingTag() предполагает получение ETag списков объявлений по глобальной версии списка.
+     * @return
+     */
+    @Override
+    public String getListingTag() {
+        return listingVersion.getTag(listingVersion.get());
+    }
+
     /**
      * Метод removeAdsById() предполагает удаление объявления по его идентификатору.
      * @param id
      */
     @Override
-    public void removeAdsById(Integer id) {
+    public void removeAdsById(Long id) {
         // Выводится отладочное сообщение в лог, используя уровень логирования "debug", с указанием переданного идентификатора.
         log.debug("Removing ads by id: {}", id);
 
         // Используется метод findAdsById(id) для поиска объявления по указанному идентификатору.
         Ads ads = findAdsById(id);
 
+        // Строки ad_image удаляются, а сами изображения галереи и обложка только отсоединяются:
+        // строки image без ссылок удаляет в фоне BlobCollector, не загружая данные файлов в транзакции запроса.
+        List<Long> galleryImageIds = adsImageRepository.findRefsByAdsIdIn(List.of(id)).stream()
+                .map(AdsImageRef::getImageId)
+                .collect(Collectors.toList());
+        adsImageRepository.deleteAllByAdsId(id);
+        galleryImageIds.forEach(imageId -> invalidationBus.publish(CacheRegion.IMAGE, imageId));
+        if (ads.getImage() != null) {
+            invalidationBus.publish(CacheRegion.IMAGE, ads.getImage().getId());
+        }
+
         // Полученное объявление удаляется из репозитория adsRepository с помощью метода delete(ads).
+        // Вместо него остается запись об удалении, по которой клиенты узнают об удалении при синхронизации;
+        // записи об удалении его комментариев больше не нужны - комментарии удаляются вместе с объявлением.
         adsRepository.delete(ads);
+        adsTombstoneRepository.save(new AdsTombstone(id, ads.getAuthor().getId(), Instant.now()));
+        commentTombstoneRepository.deleteAllByAdsId(id);
+
+        // Удаленное объявление исключается из кэшей всех узлов, а после фиксации - и из рейтинга популярных объявлений.
+        invalidationBus.publish(CacheRegion.ADS, id);
+        eventPublisher.publishEvent(new AdDeleted(id));
 
         // Выводится информационное сообщение в лог, используя уровень логирования "info", о том, что объявление успешно удалено.
         log.info("Ads removed successfully");
     }
 
     /**
-     * Метод updateAds() предполагает обновление деталей объявления по его идентификатору
+     * Метод updateAds() предполагает обновление деталей объявления по его идентификатору.
+     * Объявление не загружается: изменение выполняется одним запросом UPDATE, который увеличивает версию объявления.
+     * Если передан заголовок If-Match с ETag объявления, запрос обновляет объявление только при совпадении версии,
+     * иначе выбрасывается исключение VersionConflictException (409), и одновременные правки не перезаписывают друг друга.
      * @param id
      * @param createAds
+     * @param ifMatch
      * @return
      */
     @Override
-    public AdsDto updateAds(Integer id, CreateAds createAds) {
+    public AdsDto updateAds(Long id, CreateAds createAds, String ifMatch) {
         // Выводится отладочное сообщение в лог, используя уровень логирования "debug", с указанием переданного идентификатора.
         log.debug("Updating ads by id: {}", id);
 
@@ -147,22 +335,97 @@ public class AdsServiceImpl implements AdsService {
                 || createAds.getDescription() == null || createAds.getDescription().isBlank()
                 || createAds.getPrice() == null) throw new IncorrectArgumentException();
 
-        // Используется метод findAdsById(id) для поиска объявления по указанному идентификатору.
-        Ads ads = findAdsById(id);
+        // Детали объявления (заголовок, описание, цена) обновляются одним запросом с проверкой ожидаемой версии.
+        // Если ни одна строка не изменилась, объявления либо нет (404), либо его уже изменил кто-то другой (409).
+        Long expectedVersion = EntityTags.expectedVersion(ifMatch, "ads", id);
+        if (adsRepository.updateDetails(id, createAds.getTitle(), createAds.getDescription(),
+                createAds.getPrice(), expectedVersion, Instant.now()) == 0) {
+            if (!adsRepository.existsById(id)) {
+                throw new AdsNotFoundException();
+            }
+            throw new VersionConflictException();
+        }
+        invalidationBus.publish(CacheRegion.ADS, id);
+        eventPublisher.publishEvent(new AdUpdated(id));
 
-        // Обновляются детали объявления (заголовок, описание, цена) на основе данных из объекта createAds.
-        ads.setTitle(createAds.getTitle());
-        ads.setDescription(createAds.getDescription());
-        ads.setPrice(createAds.getPrice());
+        // Выводится информационное сообщение в лог, используя уровень логирования "info", о том, что детали объявления успешно обновлены.
+        log.info("Ads details updated for ads: {}", createAds.getTitle());
 
-        // Обновленное объявление сохраняется в репозитории adsRepository с помощью метода save(ads).
-        adsRepository.save(ads);
+        // Возвращается объект AdsDto, построенный по проекции обновленного объявления без загрузки автора и изображения.
+        return adsRepository.findSummaryById(id)
+                .map(AdsMapper.INSTANCE::toDto)
+                .orElseThrow(AdsNotFoundException::new);
+    }
 
-        // Выводится информационное сообщение в лог, используя уровень логирования "info", о том, что детали объявления успешно обновлены.
-        log.info("Ads details updated for ads: {}", ads.getTitle());
+    /**
+     * Метод addAdsImages() предполагает добавление в галерею объявления изображений, подготовленных
+     * ImageServiceImpl.prepareImages(). Изображения и строки ad_image сохраняются в одной транзакции пакетными вставками.
+     * Файлы, совпадающие по хешу с уже добавленными, пропускаются. Если у объявления нет обложки, ею становится первое изображение.
+     * @param id
+     * @param images
+     */
+    @Override
+    public void addAdsImages(Long id, List<Image> images) {
+        log.debug("Adding {} images to ads gallery {}", images.size(), id);
+
+        // Объявление загружается с принудительным увеличением версии: галерея входит в ETag объявления.
+        Ads ads = adsRepository.findWithVersionIncrementById(id).orElseThrow(AdsNotFoundException::new);
+        // Хеши читаются запросами, чтобы не загружать данные уже сохраненных изображений.
+        List<String> galleryHashes = adsImageRepository.findHashesByAdsId(id);
+        Set<String> hashes = new HashSet<>(galleryHashes);
+        adsRepository.findImageHashById(id).ifPresent(hashes::add);
+        List<Image> added = images.stream()
+                .filter(image -> hashes.add(image.getHash()))
+                .collect(Collectors.toList());
+        int gallerySize = galleryHashes.size() + (ads.getImage() == null ? 0 : 1);
+        if (gallerySize + added.size() > maxGalleryImages) {
+            throw new IncorrectArgumentException();
+        }
+        if (added.isEmpty()) {
+            return;
+        }
+
+        imageService.saveAll(added);
+        if (ads.getImage() == null) {
+            ads.setImage(added.remove(0));
+            adsRepository.touch(id, Instant.now());
+        }
+        int position = adsImageRepository.findMaxPositionByAdsId(id);
+        List<AdsImage> rows = new ArrayList<>(added.size());
+        for (Image image : added) {
+            rows.add(new AdsImage(null, ads, image, ++position));
+        }
+        adsImageRepository.saveAll(rows);
+        invalidationBus.publish(CacheRegion.ADS, id);
+        eventPublisher.publishEvent(new AdImagesChanged(id));
+
+        log.info("{} images added to ads gallery {}", rows.size(), id);
+    }
 
-        // Возвращается объект AdsDto, созданный на основе обновленного объявления с помощью маппера AdsMapper.
-        return AdsMapper.INSTANCE.toDto(ads);
+    /**
+     * Метод removeAdsImage() предполагает удаление изображения из галереи объявления.
+     * Если удаляется обложка, ею становится следующее изображение галереи.
+     * @param id
+     * @param imageId
+     */
+    @Override
+    public void removeAdsImage(Long id, Long imageId) {
+        log.debug("Removing image {} from ads gallery {}", imageId, id);
+
+        Ads ads = adsRepository.findWithVersionIncrementById(id).orElseThrow(AdsNotFoundException::new);
+        if (ads.getImage() != null && ads.getImage().getId().equals(imageId)) {
+            Optional<AdsImage> next = adsImageRepository.findFirstByAdsIdOrderByPosition(id);
+            next.ifPresent(adsImageRepository::delete);
+            ads.setImage(next.map(AdsImage::getImage).orElse(null));
+            adsRepository.touch(id, Instant.now());
+        } else {
+            AdsImage row = adsImageRepository.findByAdsIdAndImageId(id, imageId).orElseThrow(ImageNotFoundException::new);
+            adsImageRepository.delete(row);
+        }
+        // Отсоединенное изображение удалит BlobCollector.
+        invalidationBus.publish(CacheRegion.IMAGE, imageId);
+        invalidationBus.publish(CacheRegion.ADS, id);
+        eventPublisher.publishEvent(new AdImagesChanged(id));
     }
 
     /**
@@ -170,6 +433,7 @@ public class AdsServiceImpl implements AdsService {
      * @param authentication
      * @return
      */
+    @Transactional(readOnly = true)
     @Override
     public List<AdsDto> getAdsMe(Authentication authentication) {
         // Выводится отладочное сообщение в лог, используя уровень логирования "debug",
@@ -191,6 +455,59 @@ public class AdsServiceImpl implements AdsService {
         // Возвращается список объявлений, представленных в форме AdsDto, созданных указанным пользователем.
     }
 
+    /**
+     * Метод getAdsMe() предполагает получение объявлений авторизованного пользователя, в которых заполнены только поля fields.
+     * Из базы данных выбираются только столбцы запрошенных полей.
+     * @param authentication
+     * @param fields
+     * @return
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public List<AdsDto> getAdsMe(Authentication authentication, List<AdsField> fields) {
+        log.debug("Getting fields {} of ads by author {}", fields, authentication.getName());
+        Long authorId = userService.getUserByUsername(authentication.getName()).getId();
+        return adsRepository.findAllFieldsByAuthorId(fields, authorId)
+                .stream()
+                .map(row -> AdsMapper.INSTANCE.toDto(row, fields))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Метод getAdsMeSince() предполагает получение объявлений авторизованного пользователя, созданных или измененных
+     * после метки since, и идентификаторов его объявлений, удаленных после нее.
+     * Запросы идут по индексам (author_id, updated_at) и (author_id, deleted_at), поэтому синхронизация читает
+     * только изменившиеся строки, а не весь список.
+     * @param authentication
+     * @param since
+     * @return
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public DeltaWrapper<AdsDto> getAdsMeSince(Authentication authentication, String since) {
+        log.debug("Getting ads by author {} changed since {}", authentication.getName(), since);
+        Instant from = SyncTokens.parse(since, tombstoneRetention);
+        Instant now = Instant.now();
+        Long authorId = userService.getUserByUsername(authentication.getName()).getId();
+        List<AdsDto> changed = adsRepository.findAllByAuthorIdAndUpdatedAtAfter(authorId, from)
+                .stream()
+                .map(AdsMapper.INSTANCE::toDto)
+                .collect(Collectors.toList());
+        return DeltaWrapper.of(changed,
+                adsTombstoneRepository.findAdsIdsByAuthorIdAndDeletedAtAfter(authorId, from),
+                SyncTokens.next(now, syncOverlap));
+    }
+
+    /**
+     * Метод removeExpiredTombstones() удаляет записи об удалении объявлений старше tombstone-retention.
+     * Метки синхронизации старше этого срока отклоняются (410), и клиент выполняет полную синхронизацию.
+     */
+    @Scheduled(fixedDelayString = "${avito.sync.cleanup-interval:3600000}")
+    public void removeExpiredTombstones() {
+        int removed = adsTombstoneRepository.deleteAllByDeletedAtBefore(Instant.now().minus(tombstoneRetention));
+        log.debug("Removed {} expired ads tombstones", removed);
+    }
+
     /**
      * Метод updateAdsImage() предполагает обновление изображения для объявления с указанным идентификатором.
      * @param id
@@ -198,7 +515,7 @@ public class AdsServiceImpl implements AdsService {
      * @throws IOException
      */
     @Override
-    public void updateAdsImage(Integer id, MultipartFile imageFile) throws IOException {
+    public void updateAdsImage(Long id, MultipartFile imageFile) throws IOException {
         // Выводится отладочное сообщение в лог, используя уровень логирования "debug",
         // с указанием идентификатора объявления, для которого выполняется обновление изображения.
         log.debug("Updating ads image by id: {}", id);
@@ -206,18 +523,22 @@ public class AdsServiceImpl implements AdsService {
         // Используется метод findAdsById(id) для поиска объявления по его идентификатору.
         Ads ads = findAdsById(id);
 
-        // Если у найденного объявления уже есть изображение (ads.getImage() != null),
-        // то вызывается метод imageService.remove() для удаления старого изображения.
+        // Если у найденного объявления уже есть изображение (ads.getImage() != null), оно только отсоединяется
+        // и сбрасывается из кэша: строку image без ссылок удалит BlobCollector.
         if (ads.getImage() != null) {
-            imageService.remove(ads.getImage());
+            invalidationBus.publish(CacheRegion.IMAGE, ads.getImage().getId());
         }
 
         // Загружается новое изображение с помощью метода imageService.uploadImage(imageFile)
         // и устанавливается для объявления с помощью ads.setImage().
         ads.setImage(imageService.uploadImage(imageFile));
+        adsRepository.touch(id, Instant.now());
 
         // Обновленное объявление сохраняется в репозитории с помощью метода adsRepository.save(ads).
+        // Ссылка на изображение в кэше устарела, поэтому запись объявления сбрасывается.
         adsRepository.save(ads);
+        invalidationBus.publish(CacheRegion.ADS, id);
+        eventPublisher.publishEvent(new AdImagesChanged(id));
 
         // Выводится отладочное сообщение в лог, указывая, что изображение объявления было успешно обновлено.
         log.debug("Avatar updated for ads: {}", ads.getTitle());
@@ -228,7 +549,8 @@ public class AdsServiceImpl implements AdsService {
      * @param id
      * @return
      */
-    public Ads findAdsById(Integer id) {
+    @Transactional(readOnly = true)
+    public Ads findAdsById(Long id) {
         // Выводится отладочное сообщение в лог, используя уровень логирования "debug",
         // с указанием идентификатора объявления, для которого выполняется поиск.
         log.debug("Finding ads by id: {}", id);
@@ -238,7 +560,41 @@ public class AdsServiceImpl implements AdsService {
         // которое является пользовательским исключением, указанном в методе orElseThrow().
         // Это исключение сигнализирует о том, что
         // объявление с указанным идентификатором не было найдено и может быть обработано соответствующим образом в вышестоящем коде.
-        return adsRepository.findById(id).orElseThrow(AdsNotFoundException::new);
+        // Автор загружается тем же запросом: при чтении объявление может быть отдано другим потокам, где ленивая загрузка невозможна.
+        // Одновременные чтения одного объявления объединяются в один запрос с помощью singleFlightLoader.
+        return singleFlightLoader.load(Ads.class, id,
+                () -> adsRepository.findWithAuthorById(id).orElseThrow(AdsNotFoundException::new));
     }
-}
 
+    private static String adsTag(Long id, Long version, Long authorVersion) {
+        return EntityTags.weak("ads", id, version, authorVersion);
+    }
+
+    /**
+     * Строит записи кэша FullAdsCache для загруженных объявлений. Адреса галерей (обложка, затем изображения ad_image
+     * по порядку) читаются одним запросом идентификаторов для всех объявлений, без загрузки данных изображений.
+     */
+    private Map<Long, FullAdsCache.Entry> toEntries(Collection<Ads> adsList) {
+        Map<Long, List<String>> galleries = new HashMap<>();
+        for (Ads ads : adsList) {
+            List<String> gallery = new ArrayList<>();
+            if (ads.getImage() != null) {
+                gallery.add(AdsMapper.INSTANCE.imageMapping(ads.getImage()));
+            }
+            galleries.put(ads.getId(), gallery);
+        }
+        if (!galleries.isEmpty()) {
+            adsImageRepository.findRefsByAdsIdIn(galleries.keySet()).forEach(ref ->
+                    galleries.get(ref.getAdsId()).add(AdsMapper.INSTANCE.imageIdMapping(ref.getImageId())));
+        }
+        Map<Long, FullAdsCache.Entry> entries = new HashMap<>();
+        for (Ads ads : adsList) {
+            FullAds fullAds = AdsMapper.INSTANCE.toFullAds(ads);
+            fullAds.setImages(galleries.get(ads.getId()));
+            entries.put(ads.getId(), new FullAdsCache.Entry(fullAds,
+                    adsTag(ads.getId(), ads.getVersion(), ads.getAuthor() == null ? null : ads.getAuthor().getVersion())));
+        }
+        return entries;
+    }
+
+}
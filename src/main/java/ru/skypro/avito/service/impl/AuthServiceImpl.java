@@ -29,6 +29,7 @@ public class AuthServiceImpl implements AuthService {
      * @param password
      * @return
      */
+    @Transactional(readOnly = true)
     @Override
     public boolean login(String userName, String password) {
         // Выводится отладочное сообщение в лог, используя уровень логирования "debug",
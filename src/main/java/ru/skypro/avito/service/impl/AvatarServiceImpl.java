@@ -5,6 +5,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
+import ru.skypro.avito.cache.SingleFlightLoader;
+import ru.skypro.avito.configuration.metrics.TransferMetrics;
 import ru.skypro.avito.exception.ImageNotFoundException;
 import ru.skypro.avito.model.Avatar;
 import ru.skypro.avito.repository.AvatarRepository;
@@ -19,6 +21,8 @@ import java.io.IOException;
 public class AvatarServiceImpl implements ImageService<Avatar> {
 
     private final AvatarRepository avatarRepository;
+    private final SingleFlightLoader singleFlightLoader;
+    private final TransferMetrics transferMetrics;
 
     /**
      * Метод remove() предполагает удаление объекта Avatar из репозитория на основе переданного объекта avatar.
@@ -51,6 +55,7 @@ public class AvatarServiceImpl implements ImageService<Avatar> {
         avatar.setFileSize(avatarFile.getSize());
         avatar.setData(avatarFile.getBytes());
         Avatar savedAvatar = avatarRepository.save(avatar);
+        transferMetrics.uploaded(TransferMetrics.AVATAR, avatarFile.getSize());
 
         // Выводится информационное сообщение в лог о успешной загрузке аватара с указанием его идентификатора.
         log.info("Avatar successfully uploaded with id {}", savedAvatar.getId());
@@ -64,15 +69,18 @@ public class AvatarServiceImpl implements ImageService<Avatar> {
      * @param id
      * @return
      */
+    @Transactional(readOnly = true)
     @Override
-    public Avatar getImageById(Integer id) {
+    public Avatar getImageById(Long id) {
         // Выводится отладочное сообщение в лог о получении аватара по указанному идентификатору.
         log.debug("Getting avatar with id: {}", id);
 
         // Используется репозиторий avatarRepository для поиска аватара в базе данных по его идентификатору с использованием метода findById(id).
         // Если найденный объект Avatar не пустой, то он возвращается из метода.
         // Если объект Avatar не найден в базе данных, то выбрасывается исключение ImageNotFoundException.
-        return avatarRepository.findById(id).orElseThrow(ImageNotFoundException::new);
+        // Одновременные запросы одного аватара объединяются в один запрос с помощью singleFlightLoader.
+        return singleFlightLoader.load(Avatar.class, id,
+                () -> avatarRepository.findById(id).orElseThrow(ImageNotFoundException::new));
     }
 
 }
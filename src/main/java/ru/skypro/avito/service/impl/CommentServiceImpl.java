@@ -2,18 +2,36 @@ package ru.skypro.avito.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.skypro.avito.cache.invalidation.CacheRegion;
+import ru.skypro.avito.cache.invalidation.InvalidationBus;
 import ru.skypro.avito.dto.AdsCommentDto;
+import ru.skypro.avito.dto.DeltaWrapper;
+import ru.skypro.avito.event.CommentAdded;
+import ru.skypro.avito.event.CommentDeleted;
+import ru.skypro.avito.event.CommentUpdated;
+import ru.skypro.avito.exception.AdsNotFoundException;
 import ru.skypro.avito.exception.CommentNotFoundException;
 import ru.skypro.avito.exception.IncorrectArgumentException;
+import ru.skypro.avito.exception.VersionConflictException;
 import ru.skypro.avito.mapper.AdsCommentMapper;
 import ru.skypro.avito.model.Comment;
+import ru.skypro.avito.model.CommentTombstone;
 import ru.skypro.avito.model.User;
+import ru.skypro.avito.repository.AdsRepository;
 import ru.skypro.avito.repository.CommentRepository;
+import ru.skypro.avito.repository.CommentTombstoneRepository;
+import ru.skypro.avito.repository.projection.CommentField;
 import ru.skypro.avito.service.CommentService;
+import ru.skypro.avito.util.EntityTags;
+import ru.skypro.avito.util.SyncTokens;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -25,16 +43,26 @@ import java.util.stream.Collectors;
 public class CommentServiceImpl implements CommentService {
 
     private final CommentRepository commentRepository;
+    private final CommentTombstoneRepository commentTombstoneRepository;
+    private final AdsRepository adsRepository;
     private final UserServiceImpl userService;
     private final AdsServiceImpl adsService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final InvalidationBus invalidationBus;
+
+    @Value("${avito.sync.overlap:1m}")
+    private Duration syncOverlap;
+    @Value("${avito.sync.tombstone-retention:30d}")
+    private Duration tombstoneRetention;
 
     /**
      * Метод getComments() предполагает получение списка комментариев для объявления по его идентификатору.
      * @param id
      * @return
      */
+    @Transactional(readOnly = true)
     @Override
-    public List<AdsCommentDto> getComments(Integer id) {
+    public List<AdsCommentDto> getComments(Long id) {
         // Выводится отладочное сообщение в лог о получении комментариев для объявления с указанным идентификатором.
         log.debug("Getting comments for ads with id: {}", id);
 
@@ -53,6 +81,75 @@ public class CommentServiceImpl implements CommentService {
         // Возвращается список AdsCommentDto, содержащий комментарии для указанного объявления.
     }
 
+    /**
+     * Метод getComments() предполагает получение комментариев объявления, в которых заполнены только поля fields.
+     * Из базы данных выбираются только столбцы запрошенных полей. Автор присоединяется через left join по первичному ключу,
+     * поэтому, если его поля не запрошены, PostgreSQL исключает соединение из плана.
+     * @param id
+     * @param fields
+     * @return
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public List<AdsCommentDto> getComments(Long id, List<CommentField> fields) {
+        log.debug("Getting fields {} of comments for ads with id: {}", fields, id);
+        return commentRepository.findAllFieldsByAdsId(fields, id)
+                .stream()
+                .map(row -> AdsCommentMapper.INSTANCE.toDto(row, fields))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Метод getCommentsSince() предполагает получение комментариев объявления, созданных или измененных после метки since,
+     * и идентификаторов его комментариев, удаленных после нее. Запросы идут по индексам (ads_id, updated_at)
+     * и (ads_id, deleted_at), поэтому синхронизация читает только изменившиеся строки.
+     * Для удаленного объявления выбрасывается исключение AdsNotFoundException (404): его комментариев больше нет.
+     * @param id
+     * @param since
+     * @return
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public DeltaWrapper<AdsCommentDto> getCommentsSince(Long id, String since) {
+        log.debug("Getting comments for ads with id: {} changed since {}", id, since);
+        Instant from = SyncTokens.parse(since, tombstoneRetention);
+        Instant now = Instant.now();
+        if (!adsRepository.existsById(id)) {
+            throw new AdsNotFoundException();
+        }
+        List<AdsCommentDto> changed = commentRepository.findAllByAdsIdAndUpdatedAtAfter(id, from)
+                .stream()
+                .map(AdsCommentMapper.INSTANCE::toDto)
+                .collect(Collectors.toList());
+        return DeltaWrapper.of(changed,
+                commentTombstoneRepository.findCommentIdsByAdsIdAndDeletedAtAfter(id, from),
+                SyncTokens.next(now, syncOverlap));
+    }
+
+    /**
+     * Метод removeExpiredTombstones() удаляет записи об удалении комментариев старше tombstone-retention.
+     */
+    @Scheduled(fixedDelayString = "${avito.sync.cleanup-interval:3600000}")
+    public void removeExpiredTombstones() {
+        int removed = commentTombstoneRepository.deleteAllByDeletedAtBefore(Instant.now().minus(tombstoneRetention));
+        log.debug("Removed {} expired comment tombstones", removed);
+    }
+
+    /**
+     * Метод getCommentsTag() предполагает получение ETag списка комментариев объявления
+     * по версии списка комментариев и версиям их авторов. Сущности при этом не загружаются.
+     * Для несуществующего объявления возвращается null.
+     * @param id
+     * @return
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public String getCommentsTag(Long id) {
+        return adsRepository.findCommentsVersionById(id)
+                .map(version -> EntityTags.weak("comments", id, version.getVersion(), version.getAuthorsVersion()))
+                .orElse(null);
+    }
+
     /**
      * Метод addAdsComment() предполагает добавление комментария к объявлению с указанным идентификатором.
      * @param id
@@ -61,7 +158,7 @@ public class CommentServiceImpl implements CommentService {
      * @return
      */
     @Override
-    public AdsCommentDto addAdsComment(Integer id, AdsCommentDto adsCommentDto, Authentication authentication) {
+    public AdsCommentDto addAdsComment(Long id, AdsCommentDto adsCommentDto, Authentication authentication) {
 
         // Выводится отладочное сообщение в лог о добавлении комментария для объявления с указанным идентификатором.
         log.debug("Adding comment for ads with id: {}", id);
@@ -72,9 +169,10 @@ public class CommentServiceImpl implements CommentService {
         // Создается объект Comment на основе DTO комментария с использованием маппера AdsCommentMapper.INSTANCE.toEntity(adsCommentDto).
         Comment comment = AdsCommentMapper.INSTANCE.toEntity(adsCommentDto);
 
-        // Получается текущий пользователь (автор комментария) из объекта Authentication, не извлекая его из БД,
-        // с использованием метода getPrincipal() и приведения к объекту User.
-        User user = (User) authentication.getPrincipal();
+        // Получается текущий пользователь (автор комментария) по имени из объекта Authentication
+        // с использованием сервиса userService.getUserByUsername().
+        // Principal в Authentication - это UserDetails (или строка), а не сущность User, поэтому приводить его к User нельзя.
+        User user = userService.getUserByUsername(authentication.getName());
 
         // Устанавливается автор комментария в объект Comment с использованием метода setAuthor(user).
         // Устанавливается объявление, к которому добавляется комментарий, на основе его идентификатора с использованием сервиса adsService.findAdsById(id)
@@ -87,6 +185,12 @@ public class CommentServiceImpl implements CommentService {
         // Комментарий сохраняется в базе данных с использованием репозитория commentRepository и метода save(comment).
         commentRepository.save(comment);
 
+        // Комментарий повышает версию списка комментариев, а узлы приложения оповещаются об изменении списка комментариев.
+        // Рейтинг объявления среди популярных повышается обработчиком события CommentAdded после фиксации транзакции.
+        adsRepository.incrementCommentsVersion(id);
+        invalidationBus.publish(CacheRegion.COMMENTS, id);
+        eventPublisher.publishEvent(new CommentAdded(id, comment.getId()));
+
         // Созданный комментарий преобразуется обратно в DTO с использованием маппера AdsCommentMapper.INSTANCE.toDto(comment).
 
         // Возвращается объект AdsCommentDto, содержащий добавленный комментарий.
@@ -100,7 +204,7 @@ public class CommentServiceImpl implements CommentService {
      * @param commentId
      */
     @Override
-    public void deleteAdsComment(Integer adId, Integer commentId) {
+    public void deleteAdsComment(Long adId, Long commentId) {
 
         // Выводится отладочное сообщение в лог о удалении комментария с указанным идентификатором для объявления с указанным идентификатором.
         log.debug("Deleting comment with id: {} for ads with id: {}", commentId, adId);
@@ -111,6 +215,10 @@ public class CommentServiceImpl implements CommentService {
 
         // Удаление комментария из базы данных с использованием репозитория commentRepository и метода delete(comment).
         commentRepository.delete(comment);
+        commentTombstoneRepository.save(new CommentTombstone(commentId, adId, Instant.now()));
+        adsRepository.incrementCommentsVersion(adId);
+        invalidationBus.publish(CacheRegion.COMMENTS, adId);
+        eventPublisher.publishEvent(new CommentDeleted(adId, commentId));
 
         // Выводится информационное сообщение в лог о успешном удалении комментария.
         log.info("Comment removed successfully");
@@ -119,14 +227,20 @@ public class CommentServiceImpl implements CommentService {
     /**
      * Метод updateComments() предполагает обновление текста комментария с указанным идентификатором,
      * принадлежащего к объявлению с указанным идентификатором.
+     * Комментарий не загружается перед изменением: сначала увеличивается версия списка комментариев объявления,
+     * затем текст обновляется одним запросом UPDATE. Если передан заголовок If-Match с ETag списка комментариев,
+     * версия увеличивается только при совпадении, иначе выбрасывается исключение VersionConflictException (409).
+     * Строка объявления блокируется первым запросом, поэтому одновременные правки выполняются по очереди,
+     * и вторая из них с той же меткой получает конфликт.
      * @param adId
      * @param commentId
      * @param adsCommentDto
+     * @param ifMatch
      * @return
      */
     @Override
-    public AdsCommentDto updateComments(Integer adId, Integer commentId,
-                                        AdsCommentDto adsCommentDto) {
+    public AdsCommentDto updateComments(Long adId, Long commentId,
+                                        AdsCommentDto adsCommentDto, String ifMatch) {
 
         // Выводится отладочное сообщение в лог о обновлении комментария с указанным идентификатором для объявления с указанным идентификатором.
         log.debug("Updating comment with id: {} for ads with id: {}", commentId, adId);
@@ -135,18 +249,26 @@ public class CommentServiceImpl implements CommentService {
         // Если текст комментария не прошел валидацию, выбрасывается исключение IncorrectArgumentException.
         if(adsCommentDto.getText() == null || adsCommentDto.getText().isBlank()) throw new IncorrectArgumentException();
 
-        // Вызывается метод getAdsComment(commentId, adId) для получения объекта комментария
-        // на основе его идентификатора commentId и идентификатора объявления adId.
-        Comment adsComment = getAdsComment(commentId, adId);
-
-        // Обновление текста комментария на значение из adsCommentDto.
-        adsComment.setText(adsCommentDto.getText());
-
-        // Сохранение обновленного комментария в базе данных с использованием репозитория commentRepository и метода save(adsComment).
-        commentRepository.save(adsComment);
-
-        // Возвращается объект комментария в формате DTO, преобразованный с использованием маппера AdsCommentMapper.INSTANCE.toDto(adsComment).
-        return AdsCommentMapper.INSTANCE.toDto(adsComment);
+        // Версия списка комментариев увеличивается с проверкой ожидаемой версии.
+        // Если строка не изменилась, объявления либо нет (404), либо комментарии уже изменил кто-то другой (409).
+        Long expectedVersion = EntityTags.expectedVersion(ifMatch, "comments", adId);
+        if (adsRepository.incrementCommentsVersion(adId, expectedVersion) == 0) {
+            if (!adsRepository.existsById(adId)) {
+                throw new CommentNotFoundException();
+            }
+            throw new VersionConflictException();
+        }
+
+        // Текст комментария обновляется одним запросом; если комментария с такими идентификаторами нет,
+        // выбрасывается исключение CommentNotFoundException, и транзакция откатывается вместе с увеличением версии.
+        if (commentRepository.updateText(commentId, adId, adsCommentDto.getText(), Instant.now()) == 0) {
+            throw new CommentNotFoundException();
+        }
+        invalidationBus.publish(CacheRegion.COMMENTS, adId);
+        eventPublisher.publishEvent(new CommentUpdated(adId, commentId));
+
+        // Возвращается объект комментария в формате DTO, преобразованный с использованием маппера AdsCommentMapper.INSTANCE.toDto().
+        return AdsCommentMapper.INSTANCE.toDto(getAdsComment(commentId, adId));
     }
 
     /**
@@ -156,7 +278,8 @@ public class CommentServiceImpl implements CommentService {
      * @param adId
      * @return
      */
-    public Comment getAdsComment(Integer commentId, Integer adId) {
+    @Transactional(readOnly = true)
+    public Comment getAdsComment(Long commentId, Long adId) {
 
         // Выводится отладочное сообщение в лог о получении комментария с указанным идентификатором для объявления с указанным идентификатором.
         log.debug("Getting comment with id: {} for ads with id: {}", commentId, adId);
@@ -173,8 +296,9 @@ public class CommentServiceImpl implements CommentService {
      * @param id
      * @return
      */
+    @Transactional(readOnly = true)
     @Override
-    public Comment getCommentById(Integer id) {
+    public Comment getCommentById(Long id) {
         // Выводится отладочное сообщение в лог о получении комментария с указанным идентификатором.
         log.debug("Getting comment with id: {}", id);
 
@@ -2,15 +2,28 @@ package ru.skypro.avito.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
+import ru.skypro.avito.cache.SingleFlightLoader;
+import ru.skypro.avito.configuration.metrics.TransferMetrics;
 import ru.skypro.avito.exception.ImageNotFoundException;
+import ru.skypro.avito.exception.IncorrectArgumentException;
 import ru.skypro.avito.model.Image;
 import ru.skypro.avito.repository.ImageRepository;
 import ru.skypro.avito.service.ImageService;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -19,6 +32,9 @@ import java.io.IOException;
 public class ImageServiceImpl implements ImageService<Image> {
 
     private final ImageRepository imageRepository;
+    private final SingleFlightLoader singleFlightLoader;
+    private final ThreadPoolTaskExecutor imageProcessingExecutor;
+    private final TransferMetrics transferMetrics;
 
     /**
      * Метод remove() предназначен для удаления объекта изображения (Image).
@@ -54,6 +70,7 @@ public class ImageServiceImpl implements ImageService<Image> {
         image.setFileSize(imageFile.getSize());
         image.setData(imageFile.getBytes());
         Image savedImage = imageRepository.save(image);
+        transferMetrics.uploaded(TransferMetrics.IMAGE, imageFile.getSize());
 
         // Выводится информационное сообщение в лог о успешной загрузке изображения с указанием его идентификатора (id).
         log.info("Image successfully uploaded with id {}", savedImage.getId());
@@ -67,8 +84,9 @@ public class ImageServiceImpl implements ImageService<Image> {
      * @param id
      * @return
      */
+    @Transactional(readOnly = true)
     @Override
-    public Image getImageById(Integer id) {
+    public Image getImageById(Long id) {
 
         // Выводится отладочное сообщение в лог о попытке получения изображения с указанным идентификатором.
         log.debug("Getting image with id: {}", id);
@@ -77,6 +95,96 @@ public class ImageServiceImpl implements ImageService<Image> {
         // Если объект Image с указанным идентификатором найден, то он возвращается из метода.
         // Если объект Image с указанным идентификатором не найден, то выбрасывается исключение ImageNotFoundException.
         // В случае выбрасывания исключения, сообщение об ошибке будет выведено в лог, и исключение будет передано вызывающему коду.
-        return imageRepository.findById(id).orElseThrow(ImageNotFoundException::new);
+        // Одновременные запросы одного изображения объединяются в один запрос с помощью singleFlightLoader.
+        return singleFlightLoader.load(Image.class, id,
+                () -> imageRepository.findById(id).orElseThrow(ImageNotFoundException::new));
     }
+
+    /**
+     * Метод saveAll() предназначен для сохранения подготовленных изображений; вставки выполняются пакетами.
+     * @param images
+     * @return
+     */
+    public List<Image> saveAll(List<Image> images) {
+        return imageRepository.saveAll(images);
+    }
+
+    /**
+     * Метод prepareImages() предназначен для подготовки нескольких загруженных файлов к сохранению: каждый файл читается,
+     * проверяется (тип image/* и сигнатура формата JPEG, PNG, GIF или WebP) и хешируется (SHA-256) параллельно
+     * в ограниченном пуле imageProcessingExecutor. Возвращаются несохраненные объекты Image в порядке файлов,
+     * чтобы вызывающий код сохранил их одной транзакцией пакетной вставкой. Транзакция на время обработки не открывается.
+     * @param imageFiles
+     * @return
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<Image> prepareImages(List<MultipartFile> imageFiles) {
+        log.debug("Preparing {} image files", imageFiles.size());
+        List<CompletableFuture<Image>> futures = imageFiles.stream()
+                .map(imageFile -> CompletableFuture.supplyAsync(() -> prepareImage(imageFile), imageProcessingExecutor))
+                .collect(Collectors.toList());
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        List<Image> images = futures.stream()
+                .map(CompletableFuture::join)
+                .collect(Collectors.toList());
+        images.forEach(image -> transferMetrics.uploaded(TransferMetrics.IMAGE, image.getFileSize()));
+        return images;
+    }
+
+    private static Image prepareImage(MultipartFile imageFile) {
+        byte[] data;
+        try {
+            data = imageFile.getBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        String mediaType = imageFile.getContentType();
+        if (data.length == 0 || mediaType == null || !mediaType.startsWith("image/") || !isKnownImageFormat(data)) {
+            throw new IncorrectArgumentException();
+        }
+        Image image = new Image();
+        image.setMediaType(mediaType);
+        image.setFileSize((long) data.length);
+        image.setData(data);
+        image.setHash(sha256(data));
+        return image;
+    }
+
+    /**
+     * Проверяет сигнатуру файла: JPEG (FF D8 FF), PNG (89 50 4E 47), GIF ("GIF8") или WebP ("RIFF....WEBP").
+     */
+    private static boolean isKnownImageFormat(byte[] data) {
+        return startsWith(data, 0, 0xFF, 0xD8, 0xFF)
+                || startsWith(data, 0, 0x89, 'P', 'N', 'G')
+                || startsWith(data, 0, 'G', 'I', 'F', '8')
+                || startsWith(data, 0, 'R', 'I', 'F', 'F') && startsWith(data, 8, 'W', 'E', 'B', 'P');
+    }
+
+    private static boolean startsWith(byte[] data, int offset, int... signature) {
+        if (data.length < offset + signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if ((data[offset + i] & 0xFF) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return String.format("%064x", new BigInteger(1, MessageDigest.getInstance("SHA-256").digest(data)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
 }
@@ -0,0 +1,121 @@
+package ru.skypro.avito.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.skypro.avito.dto.AdsDto;
+import ru.skypro.avito.mapper.AdsMapper;
+import ru.skypro.avito.model.Ads;
+import ru.skypro.avito.repository.AdsRepository;
+import ru.skypro.avito.repository.CommentRepository;
+import ru.skypro.avito.repository.projection.AdsActivity;
+import ru.skypro.avito.service.TrendingService;
+import ru.skypro.avito.util.DecayingTopK;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Slf4j
+@Service
+public class TrendingServiceImpl implements TrendingService {
+
+    private final AdsRepository adsRepository;
+    private final CommentRepository commentRepository;
+    private final DecayingTopK<Long> trending;
+    private final double viewWeight;
+    private final double commentWeight;
+    private final double createdWeight;
+
+    public TrendingServiceImpl(AdsRepository adsRepository,
+                               CommentRepository commentRepository,
+                               @Value("${avito.trending.capacity:1000}") int capacity,
+                               @Value("${avito.trending.half-life:6h}") Duration halfLife,
+                               @Value("${avito.trending.weight.view:1}") double viewWeight,
+                               @Value("${avito.trending.weight.comment:5}") double commentWeight,
+                               @Value("${avito.trending.weight.created:10}") double createdWeight) {
+        this.adsRepository = adsRepository;
+        this.commentRepository = commentRepository;
+        this.trending = new DecayingTopK<>(capacity, halfLife, System.currentTimeMillis());
+        this.viewWeight = viewWeight;
+        this.commentWeight = commentWeight;
+        this.createdWeight = createdWeight;
+    }
+
+    /**
+     * Метод rebuild() восстанавливает рейтинг популярных объявлений из базы данных после старта приложения.
+     * Просмотры в базе данных не хранятся, поэтому рейтинг восстанавливается по комментариям:
+     * каждое объявление получает вес всех своих комментариев на момент последнего комментария.
+     * Результат запроса читается потоком, поэтому расход памяти ограничен емкостью структуры, а не размером каталога.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        log.debug("Rebuilding trending ads");
+        trending.clear();
+        try (Stream<AdsActivity> activity = commentRepository.streamAdsActivity()) {
+            activity.forEach(a -> trending.add(a.getAdsId(),
+                    a.getComments() * commentWeight,
+                    a.getLastCommentAt().toEpochMilli()));
+        }
+        log.info("Trending ads rebuilt, tracking {} ads", trending.size());
+    }
+
+    @Override
+    public void recordView(Long adsId) {
+        trending.add(adsId, viewWeight, System.currentTimeMillis());
+    }
+
+    @Override
+    public void recordComment(Long adsId) {
+        trending.add(adsId, commentWeight, System.currentTimeMillis());
+    }
+
+    @Override
+    public void recordCreated(Long adsId) {
+        trending.add(adsId, createdWeight, System.currentTimeMillis());
+    }
+
+    @Override
+    public void remove(Long adsId) {
+        trending.remove(adsId);
+    }
+
+    /**
+     * Метод getTrendingAds() возвращает не более limit популярных объявлений в порядке убывания рейтинга.
+     * Идентификаторы берутся из структуры в памяти, а объявления загружаются одним запросом по списку идентификаторов.
+     * @param limit
+     * @return
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<AdsDto> getTrendingAds(int limit) {
+        log.debug("Getting {} trending ads", limit);
+
+        List<Long> ids = trending.top(Math.max(0, Math.min(limit, trending.capacity())));
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        // Запоминается позиция каждого идентификатора в рейтинге, чтобы восстановить порядок после загрузки из базы данных.
+        Map<Long, Integer> rank = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            rank.put(ids.get(i), i);
+        }
+
+        // Объявления, удаленные на других узлах, просто не будут найдены и пропадут из выдачи.
+        return adsRepository.findAllById(ids)
+                .stream()
+                .sorted(Comparator.comparing((Ads ads) -> rank.get(ads.getId())))
+                .map(AdsMapper.INSTANCE::toDto)
+                .collect(Collectors.toList());
+    }
+
+}
@@ -2,22 +2,31 @@ package ru.skypro.avito.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
+import ru.skypro.avito.cache.invalidation.CacheRegion;
+import ru.skypro.avito.cache.invalidation.InvalidationBus;
 import ru.skypro.avito.dto.NewPassword;
 import ru.skypro.avito.dto.UserDto;
+import ru.skypro.avito.event.UserAvatarChanged;
+import ru.skypro.avito.event.UserPasswordChanged;
+import ru.skypro.avito.event.UserUpdated;
 import ru.skypro.avito.exception.BadCredentialsException;
 import ru.skypro.avito.exception.IncorrectArgumentException;
 import ru.skypro.avito.exception.UsernameNotFoundException;
 import ru.skypro.avito.mapper.UserMapper;
 import ru.skypro.avito.model.User;
+import ru.skypro.avito.repository.CommentRepository;
 import ru.skypro.avito.repository.UserRepository;
 import ru.skypro.avito.service.UserService;
 
 import java.io.IOException;
+import java.time.Instant;
+import java.util.Objects;
 
 @Slf4j
 @Service
@@ -26,8 +35,11 @@ import java.io.IOException;
 public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
+    private final CommentRepository commentRepository;
     private final PasswordEncoder passwordEncoder;
     private final AvatarServiceImpl avatarService;
+    private final InvalidationBus invalidationBus;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Метод updatePassword() предназначен для обновления пароля пользователя в системе.
@@ -54,6 +66,8 @@ public class UserServiceImpl implements UserService {
 
         // Обновленный объект User сохраняется в базе данных с использованием метода userRepository.save().
         userRepository.save(user);
+        invalidationBus.publish(CacheRegion.USER, user.getUsername());
+        eventPublisher.publishEvent(new UserPasswordChanged(user.getUsername()));
 
         // Выводится отладочное сообщение в лог о успешном обновлении пароля для пользователя с указанным именем.
         log.debug("Password updated for user: {}", authentication.getName());
@@ -64,6 +78,7 @@ public class UserServiceImpl implements UserService {
      * @param authentication
      * @return
      */
+    @Transactional(readOnly = true)
     @Override
     public UserDto getUser(Authentication authentication) {
 
@@ -100,12 +115,27 @@ public class UserServiceImpl implements UserService {
         // на основе имени пользователя из объекта authentication.
         // Обновляются поля firstName, lastName и phone объекта User на основе значений из объекта userDto.
         User user = getUserByUsername(authentication.getName());
+
+        // Имя, фамилия и телефон автора входят в FullAds, поэтому при их изменении нужно сбросить закэшированные объявления автора.
+        boolean authorDetailsChanged = !Objects.equals(user.getFirstName(), userDto.getFirstName())
+                || !Objects.equals(user.getLastName(), userDto.getLastName())
+                || !Objects.equals(user.getPhone(), userDto.getPhone());
+        String firstName = user.getFirstName();
         user.setFirstName(userDto.getFirstName());
         user.setLastName(userDto.getLastName());
         user.setPhone(userDto.getPhone());
 
         // Сохраняется объект User в базе данных с использованием репозитория userRepository.
         userRepository.save(user);
+        invalidationBus.publish(CacheRegion.USER, user.getUsername());
+        if (authorDetailsChanged) {
+            invalidationBus.publish(CacheRegion.AUTHOR, user.getUsername());
+        }
+        // Имя автора входит в его комментарии, поэтому они считаются измененными для синхронизации клиентов.
+        if (!Objects.equals(user.getFirstName(), firstName)) {
+            commentRepository.touchAllByAuthorId(user.getId(), Instant.now());
+        }
+        eventPublisher.publishEvent(new UserUpdated(user.getUsername()));
 
         // Выводится информационное сообщение в лог о обновлении деталей пользователя с указанным именем.
         log.debug("User details updated for user: {}", authentication.getName());
@@ -131,9 +161,9 @@ public class UserServiceImpl implements UserService {
         User user = getUserByUsername(authentication.getName());
 
         // Проверяется, существует ли у пользователя уже аватар (user.getAvatar() != null).
-        // Если аватар уже существует, то вызывается метод remove() сервиса avatarService для удаления старого аватара пользователя.
+        // Если аватар уже существует, он только отсоединяется и сбрасывается из кэша: строку avatar без ссылок удалит BlobCollector.
         if (user.getAvatar() != null) {
-            avatarService.remove(user.getAvatar());
+            invalidationBus.publish(CacheRegion.AVATAR, user.getAvatar().getId());
         }
 
         // Вызывается метод uploadImage() сервиса avatarService для загрузки нового файла изображения аватара пользователя.
@@ -142,6 +172,9 @@ public class UserServiceImpl implements UserService {
 
         // Сохраняется объект User в базе данных с использованием репозитория userRepository.
         userRepository.save(user);
+        invalidationBus.publish(CacheRegion.USER, user.getUsername());
+        commentRepository.touchAllByAuthorId(user.getId(), Instant.now());
+        eventPublisher.publishEvent(new UserAvatarChanged(user.getUsername()));
 
         // Выводится информационное сообщение в лог о успешном обновлении аватара пользователя с указанным именем.
         log.debug("Avatar updated for user: {}", authentication.getName());
@@ -153,6 +186,7 @@ public class UserServiceImpl implements UserService {
      * @param username
      * @return
      */
+    @Transactional(readOnly = true)
     public User getUserByUsername(String username) {
 
         // Вызывается метод findByUsernameIgnoreCase() репозитория userRepository с переданным именем пользователя для выполнения поиска в базе данных.
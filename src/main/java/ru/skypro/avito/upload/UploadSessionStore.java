@@ -0,0 +1,348 @@
+package ru.skypro.avito.upload;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import ru.skypro.avito.dto.UploadStatus;
+import ru.skypro.avito.exception.IncorrectArgumentException;
+import ru.skypro.avito.exception.UploadConflictException;
+import ru.skypro.avito.exception.UploadNotFoundException;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * UploadSessionStore - это хранилище сессий загрузки изображений по частям.
+ * Под сессию сразу создается временный файл итогового размера, и каждая часть пишется в него позиционной записью
+ * (FileChannel.transferFrom с позицией) прямо из тела запроса: части могут приходить в любом порядке и одновременно,
+ * а после последней части файл уже собран - склеивать или копировать нечего.
+ * Завершенная загрузка передается сервисам изображений ссылкой на файл (UploadedFile). Сессия удаляется, только когда
+ * вызывающий код подтвердил сохранение изображения (UploadedFile.commit()); если сохранение не удалось, сессия остается,
+ * и клиент может повторить завершение, не загружая файл заново.
+ * Сессии хранятся в памяти узла, который их создал; брошенные сессии удаляются через ttl после последней части.
+ */
+@Slf4j
+@Component
+public class UploadSessionStore {
+
+    private static final String PREFIX = "upload-";
+    private static final String SUFFIX = ".part";
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Path directory;
+    private final long maxSize;
+    private final Duration ttl;
+    private final int maxPerUser;
+
+    public UploadSessionStore(@Value("${avito.upload.session.directory:#{systemProperties['java.io.tmpdir']}}") String directory,
+                              @Value("${spring.servlet.multipart.max-file-size:10MB}") DataSize maxSize,
+                              @Value("${avito.upload.session.ttl:1h}") Duration ttl,
+                              @Value("${avito.upload.session.max-per-user:5}") int maxPerUser) throws IOException {
+        this.directory = Files.createDirectories(Paths.get(directory, "avito-uploads"));
+        this.maxSize = maxSize.toBytes();
+        this.ttl = ttl;
+        this.maxPerUser = maxPerUser;
+        deleteAbandonedFiles();
+    }
+
+    /**
+     * Метод create() предполагает создание сессии загрузки файла размером size.
+     * @param owner
+     * @param size
+     * @param contentType
+     * @return
+     * @throws IOException
+     */
+    public UploadStatus create(String owner, Long size, String contentType) throws IOException {
+        if (size == null || size <= 0 || size > maxSize || contentType == null || contentType.isBlank()) {
+            throw new IncorrectArgumentException();
+        }
+        if (sessions.values().stream().filter(session -> session.owner.equals(owner)).count() >= maxPerUser) {
+            throw new UploadConflictException();
+        }
+        String id = UUID.randomUUID().toString();
+        Path file = directory.resolve(PREFIX + id + SUFFIX);
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            // transferFrom() не пишет за конец файла, поэтому файл сразу получает итоговый размер (разреженный файл).
+            channel.write(ByteBuffer.wrap(new byte[1]), size - 1);
+        } catch (IOException e) {
+            channel.close();
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        Session session = new Session(id, owner, size, contentType, file, channel);
+        sessions.put(id, session);
+        log.debug("Upload session {} of {} bytes created for {}", id, size, owner);
+        return session.status();
+    }
+
+    /**
+     * Метод write() предполагает запись части файла длиной length с позиции offset прямо из тела запроса.
+     * Повторная запись той же части (после обрыва соединения) безопасна.
+     * @param id
+     * @param owner
+     * @param offset
+     * @param length
+     * @param body
+     * @return
+     * @throws IOException
+     */
+    public UploadStatus write(String id, String owner, long offset, long length, InputStream body) throws IOException {
+        Session session = get(id, owner);
+        if (offset < 0 || length <= 0 || offset + length > session.size) {
+            throw new IncorrectArgumentException();
+        }
+        // Части пишутся параллельно под общей блокировкой; завершение и удаление сессии ждут окончания записи.
+        session.lock.readLock().lock();
+        try {
+            if (!session.channel.isOpen()) {
+                throw new UploadNotFoundException();
+            }
+            if (session.completing) {
+                throw new UploadConflictException();
+            }
+            ReadableByteChannel source = Channels.newChannel(body);
+            long written = 0;
+            while (written < length) {
+                long transferred = session.channel.transferFrom(source, offset + written, length - written);
+                if (transferred <= 0) {
+                    break;
+                }
+                written += transferred;
+            }
+            if (written < length) {
+                throw new IncorrectArgumentException();
+            }
+            session.received(offset, offset + length);
+        } finally {
+            session.lock.readLock().unlock();
+        }
+        return session.status();
+    }
+
+    /**
+     * Метод status() предполагает получение состояния загрузки, по которому клиент досылает недостающие части.
+     * @param id
+     * @param owner
+     * @return
+     */
+    public UploadStatus status(String id, String owner) {
+        return get(id, owner).status();
+    }
+
+    /**
+     * Метод size() возвращает размер файла сессии id или -1, если такой сессии нет.
+     * @param id
+     * @return
+     */
+    public long size(String id) {
+        Session session = sessions.get(id);
+        return session == null ? -1 : session.size;
+    }
+
+    /**
+     * Метод complete() предполагает завершение загрузки: файл передается вызывающему коду, а новые части и повторное
+     * завершение той же сессии отклоняются. Вызывающий код должен вызвать UploadedFile.commit() после сохранения
+     * изображения и закрыть файл (UploadedFile.close()): без commit() сессия возвращается в работу вместе с файлом.
+     * @param id
+     * @param owner
+     * @return
+     * @throws IOException
+     */
+    public UploadedFile complete(String id, String owner) throws IOException {
+        Session session = get(id, owner);
+        session.lock.writeLock().lock();
+        try {
+            if (!session.channel.isOpen()) {
+                throw new UploadNotFoundException();
+            }
+            if (session.completing || !session.missing().isEmpty()) {
+                throw new UploadConflictException();
+            }
+            session.channel.force(false);
+            session.completing = true;
+        } finally {
+            session.lock.writeLock().unlock();
+        }
+        log.debug("Upload session {} completing", id);
+        return new UploadedFile(this, session.id, session.file, session.size, session.contentType);
+    }
+
+    /**
+     * Метод finish() вызывается из UploadedFile.close(): подтвержденная загрузка удаляется вместе с файлом,
+     * а неподтвержденная (сохранение не удалось) снова принимает завершение и не удаляется до истечения ttl.
+     * @param id
+     * @param committed
+     */
+    void finish(String id, boolean committed) {
+        Session session = sessions.get(id);
+        if (session == null) {
+            return;
+        }
+        if (committed) {
+            discard(session);
+            log.debug("Upload session {} completed", id);
+            return;
+        }
+        session.lastAccess = Instant.now();
+        session.completing = false;
+        log.debug("Upload session {} was not completed and can be retried", id);
+    }
+
+    /**
+     * Метод discard() предполагает отмену загрузки и удаление ее временного файла.
+     * @param id
+     * @param owner
+     */
+    public void discard(String id, String owner) {
+        discard(get(id, owner));
+    }
+
+    /**
+     * Метод cleanUp() удаляет сессии, в которые не приходили части дольше ttl.
+     */
+    @Scheduled(fixedDelayString = "${avito.upload.session.cleanup-interval:60000}")
+    public void cleanUp() {
+        Instant expiredBefore = Instant.now().minus(ttl);
+        sessions.values().stream()
+                .filter(session -> !session.completing && session.lastAccess.isBefore(expiredBefore))
+                .forEach(this::discard);
+    }
+
+    @PreDestroy
+    public void close() {
+        sessions.values().forEach(this::discard);
+    }
+
+    private Session get(String id, String owner) {
+        Session session = sessions.get(id);
+        // Чужая сессия неотличима от несуществующей.
+        if (session == null || !session.owner.equals(owner)) {
+            throw new UploadNotFoundException();
+        }
+        return session;
+    }
+
+    private void discard(Session session) {
+        session.lock.writeLock().lock();
+        try {
+            sessions.remove(session.id);
+            session.channel.close();
+            Files.deleteIfExists(session.file);
+            log.debug("Upload session {} discarded", session.id);
+        } catch (IOException e) {
+            log.warn("Failed to delete upload file {}", session.file, e);
+        } finally {
+            session.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Сессии живут только в памяти, поэтому файлы, оставшиеся после перезапуска, удаляются, когда истек их ttl.
+     */
+    private void deleteAbandonedFiles() throws IOException {
+        Instant expiredBefore = Instant.now().minus(ttl);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toInstant().isBefore(expiredBefore)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (DirectoryIteratorException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Session - это сессия загрузки. Полученные диапазоны хранятся как start -> end и сливаются при добавлении.
+     */
+    private static class Session {
+
+        private final String id;
+        private final String owner;
+        private final long size;
+        private final String contentType;
+        private final Path file;
+        private final FileChannel channel;
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final TreeMap<Long, Long> ranges = new TreeMap<>();
+        private volatile Instant lastAccess = Instant.now();
+        private volatile boolean completing;
+
+        Session(String id, String owner, long size, String contentType, Path file, FileChannel channel) {
+            this.id = id;
+            this.owner = owner;
+            this.size = size;
+            this.contentType = contentType;
+            this.file = file;
+            this.channel = channel;
+        }
+
+        synchronized void received(long start, long end) {
+            lastAccess = Instant.now();
+            Map.Entry<Long, Long> before = ranges.floorEntry(start);
+            if (before != null && before.getValue() >= start) {
+                start = before.getKey();
+                end = Math.max(end, before.getValue());
+            }
+            Map.Entry<Long, Long> next = ranges.ceilingEntry(start);
+            while (next != null && next.getKey() <= end) {
+                end = Math.max(end, next.getValue());
+                ranges.remove(next.getKey());
+                next = ranges.ceilingEntry(start);
+            }
+            ranges.put(start, end);
+        }
+
+        synchronized List<UploadStatus.Range> missing() {
+            List<UploadStatus.Range> missing = new ArrayList<>();
+            long position = 0;
+            for (Map.Entry<Long, Long> range : ranges.entrySet()) {
+                if (range.getKey() > position) {
+                    missing.add(new UploadStatus.Range(position, range.getKey()));
+                }
+                position = range.getValue();
+            }
+            if (position < size) {
+                missing.add(new UploadStatus.Range(position, size));
+            }
+            return missing;
+        }
+
+        synchronized UploadStatus status() {
+            UploadStatus status = new UploadStatus();
+            status.setId(id);
+            status.setSize(size);
+            status.setReceived(ranges.entrySet().stream().mapToLong(range -> range.getValue() - range.getKey()).sum());
+            status.setMissing(missing());
+            return status;
+        }
+
+    }
+
+}
@@ -0,0 +1,95 @@
+package ru.skypro.avito.upload;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * UploadedFile - это завершенная загрузка по частям, переданная сервисам изображений как MultipartFile.
+ * Файл не копируется в память заранее: сервис читает его с диска сам, когда сохраняет изображение.
+ * Метод commit() подтверждает, что изображение сохранено; метод close() после этого удаляет сессию и временный файл,
+ * а без подтверждения возвращает сессию в хранилище, чтобы клиент мог повторить завершение.
+ */
+public class UploadedFile implements MultipartFile, Closeable {
+
+    private static final String NAME = "image";
+
+    private final UploadSessionStore store;
+    private final String id;
+    private final Path file;
+    private final long size;
+    private final String contentType;
+    private boolean committed;
+
+    UploadedFile(UploadSessionStore store, String id, Path file, long size, String contentType) {
+        this.store = store;
+        this.id = id;
+        this.file = file;
+        this.size = size;
+        this.contentType = contentType;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getOriginalFilename() {
+        return null;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public byte[] getBytes() throws IOException {
+        return Files.readAllBytes(file);
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return Files.newInputStream(file);
+    }
+
+    @Override
+    public void transferTo(File dest) throws IOException {
+        transferTo(dest.toPath());
+    }
+
+    @Override
+    public void transferTo(Path dest) throws IOException {
+        Files.copy(file, dest, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Метод commit() подтверждает, что файл использован и сессию загрузки можно удалить.
+     */
+    public void commit() {
+        committed = true;
+    }
+
+    @Override
+    public void close() {
+        store.finish(id, committed);
+    }
+
+}
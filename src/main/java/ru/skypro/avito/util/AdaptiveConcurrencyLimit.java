@@ -0,0 +1,109 @@
+package ru.skypro.avito.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AdaptiveConcurrencyLimit - это адаптивный лимит одновременно выполняемых запросов, подбираемый по наблюдаемой задержке
+ * (градиентный алгоритм, как Gradient2 в Netflix concurrency-limits).
+ * Долгосрочная задержка (экспоненциальное среднее) служит оценкой задержки без очереди. Пока текущая задержка близка к ней,
+ * лимит растет на размер очереди sqrt(limit); когда задержка растет (база данных замедлилась и запросы стоят в очереди),
+ * лимит умножается на отношение долгосрочной задержки к текущей, но не меньше чем на 0.5.
+ * Ошибки (drop) уменьшают лимит мультипликативно. Получение разрешения - одна операция compareAndSet, пересчет лимита
+ * выполняется после запроса и синхронизирован.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final int LONG_WINDOW = 600;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile int limit;
+    private double estimatedLimit;
+    private double longRtt;
+
+    /**
+     * @param initialLimit начальный лимит
+     * @param minLimit     лимит, ниже которого алгоритм не опускается
+     * @param maxLimit     лимит, выше которого алгоритм не поднимается
+     * @param tolerance    во сколько раз текущая задержка может превышать долгосрочную, прежде чем лимит начнет снижаться
+     */
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        if (minLimit <= 0 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("0 < minLimit <= maxLimit is required");
+        }
+        if (tolerance < 1) {
+            throw new IllegalArgumentException("tolerance must be at least 1");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.limit = (int) estimatedLimit;
+    }
+
+    /**
+     * Метод tryAcquire() пытается занять место для нового запроса.
+     * @return число выполняемых запросов вместе с новым или 0, если лимит исчерпан
+     */
+    public int tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return 0;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+        }
+    }
+
+    /**
+     * Метод release() освобождает место запроса и учитывает его задержку при пересчете лимита.
+     * @param rttNanos задержка запроса
+     * @param inFlightAtStart значение, которое вернул tryAcquire()
+     * @param dropped запрос завершился ошибкой, вызванной перегрузкой
+     */
+    public void release(long rttNanos, int inFlightAtStart, boolean dropped) {
+        inFlight.decrementAndGet();
+        update(rttNanos, inFlightAtStart, dropped);
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void update(long rttNanos, int inFlightAtStart, boolean dropped) {
+        if (dropped) {
+            setLimit(estimatedLimit * BACKOFF_RATIO);
+            return;
+        }
+        double rtt = Math.max(1, rttNanos);
+        longRtt = longRtt == 0 ? rtt : longRtt + (rtt - longRtt) / LONG_WINDOW;
+        // После длительного замедления долгосрочная задержка завышена; она быстрее возвращается вниз, когда задержка упала.
+        if (longRtt / rtt > 2) {
+            longRtt *= 0.95;
+        }
+        // Если запросов намного меньше лимита, задержка ничего не говорит о том, сколько их можно выполнять одновременно.
+        if (inFlightAtStart < estimatedLimit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / rtt));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        setLimit(estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING);
+    }
+
+    private void setLimit(double newLimit) {
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+
+}
@@ -0,0 +1,198 @@
+package ru.skypro.avito.util;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * DecayingTopK - это ограниченная по размеру структура для хранения K ключей с наибольшим экспоненциально затухающим счетом.
+ * Внутри используется min-куча по счету и хэш-индекс ключ -> элемент кучи, поэтому обновление стоит O(log K),
+ * а выборка лидеров - O(K log K) независимо от общего числа ключей.
+ * Затухание реализовано через "прямое" затухание (forward decay): вес события умножается на e^(λ(t - landmark)),
+ * благодаря чему порядок элементов не меняется со временем и пересчитывать все счета при каждом событии не нужно.
+ * @param <K> тип ключа
+ */
+public class DecayingTopK<K> {
+
+    /**
+     * Максимальный показатель экспоненты, после которого точка отсчета (landmark) сдвигается, чтобы избежать переполнения double.
+     */
+    private static final double MAX_EXPONENT = 600;
+
+    private final int capacity;
+    private final double lambda;
+    private final Entry<K>[] heap;
+    private final Map<K, Entry<K>> index;
+    private int size;
+    private long landmark;
+
+    @SuppressWarnings("unchecked")
+    public DecayingTopK(int capacity, Duration halfLife, long landmark) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        if (halfLife.isNegative() || halfLife.isZero()) {
+            throw new IllegalArgumentException("halfLife must be positive");
+        }
+        this.capacity = capacity;
+        this.lambda = Math.log(2) / halfLife.toMillis();
+        this.heap = new Entry[capacity];
+        this.index = new HashMap<>(capacity * 2);
+        this.landmark = landmark;
+    }
+
+    /**
+     * Метод add() добавляет к счету ключа вес события, произошедшего в момент времени timeMillis.
+     * Если ключа еще нет в структуре и она заполнена, ключ вытесняет элемент с минимальным счетом,
+     * только если его счет больше минимального; иначе событие отбрасывается.
+     * @param key
+     * @param weight
+     * @param timeMillis
+     */
+    public synchronized void add(K key, double weight, long timeMillis) {
+        double exponent = lambda * (timeMillis - landmark);
+        if (exponent > MAX_EXPONENT) {
+            rescale(timeMillis);
+            exponent = 0;
+        }
+        double boosted = weight * Math.exp(exponent);
+
+        Entry<K> entry = index.get(key);
+        if (entry != null) {
+            entry.score += boosted;
+            siftDown(entry.position);
+            return;
+        }
+        if (size < capacity) {
+            entry = new Entry<>(key, boosted);
+            heap[size] = entry;
+            entry.position = size;
+            size++;
+            index.put(key, entry);
+            siftUp(entry.position);
+            return;
+        }
+        if (boosted <= heap[0].score) {
+            return;
+        }
+        index.remove(heap[0].key);
+        entry = new Entry<>(key, boosted);
+        heap[0] = entry;
+        index.put(key, entry);
+        siftDown(0);
+    }
+
+    /**
+     * Метод remove() удаляет ключ из структуры (например, при удалении объявления).
+     * @param key
+     */
+    public synchronized void remove(K key) {
+        Entry<K> entry = index.remove(key);
+        if (entry == null) {
+            return;
+        }
+        int position = entry.position;
+        size--;
+        if (position == size) {
+            heap[size] = null;
+            return;
+        }
+        heap[position] = heap[size];
+        heap[position].position = position;
+        heap[size] = null;
+        siftDown(position);
+        siftUp(position);
+    }
+
+    /**
+     * Метод top() возвращает не более limit ключей в порядке убывания счета.
+     * @param limit
+     * @return
+     */
+    public synchronized List<K> top(int limit) {
+        return Arrays.stream(heap, 0, size)
+                .sorted(Comparator.comparingDouble((Entry<K> e) -> e.score).reversed())
+                .limit(limit)
+                .map(e -> e.key)
+                .collect(Collectors.toList());
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(heap, null);
+        index.clear();
+        size = 0;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Сдвигает точку отсчета на newLandmark, уменьшая все счета на одинаковый множитель; порядок в куче при этом не меняется.
+     */
+    private void rescale(long newLandmark) {
+        double factor = Math.exp(-lambda * (newLandmark - landmark));
+        for (int i = 0; i < size; i++) {
+            heap[i].score *= factor;
+        }
+        landmark = newLandmark;
+    }
+
+    private void siftUp(int position) {
+        Entry<K> entry = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (heap[parent].score <= entry.score) {
+                break;
+            }
+            place(heap[parent], position);
+            position = parent;
+        }
+        place(entry, position);
+    }
+
+    private void siftDown(int position) {
+        Entry<K> entry = heap[position];
+        int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            int right = child + 1;
+            if (right < size && heap[right].score < heap[child].score) {
+                child = right;
+            }
+            if (entry.score <= heap[child].score) {
+                break;
+            }
+            place(heap[child], position);
+            position = child;
+        }
+        place(entry, position);
+    }
+
+    private void place(Entry<K> entry, int position) {
+        heap[position] = entry;
+        entry.position = position;
+    }
+
+    private static final class Entry<K> {
+
+        private final K key;
+        private double score;
+        private int position;
+
+        private Entry(K key, double score) {
+            this.key = key;
+            this.score = score;
+        }
+
+    }
+
+}
@@ -0,0 +1,59 @@
+package ru.skypro.avito.util;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * EntityTags - это вспомогательный класс для построения ETag из версий сущностей.
+ * Метки слабые (W/"..."): одно и то же представление может отдаваться как сжатым, так и несжатым.
+ */
+public final class EntityTags {
+
+    private static final Long NO_VERSION = -1L;
+
+    private EntityTags() {
+    }
+
+    /**
+     * Метод weak() строит слабый ETag вида W/"prefix-part1-part2".
+     * @param prefix
+     * @param parts
+     * @return
+     */
+    public static String weak(String prefix, Object... parts) {
+        return Arrays.stream(parts)
+                .map(String::valueOf)
+                .collect(Collectors.joining("-", "W/\"" + prefix + "-", "\""));
+    }
+
+    /**
+     * Метод expectedVersion() извлекает ожидаемую версию сущности из заголовка If-Match, содержащего метку,
+     * построенную методом weak(prefix, id, version, ...). Признак слабой метки (W/) не учитывается.
+     * @param ifMatch
+     * @param prefix
+     * @param id
+     * @return null, если версия не проверяется (заголовка нет или он равен "*"),
+     * или -1, если метка построена не для этой сущности и не совпадает ни с какой версией
+     */
+    public static Long expectedVersion(String ifMatch, String prefix, Object id) {
+        if (ifMatch == null || ifMatch.isBlank() || "*".equals(ifMatch.trim())) {
+            return null;
+        }
+        String value = ifMatch.trim();
+        if (value.startsWith("W/")) {
+            value = value.substring(2);
+        }
+        String start = "\"" + prefix + "-" + id + "-";
+        if (!value.startsWith(start) || !value.endsWith("\"")) {
+            return NO_VERSION;
+        }
+        String rest = value.substring(start.length(), value.length() - 1);
+        int end = rest.indexOf('-');
+        try {
+            return Long.valueOf(end < 0 ? rest : rest.substring(0, end));
+        } catch (NumberFormatException e) {
+            return NO_VERSION;
+        }
+    }
+
+}
@@ -0,0 +1,46 @@
+package ru.skypro.avito.util;
+
+import java.time.Duration;
+
+/**
+ * RequestDeadline - это крайний срок обработки текущего запроса, привязанный к потоку (как SecurityContextHolder).
+ * Устанавливается фильтром на входе запроса и читается там, где нужно ограничить ожидание оставшимся временем,
+ * например при открытии транзакции.
+ */
+public final class RequestDeadline {
+
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+    private RequestDeadline() {
+    }
+
+    /**
+     * Метод start() устанавливает крайний срок через timeout от текущего момента.
+     * @param timeout
+     */
+    public static void start(Duration timeout) {
+        DEADLINE.set(System.nanoTime() + timeout.toNanos());
+    }
+
+    public static void clear() {
+        DEADLINE.remove();
+    }
+
+    public static boolean isSet() {
+        return DEADLINE.get() != null;
+    }
+
+    /**
+     * Метод remainingNanos() возвращает время, оставшееся до крайнего срока.
+     * @return оставшееся время (отрицательное, если срок прошел) или Long.MAX_VALUE, если срок не установлен
+     */
+    public static long remainingNanos() {
+        Long deadline = DEADLINE.get();
+        return deadline == null ? Long.MAX_VALUE : deadline - System.nanoTime();
+    }
+
+    public static boolean isExpired() {
+        return remainingNanos() <= 0;
+    }
+
+}
@@ -0,0 +1,68 @@
+package ru.skypro.avito.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * SingleFlight - это объединение одновременных загрузок по одному ключу.
+ * Первый вызов (лидер) выполняет загрузку в своем потоке, а вызовы с тем же ключом, пришедшие до ее окончания,
+ * ждут результата лидера и получают тот же объект или то же исключение. После окончания загрузки ключ освобождается,
+ * поэтому результат не кэшируется: следующий вызов снова пойдет в источник данных.
+ * @param <K> тип ключа
+ * @param <V> тип результата
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Метод load() возвращает результат загрузки по ключу, выполняя loader, только если такая загрузка еще не идет.
+     * @param key
+     * @param loader
+     * @param timeout максимальное время ожидания чужой загрузки; собственная загрузка лидера не ограничивается
+     * @param unit
+     * @return
+     * @throws TimeoutException если чужая загрузка не завершилась за timeout
+     * @throws InterruptedException если поток прерван во время ожидания
+     */
+    public V load(K key, Supplier<V> loader, long timeout, TimeUnit unit) throws TimeoutException, InterruptedException {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            return await(existing, timeout, unit);
+        }
+        try {
+            V value = loader.get();
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> future, long timeout, TimeUnit unit)
+            throws TimeoutException, InterruptedException {
+        try {
+            return future.get(timeout, unit);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new CompletionException(cause);
+        }
+    }
+
+}
@@ -0,0 +1,64 @@
+package ru.skypro.avito.util;
+
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import ru.skypro.avito.exception.IncorrectArgumentException;
+import ru.skypro.avito.repository.projection.SelectableField;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * SparseFields - это вспомогательный класс для параметра fields=, сужающего ответ до перечисленных полей.
+ * Один и тот же список полей сужает и выборку из базы данных (SparseFieldRepository), и JSON (фильтр @JsonFilter),
+ * поэтому незапрошенные столбцы не читаются и не сериализуются. Сериализаторы Jackson строятся один раз на класс,
+ * фильтр лишь пропускает свойства, которых нет в наборе имен.
+ */
+public final class SparseFields {
+
+    private SparseFields() {
+    }
+
+    /**
+     * Метод parse() разбирает список полей через запятую. Поля возвращаются в порядке объявления,
+     * повторы отбрасываются, поэтому одинаковые наборы полей дают одинаковый текст запроса.
+     * @param fields
+     * @param type
+     * @param byName
+     * @return
+     */
+    public static <F extends Enum<F> & SelectableField> List<F> parse(String fields,
+                                                                      Class<F> type,
+                                                                      Function<String, F> byName) {
+        Set<F> result = EnumSet.noneOf(type);
+        for (String name : fields.split(",")) {
+            F field = byName.apply(name.trim());
+            if (field == null) {
+                throw new IncorrectArgumentException();
+            }
+            result.add(field);
+        }
+        return List.copyOf(result);
+    }
+
+    /**
+     * Метод narrow() оборачивает тело ответа так, чтобы в JSON DTO с фильтром filterId попали только указанные поля.
+     * @param body
+     * @param filterId
+     * @param fields
+     * @return
+     */
+    public static MappingJacksonValue narrow(Object body, String filterId, List<? extends SelectableField> fields) {
+        Set<String> names = fields.stream()
+                .map(SelectableField::getName)
+                .collect(Collectors.toSet());
+        MappingJacksonValue value = new MappingJacksonValue(body);
+        value.setFilters(new SimpleFilterProvider().addFilter(filterId, SimpleBeanPropertyFilter.filterOutAllExcept(names)));
+        return value;
+    }
+
+}
@@ -0,0 +1,116 @@
+package ru.skypro.avito.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * StripedExecutor - это исполнитель задач с упорядочиванием по ключу.
+ * Задачи распределяются по полосам (stripes) по хешу ключа; каждую полосу обслуживает один поток,
+ * поэтому задачи с одним ключом выполняются строго в порядке отправки, а задачи с разными ключами - параллельно.
+ * Очередь каждой полосы ограничена: при заполненной очереди отправитель ждет не дольше переданного таймаута.
+ */
+public class StripedExecutor {
+
+    private static final long POLL_MILLIS = 100;
+
+    private final List<BlockingQueue<Runnable>> queues;
+    private final List<Thread> workers;
+    private volatile boolean running = true;
+
+    /**
+     * @param stripes          число полос (потоков)
+     * @param queueCapacity    емкость очереди одной полосы
+     * @param threadNamePrefix префикс имени потоков
+     */
+    public StripedExecutor(int stripes, int queueCapacity, String threadNamePrefix) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("stripes must be positive");
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be positive");
+        }
+        this.queues = new ArrayList<>(stripes);
+        this.workers = new ArrayList<>(stripes);
+        for (int i = 0; i < stripes; i++) {
+            BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(queueCapacity);
+            Thread worker = new Thread(() -> work(queue), threadNamePrefix + i);
+            worker.setDaemon(true);
+            queues.add(queue);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * Метод submit() ставит задачу в очередь полосы ключа key.
+     * @param key
+     * @param task
+     * @param timeout максимальное время ожидания места в заполненной очереди
+     * @param unit
+     * @return false, если место в очереди не освободилось за timeout или исполнитель остановлен
+     * @throws InterruptedException если поток прерван во время ожидания
+     */
+    public boolean submit(Object key, Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+        if (!running) {
+            return false;
+        }
+        return queues.get(Math.floorMod(key.hashCode(), queues.size())).offer(task, timeout, unit);
+    }
+
+    /**
+     * Метод queued() возвращает число задач, ожидающих выполнения во всех полосах.
+     * @return
+     */
+    public int queued() {
+        return queues.stream().mapToInt(BlockingQueue::size).sum();
+    }
+
+    /**
+     * Метод shutdown() прекращает прием задач и ждет выполнения уже принятых не дольше timeout,
+     * после чего прерывает потоки полос.
+     * @param timeout
+     * @param unit
+     * @return true, если все принятые задачи выполнены
+     * @throws InterruptedException если поток прерван во время ожидания
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        running = false;
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Thread worker : workers) {
+            TimeUnit.NANOSECONDS.timedJoin(worker, Math.max(0, deadline - System.nanoTime()));
+        }
+        boolean drained = true;
+        for (Thread worker : workers) {
+            if (worker.isAlive()) {
+                drained = false;
+                worker.interrupt();
+            }
+        }
+        return drained;
+    }
+
+    private void work(BlockingQueue<Runnable> queue) {
+        while (running || !queue.isEmpty()) {
+            Runnable task;
+            try {
+                task = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (task == null) {
+                continue;
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                // Ошибка задачи не должна останавливать полосу: остальные задачи ее ключей выполнятся.
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+        }
+    }
+
+}
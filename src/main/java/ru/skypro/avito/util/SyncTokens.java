@@ -0,0 +1,55 @@
+package ru.skypro.avito.util;
+
+import ru.skypro.avito.exception.IncorrectArgumentException;
+import ru.skypro.avito.exception.SyncTokenExpiredException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+/**
+ * SyncTokens - это вспомогательный класс для меток синхронизации (параметр since).
+ * Метка - это время в миллисекундах от эпохи; вместо нее клиент может передать время в формате ISO-8601.
+ * Время изменения (updated_at) назначается до фиксации транзакции, поэтому следующая метка выдается
+ * на overlap раньше момента запроса: изменения из транзакций, которые еще не были зафиксированы во время запроса,
+ * попадут в следующую синхронизацию. Часть изменений при этом приходит повторно, и клиент применяет их как upsert.
+ */
+public final class SyncTokens {
+
+    private SyncTokens() {
+    }
+
+    /**
+     * Метод parse() разбирает метку синхронизации.
+     * @param since
+     * @param retention время хранения записей об удалении; более старая метка не позволяет узнать обо всех удалениях
+     * @return
+     * @throws IncorrectArgumentException если метка некорректна
+     * @throws SyncTokenExpiredException если метка старше retention и клиенту нужна полная синхронизация (410)
+     */
+    public static Instant parse(String since, Duration retention) {
+        Instant instant;
+        try {
+            instant = since.chars().allMatch(Character::isDigit)
+                    ? Instant.ofEpochMilli(Long.parseLong(since))
+                    : Instant.parse(since);
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IncorrectArgumentException();
+        }
+        if (instant.isBefore(Instant.now().minus(retention))) {
+            throw new SyncTokenExpiredException();
+        }
+        return instant;
+    }
+
+    /**
+     * Метод next() строит метку для следующей синхронизации по времени начала запроса.
+     * @param queryStart
+     * @param overlap
+     * @return
+     */
+    public static String next(Instant queryStart, Duration overlap) {
+        return String.valueOf(queryStart.minus(overlap).toEpochMilli());
+    }
+
+}
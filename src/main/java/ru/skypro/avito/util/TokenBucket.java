@@ -0,0 +1,74 @@
+package ru.skypro.avito.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TokenBucket - это корзина токенов без блокировок, реализованная по алгоритму GCRA (generic cell rate algorithm).
+ * Вместо числа токенов хранится одно число - теоретическое время прихода следующего запроса (TAT) в наносекундах.
+ * Каждый запрос сдвигает TAT на интервал одного токена; запрос отклоняется, если TAT ушло вперед больше, чем на емкость корзины.
+ * Пополнение происходит "само собой" с течением времени, поэтому фоновые задачи не нужны,
+ * а обновление состояния - это одна операция compareAndSet.
+ */
+public class TokenBucket {
+
+    private final long interval;
+    private final long burst;
+    private final AtomicLong tat;
+
+    /**
+     * @param capacity        максимальное число запросов подряд (емкость корзины)
+     * @param tokensPerSecond скорость пополнения корзины
+     * @param nowNanos        текущее время по System.nanoTime(); корзина создается полной
+     */
+    public TokenBucket(long capacity, double tokensPerSecond, long nowNanos) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        if (tokensPerSecond <= 0) {
+            throw new IllegalArgumentException("tokensPerSecond must be positive");
+        }
+        this.interval = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / tokensPerSecond));
+        this.burst = capacity * interval;
+        this.tat = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Метод tryAcquire() пытается взять один токен в момент nowNanos.
+     * @param nowNanos
+     * @return 0, если токен получен, иначе время в наносекундах, через которое токен появится
+     */
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = tat.get();
+            // Сравнение через разность, а не через Math.max, корректно и при переполнении System.nanoTime().
+            long next = (current - nowNanos > 0 ? current : nowNanos) + interval;
+            long wait = next - burst - nowNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (tat.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Метод refund() возвращает в корзину один токен, взятый ранее методом tryAcquire(), в момент nowNanos.
+     * Корзина не становится полнее, чем была бы без этого запроса: TAT не сдвигается раньше текущего времени.
+     * @param nowNanos
+     */
+    public void refund(long nowNanos) {
+        while (true) {
+            long current = tat.get();
+            if (current - nowNanos <= 0) {
+                return;
+            }
+            long next = current - interval - nowNanos > 0 ? current - interval : nowNanos;
+            if (tat.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+}
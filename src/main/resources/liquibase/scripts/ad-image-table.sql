@@ -0,0 +1,12 @@
+-- liquibase formatted sql
+
+-- changeset sergey:12
+CREATE SEQUENCE IF NOT EXISTS ad_image_seq START WITH 1 INCREMENT BY 50;
+CREATE TABLE IF NOT EXISTS ad_image(
+    id              BIGINT PRIMARY KEY,
+    ads_id          BIGINT NOT NULL REFERENCES ads(id),
+    image_id        BIGINT NOT NULL UNIQUE REFERENCES image(id),
+    position        INTEGER NOT NULL
+);
+CREATE INDEX IF NOT EXISTS ad_image_ads_id_idx ON ad_image(ads_id, position);
+ALTER TABLE image ADD COLUMN IF NOT EXISTS hash VARCHAR(64);
@@ -0,0 +1,35 @@
+-- liquibase formatted sql
+
+-- changeset sergey:9
+ALTER TABLE avatar ALTER COLUMN id TYPE BIGINT;
+ALTER TABLE image ALTER COLUMN id TYPE BIGINT;
+ALTER TABLE users ALTER COLUMN id TYPE BIGINT;
+ALTER TABLE users ALTER COLUMN avatar_id TYPE BIGINT;
+ALTER TABLE ads ALTER COLUMN id TYPE BIGINT;
+ALTER TABLE ads ALTER COLUMN author_id TYPE BIGINT;
+ALTER TABLE ads ALTER COLUMN image_id TYPE BIGINT;
+ALTER TABLE comment ALTER COLUMN id TYPE BIGINT;
+ALTER TABLE comment ALTER COLUMN ads_id TYPE BIGINT;
+ALTER TABLE comment ALTER COLUMN author_id TYPE BIGINT;
+CREATE SEQUENCE IF NOT EXISTS avatar_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS image_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS users_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS ads_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS comment_seq START WITH 1 INCREMENT BY 50;
+
+-- changeset sergey:10 dbms:postgresql
+SELECT setval('avatar_seq', COALESCE(MAX(id), 0) + 1) FROM avatar;
+SELECT setval('image_seq', COALESCE(MAX(id), 0) + 1) FROM image;
+SELECT setval('users_seq', COALESCE(MAX(id), 0) + 1) FROM users;
+SELECT setval('ads_seq', COALESCE(MAX(id), 0) + 1) FROM ads;
+SELECT setval('comment_seq', COALESCE(MAX(id), 0) + 1) FROM comment;
+ALTER TABLE avatar ALTER COLUMN id DROP DEFAULT;
+ALTER TABLE image ALTER COLUMN id DROP DEFAULT;
+ALTER TABLE users ALTER COLUMN id DROP DEFAULT;
+ALTER TABLE ads ALTER COLUMN id DROP DEFAULT;
+ALTER TABLE comment ALTER COLUMN id DROP DEFAULT;
+DROP SEQUENCE IF EXISTS avatar_id_seq;
+DROP SEQUENCE IF EXISTS image_id_seq;
+DROP SEQUENCE IF EXISTS users_id_seq;
+DROP SEQUENCE IF EXISTS ads_id_seq;
+DROP SEQUENCE IF EXISTS comment_id_seq;
@@ -0,0 +1,5 @@
+-- liquibase formatted sql
+
+-- changeset sergey:15
+CREATE INDEX IF NOT EXISTS ads_image_id_idx ON ads(image_id);
+CREATE INDEX IF NOT EXISTS users_avatar_id_idx ON users(avatar_id);
@@ -0,0 +1,11 @@
+-- liquibase formatted sql
+
+-- changeset sergey:7
+CREATE TABLE IF NOT EXISTS cache_invalidation(
+    id              BIGSERIAL PRIMARY KEY,
+    region          VARCHAR(20) NOT NULL,
+    cache_key       VARCHAR(255) NOT NULL,
+    origin          VARCHAR(64) NOT NULL,
+    created_at      TIMESTAMP NOT NULL
+);
+CREATE INDEX IF NOT EXISTS cache_invalidation_created_at_idx ON cache_invalidation(created_at);
@@ -0,0 +1,6 @@
+-- liquibase formatted sql
+
+-- changeset sergey:8
+ALTER TABLE ads ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE ads ADD COLUMN comments_version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE users ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,12 @@
+-- liquibase formatted sql
+
+-- changeset sergey:11
+CREATE TABLE IF NOT EXISTS idempotency_key(
+    id              VARCHAR(64) PRIMARY KEY,
+    request         VARCHAR(255) NOT NULL,
+    status          INTEGER,
+    content_type    VARCHAR(255),
+    body            BYTEA,
+    created_at      TIMESTAMP NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idempotency_key_created_at_idx ON idempotency_key(created_at);
@@ -0,0 +1,19 @@
+-- liquibase formatted sql
+
+-- changeset sergey:13
+CREATE TABLE IF NOT EXISTS outbox(
+    id              BIGSERIAL PRIMARY KEY,
+    seq             BIGINT,
+    type            VARCHAR(64) NOT NULL,
+    event_key       VARCHAR(255) NOT NULL,
+    payload         VARCHAR(2000) NOT NULL,
+    created_at      TIMESTAMP NOT NULL,
+    published_at    TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS outbox_seq_id_idx ON outbox(seq, id);
+
+CREATE TABLE IF NOT EXISTS outbox_relay(
+    id              INTEGER PRIMARY KEY,
+    last_seq        BIGINT NOT NULL
+);
+INSERT INTO outbox_relay (id, last_seq) VALUES (1, 0);
@@ -0,0 +1,22 @@
+-- liquibase formatted sql
+
+-- changeset sergey:14
+ALTER TABLE ads ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+ALTER TABLE comment ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+UPDATE comment SET updated_at = created_at;
+CREATE INDEX IF NOT EXISTS ads_author_id_updated_at_idx ON ads(author_id, updated_at);
+CREATE INDEX IF NOT EXISTS comment_ads_id_updated_at_idx ON comment(ads_id, updated_at);
+
+CREATE TABLE IF NOT EXISTS ads_tombstone(
+    ads_id          BIGINT PRIMARY KEY,
+    author_id       BIGINT NOT NULL,
+    deleted_at      TIMESTAMP NOT NULL
+);
+CREATE INDEX IF NOT EXISTS ads_tombstone_author_id_deleted_at_idx ON ads_tombstone(author_id, deleted_at);
+
+CREATE TABLE IF NOT EXISTS comment_tombstone(
+    comment_id      BIGINT PRIMARY KEY,
+    ads_id          BIGINT NOT NULL,
+    deleted_at      TIMESTAMP NOT NULL
+);
+CREATE INDEX IF NOT EXISTS comment_tombstone_ads_id_deleted_at_idx ON comment_tombstone(ads_id, deleted_at);
@@ -0,0 +1,165 @@
+package ru.skypro.avito.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import ru.skypro.avito.cache.invalidation.CacheRegion;
+import ru.skypro.avito.cache.invalidation.LocalInvalidationBus;
+import ru.skypro.avito.repository.AdsRepository;
+import ru.skypro.avito.repository.projection.AdsListingState;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class AdsPageCacheTest {
+
+    private final LocalInvalidationBus invalidationBus = new LocalInvalidationBus("node");
+    private final AdsRepository adsRepository = mock(AdsRepository.class);
+    private final AdsListingVersion listingVersion = new AdsListingVersion(invalidationBus, adsRepository);
+    private final FakeTicker ticker = new FakeTicker();
+    private final AdsPageCache adsPageCache = new AdsPageCache(DataSize.ofKilobytes(64), Duration.ofMinutes(1), ticker::read);
+
+    /**
+     * Данный тест testPutStoresBodyAndGzipCopy() проверяет, что запись хранит тело ответа и его корректную gzip-копию.
+     */
+    @Test
+    public void testPutStoresBodyAndGzipCopy() throws IOException {
+        byte[] body = "{\"count\":0,\"results\":[]}".getBytes(StandardCharsets.UTF_8);
+
+        adsPageCache.put("/ads", listingVersion.get(), "application/json", body);
+
+        AdsPageCache.Page page = adsPageCache.get("/ads", listingVersion.get());
+        assertNotNull(page);
+        assertArrayEquals(body, page.getBody());
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(page.getGzipped()))) {
+            assertArrayEquals(body, in.readAllBytes());
+        }
+    }
+
+    /**
+     * Данный тест testAdsInvalidationMakesPagesStale() проверяет, что сообщение области ADS делает устаревшими все записи
+     * и меняет ETag списка, а сообщения других областей на них не влияют.
+     */
+    @Test
+    public void testAdsInvalidationMakesPagesStale() {
+        when(adsRepository.findListingState()).thenReturn(state(1, 1, 0));
+        String tag = listingVersion.getTag(listingVersion.get());
+        adsPageCache.put("/ads", listingVersion.get(), "application/json", new byte[]{1});
+
+        invalidationBus.publish(CacheRegion.COMMENTS, 1);
+        assertNotNull(adsPageCache.get("/ads", listingVersion.get()));
+        assertEquals(tag, listingVersion.getTag(listingVersion.get()));
+
+        when(adsRepository.findListingState()).thenReturn(state(2, 2, 0));
+        invalidationBus.publish(CacheRegion.ADS, 1);
+        assertNull(adsPageCache.get("/ads", listingVersion.get()));
+        assertNotEquals(tag, listingVersion.getTag(listingVersion.get()));
+    }
+
+    /**
+     * Данный тест testPageBuiltBeforeInvalidationIsNotServed() проверяет, что ответ, собранный по версии,
+     * прочитанной до изменения списка, не отдается из кэша.
+     */
+    @Test
+    public void testPageBuiltBeforeInvalidationIsNotServed() {
+        long version = listingVersion.get();
+
+        invalidationBus.publish(CacheRegion.ADS, 1);
+        adsPageCache.put("/ads", version, "application/json", new byte[]{1});
+
+        assertNull(adsPageCache.get("/ads", listingVersion.get()));
+    }
+
+    /**
+     * Данный тест testCacheIsBoundedByBytes() проверяет, что кэш ограничен суммарным объемом записей:
+     * три записи, каждая из которых занимает больше половины бюджета, не хранятся одновременно.
+     */
+    @Test
+    public void testCacheIsBoundedByBytes() {
+        long version = listingVersion.get();
+        for (int i = 0; i < 3; i++) {
+            adsPageCache.put("/ads?fields=" + i, version, "application/json", new byte[40 * 1024]);
+        }
+
+        int cached = 0;
+        for (int i = 0; i < 3; i++) {
+            if (adsPageCache.get("/ads?fields=" + i, version) != null) {
+                cached++;
+            }
+        }
+        assertTrue(cached <= 1);
+    }
+
+    /**
+     * Данный тест testPageExpiresAfterTtl() проверяет, что запись перестает отдаваться по истечении ttl,
+     * даже если версия списка объявлений не изменилась.
+     */
+    @Test
+    public void testPageExpiresAfterTtl() {
+        adsPageCache.put("/ads", listingVersion.get(), "application/json", new byte[]{1});
+
+        ticker.advance(Duration.ofSeconds(59));
+        assertNotNull(adsPageCache.get("/ads", listingVersion.get()));
+
+        ticker.advance(Duration.ofSeconds(2));
+        assertNull(adsPageCache.get("/ads", listingVersion.get()));
+    }
+
+    /**
+     * Данный тест testListingTagIsSharedAcrossNodes() проверяет, что ETag списка строится из состояния базы данных:
+     * узлы с разными локальными версиями отдают одну и ту же метку, а состояние читается один раз на версию.
+     */
+    @Test
+    public void testListingTagIsSharedAcrossNodes() {
+        when(adsRepository.findListingState()).thenReturn(state(3, 7, 12));
+        LocalInvalidationBus otherBus = new LocalInvalidationBus("other");
+        AdsListingVersion otherNode = new AdsListingVersion(otherBus, adsRepository);
+        otherBus.publish(CacheRegion.ADS, 1);
+
+        String tag = listingVersion.getTag(listingVersion.get());
+        assertNotEquals(listingVersion.get(), otherNode.get());
+        assertEquals(tag, otherNode.getTag(otherNode.get()));
+
+        assertEquals(tag, listingVersion.getTag(listingVersion.get()));
+        verify(adsRepository, times(2)).findListingState();
+    }
+
+    private static final class FakeTicker {
+
+        private final AtomicLong nanos = new AtomicLong();
+
+        long read() {
+            return nanos.get();
+        }
+
+        void advance(Duration duration) {
+            nanos.addAndGet(duration.toNanos());
+        }
+    }
+
+    private static AdsListingState state(long count, long maxId, long versionSum) {
+        return new AdsListingState() {
+            @Override
+            public Long getCount() {
+                return count;
+            }
+
+            @Override
+            public Long getMaxId() {
+                return maxId;
+            }
+
+            @Override
+            public Long getVersionSum() {
+                return versionSum;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,104 @@
+package ru.skypro.avito.cache;
+
+import org.junit.jupiter.api.Test;
+import ru.skypro.avito.cache.invalidation.CacheRegion;
+import ru.skypro.avito.cache.invalidation.LocalInvalidationBus;
+import ru.skypro.avito.dto.FullAds;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FullAdsCacheTest {
+
+    private final LocalInvalidationBus invalidationBus = new LocalInvalidationBus("node");
+    private final FullAdsCache fullAdsCache = new FullAdsCache(100, Duration.ofMinutes(10), invalidationBus);
+    private final Map<Long, String> authors = new HashMap<>();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Function<Long, FullAdsCache.Entry> loader = id -> {
+        loads.incrementAndGet();
+        return entry(id, authors.get(id));
+    };
+
+    /**
+     * Данный тест testAuthorInvalidationDropsOnlyAuthorAds() проверяет, что сообщение области AUTHOR (его публикует
+     * UserServiceImpl.updateUser() при изменении имени или телефона) сбрасывает все объявления автора
+     * без учета регистра имени и не трогает объявления других авторов.
+     */
+    @Test
+    public void testAuthorInvalidationDropsOnlyAuthorAds() {
+        authors.put(1L, "author@mail.ru");
+        authors.put(2L, "author@mail.ru");
+        authors.put(3L, "other@mail.ru");
+        fullAdsCache.getAll(List.of(1L, 2L, 3L), ids -> {
+            Map<Long, FullAdsCache.Entry> entries = new HashMap<>();
+            ids.forEach(id -> entries.put(id, loader.apply(id)));
+            return entries;
+        });
+        assertEquals(3, loads.get());
+
+        invalidationBus.publish(CacheRegion.AUTHOR, "Author@Mail.ru");
+
+        fullAdsCache.get(1L, loader);
+        fullAdsCache.get(2L, loader);
+        fullAdsCache.get(3L, loader);
+        assertEquals(5, loads.get());
+    }
+
+    /**
+     * Данный тест testRemovedEntryLeavesAuthorIndex() проверяет, что при удалении записи из кэша слушатель удаления
+     * убирает ее из обратного индекса: объявление, сменившее автора, не сбрасывается при изменении прежнего автора.
+     */
+    @Test
+    public void testRemovedEntryLeavesAuthorIndex() {
+        authors.put(1L, "author@mail.ru");
+        fullAdsCache.get(1L, loader);
+
+        fullAdsCache.invalidate(1L);
+        authors.put(1L, "other@mail.ru");
+        fullAdsCache.get(1L, loader);
+        assertEquals(2, loads.get());
+
+        fullAdsCache.invalidateAuthor("author@mail.ru");
+        fullAdsCache.get(1L, loader);
+        assertEquals(2, loads.get());
+
+        fullAdsCache.invalidateAuthor("other@mail.ru");
+        fullAdsCache.get(1L, loader);
+        assertEquals(3, loads.get());
+    }
+
+    /**
+     * Данный тест testAuthorInvalidationDuringLoadIsNotCached() проверяет, что запись, во время загрузки которой
+     * сбрасывались объявления автора (идентификатора в обратном индексе еще не было), не остается в кэше.
+     */
+    @Test
+    public void testAuthorInvalidationDuringLoadIsNotCached() {
+        FullAds loaded = fullAdsCache.get(1L, id -> {
+            loads.incrementAndGet();
+            FullAdsCache.Entry entry = entry(id, "author@mail.ru");
+            fullAdsCache.invalidateAuthor("author@mail.ru");
+            return entry;
+        });
+        assertEquals("author@mail.ru", loaded.getEmail());
+
+        authors.put(1L, "author@mail.ru");
+        fullAdsCache.get(1L, loader);
+        assertEquals(2, loads.get());
+        fullAdsCache.get(1L, loader);
+        assertEquals(2, loads.get());
+    }
+
+    private static FullAdsCache.Entry entry(Long id, String email) {
+        FullAds fullAds = new FullAds();
+        fullAds.setPk(id);
+        fullAds.setEmail(email);
+        return new FullAdsCache.Entry(fullAds, "W/\"ads-" + id + "\"");
+    }
+
+}
@@ -0,0 +1,114 @@
+package ru.skypro.avito.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.skypro.avito.cache.invalidation.CacheRegion;
+import ru.skypro.avito.cache.invalidation.InvalidationBus;
+import ru.skypro.avito.cache.invalidation.InvalidationMessage;
+import ru.skypro.avito.cache.invalidation.JdbcInvalidationBus;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "avito.cache.invalidation.bus=jdbc")
+public class JdbcInvalidationBusTest {
+
+    @Autowired
+    private InvalidationBus invalidationBus;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private JdbcInvalidationBus otherNode;
+    private final List<InvalidationMessage> received = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        // Создается шина второго узла, подключенная к той же базе данных.
+        otherNode = new JdbcInvalidationBus(jdbcTemplate, "other-node", 100, Duration.ofSeconds(10), Duration.ofHours(1));
+        otherNode.init();
+        otherNode.subscribe(received::add);
+    }
+
+    /**
+     * Данный тест testCommittedMessageIsDeliveredToOtherNode() проверяет, что сообщение, опубликованное в зафиксированной транзакции,
+     * доставляется другому узлу с возрастающей версией.
+     */
+    @Test
+    public void testCommittedMessageIsDeliveredToOtherNode() {
+        transactionTemplate.executeWithoutResult(status -> {
+            invalidationBus.publish(CacheRegion.ADS, 42);
+            invalidationBus.publish(CacheRegion.AUTHOR, "user@mail.ru");
+        });
+
+        otherNode.poll();
+
+        assertEquals(2, received.size());
+        assertEquals(CacheRegion.ADS, received.get(0).getRegion());
+        assertEquals("42", received.get(0).getKey());
+        assertEquals(CacheRegion.AUTHOR, received.get(1).getRegion());
+        assertTrue(received.get(1).getVersion() > received.get(0).getVersion());
+    }
+
+    /**
+     * Данный тест testRolledBackMessageIsNotDelivered() проверяет, что сообщение из откатанной транзакции никому не доставляется.
+     */
+    @Test
+    public void testRolledBackMessageIsNotDelivered() {
+        transactionTemplate.executeWithoutResult(status -> {
+            invalidationBus.publish(CacheRegion.ADS, 7);
+            status.setRollbackOnly();
+        });
+
+        otherNode.poll();
+
+        assertTrue(received.isEmpty());
+    }
+
+    /**
+     * Данный тест testNodeDoesNotRedeliverOwnMessages() проверяет, что узел не получает повторно собственные сообщения при опросе таблицы.
+     */
+    @Test
+    public void testNodeDoesNotRedeliverOwnMessages() {
+        transactionTemplate.executeWithoutResult(status -> otherNode.publish(CacheRegion.IMAGE, 1));
+        received.clear();
+
+        otherNode.poll();
+
+        assertTrue(received.isEmpty());
+        assertFalse(otherNode.getLastVersion() == 0);
+    }
+
+    /**
+     * Данный тест testOpenGapDoesNotStallNewMessages() проверяет, что при открытом пропуске (откатанная транзакция)
+     * сообщения, записанные после него в количестве больше batch-size, доставляются следующими опросами, а не ждут gap-timeout.
+     */
+    @Test
+    public void testOpenGapDoesNotStallNewMessages() {
+        transactionTemplate.executeWithoutResult(status -> {
+            invalidationBus.publish(CacheRegion.ADS, 0);
+            status.setRollbackOnly();
+        });
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 1; i <= 150; i++) {
+                invalidationBus.publish(CacheRegion.ADS, i);
+            }
+        });
+
+        otherNode.poll();
+        assertEquals(100, received.size());
+
+        otherNode.poll();
+        assertEquals(150, received.size());
+        assertEquals("150", received.get(149).getKey());
+    }
+
+}
@@ -0,0 +1,135 @@
+package ru.skypro.avito.configuration.converter;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.skypro.avito.dto.AdsCommentDto;
+import ru.skypro.avito.dto.AdsDto;
+import ru.skypro.avito.dto.ResponseWrapper;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Сравнение JSON, CBOR и Smile на списках объявлений и комментариев, похожих на реальные:
+ * размер ответа проверяется, время сериализации только выводится в лог, так как зависит от машины.
+ */
+@Slf4j
+public class BinaryFormatConverterTest {
+
+    private static final int SIZE = 1000;
+    private static final int WARM_UP = 20;
+    private static final int ITERATIONS = 50;
+    private static final String[] WORDS = {"продам", "велосипед", "диван", "новый", "б/у", "отличное", "состояние",
+            "самовывоз", "торг", "Москва", "доставка", "гарантия", "iPhone", "коляска", "недорого", "срочно"};
+
+    private final Random random = new Random(42);
+
+    /**
+     * Данный тест testBinaryFormatsAreSmallerAndEquivalentToJson() проверяет, что списки AdsDto и AdsCommentDto
+     * в CBOR и Smile меньше, чем в JSON, и после разбора совпадают с JSON.
+     */
+    @Test
+    public void testBinaryFormatsAreSmallerAndEquivalentToJson() throws Exception {
+        Map<String, ObjectMapper> mappers = Map.of(
+                "json", mapper(new JsonFactory()),
+                "cbor", mapper(new CBORFactory()),
+                "smile", mapper(new SmileFactory()));
+        Map<String, ResponseWrapper<?>> datasets = Map.of(
+                "ads", ResponseWrapper.of(ads()),
+                "comments", ResponseWrapper.of(comments()));
+
+        for (Map.Entry<String, ResponseWrapper<?>> dataset : datasets.entrySet()) {
+            ObjectMapper json = mappers.get("json");
+            byte[] jsonBytes = json.writeValueAsBytes(dataset.getValue());
+            for (Map.Entry<String, ObjectMapper> mapper : mappers.entrySet()) {
+                byte[] bytes = mapper.getValue().writeValueAsBytes(dataset.getValue());
+                log.info("{} as {}: {} bytes ({}% of JSON), {} us per serialization",
+                        dataset.getKey(), mapper.getKey(), bytes.length, bytes.length * 100 / jsonBytes.length,
+                        serializationMicros(mapper.getValue(), dataset.getValue()));
+                if (mapper.getValue() == json) {
+                    continue;
+                }
+                assertTrue(bytes.length < jsonBytes.length);
+                assertEquals(json.readTree(jsonBytes), mapper.getValue().readTree(bytes));
+            }
+        }
+    }
+
+    /**
+     * ObjectMapper собирается так же, как в приложении: фильтр свойств по умолчанию сериализует все поля.
+     */
+    private static ObjectMapper mapper(JsonFactory factory) {
+        return Jackson2ObjectMapperBuilder.json()
+                .factory(factory)
+                .filters(new SimpleFilterProvider().setDefaultFilter(SimpleBeanPropertyFilter.serializeAll()))
+                .build();
+    }
+
+    private static long serializationMicros(ObjectMapper mapper, Object value) throws Exception {
+        for (int i = 0; i < WARM_UP; i++) {
+            mapper.writeValueAsBytes(value);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            mapper.writeValueAsBytes(value);
+        }
+        return (System.nanoTime() - start) / ITERATIONS / 1000;
+    }
+
+    private List<AdsDto> ads() {
+        List<AdsDto> ads = new ArrayList<>(SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            AdsDto dto = new AdsDto();
+            dto.setPk(100_000L + i);
+            dto.setAuthor(1_000L + random.nextInt(500));
+            dto.setImage("/ads/image/" + (200_000 + i));
+            dto.setPrice(random.nextInt(500_000));
+            dto.setTitle(text(4));
+            dto.setDescription(text(40));
+            ads.add(dto);
+        }
+        return ads;
+    }
+
+    private List<AdsCommentDto> comments() {
+        Instant now = Instant.parse("2024-05-01T12:00:00Z");
+        List<AdsCommentDto> comments = new ArrayList<>(SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            AdsCommentDto dto = new AdsCommentDto();
+            dto.setPk(500_000L + i);
+            dto.setAuthor(1_000L + random.nextInt(500));
+            dto.setAuthorImage("/users/avatar/" + (3_000 + random.nextInt(500)));
+            dto.setAuthorFirstName("Пользователь" + random.nextInt(500));
+            dto.setCreatedAt(now.minus(random.nextInt(100_000), ChronoUnit.MINUTES).toString());
+            dto.setText(text(15));
+            comments.add(dto);
+        }
+        return comments;
+    }
+
+    private String text(int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+
+}
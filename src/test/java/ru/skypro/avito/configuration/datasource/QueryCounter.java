@@ -0,0 +1,133 @@
+package ru.skypro.avito.configuration.datasource;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * QueryCounter - это счетчик SQL-запросов для проверки бюджета запросов эндпоинтов в тестах.
+ * Запросы считаются только в потоке, вызвавшем start(), - это поток теста, в котором MockMvc выполняет запрос;
+ * запросы фоновых задач (relay outbox, сборщик изображений, шина инвалидации) в бюджет не попадают.
+ * Каждое выполнение JDBC-запроса (в том числе пакет) считается одним обращением к базе данных.
+ * При превышении бюджета тест падает со списком выполненных запросов, их временем и видом.
+ */
+public class QueryCounter implements QueryExecutionListener {
+
+    private final ThreadLocal<List<Statement>> recording = new ThreadLocal<>();
+
+    private final ObjectProvider<EntityManagerFactory> entityManagerFactory;
+
+    public QueryCounter(ObjectProvider<EntityManagerFactory> entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * Метод start() начинает подсчет запросов в текущем потоке. Перед этим изменения из setUp() сохраняются в базу данных,
+     * а контекст персистентности очищается, чтобы эндпоинт не получил уже загруженные тестом сущности без запросов.
+     */
+    public void start() {
+        EntityManager entityManager = transactionalEntityManager();
+        if (entityManager != null) {
+            entityManager.flush();
+            entityManager.clear();
+        }
+        recording.set(new ArrayList<>());
+    }
+
+    /**
+     * Метод assertBudget() завершает подсчет и проверяет, что выполнено не больше maxStatements запросов.
+     * @param maxStatements
+     */
+    public void assertBudget(int maxStatements) {
+        assertBudget(maxStatements, null);
+    }
+
+    /**
+     * Метод assertBudget() завершает подсчет и проверяет, что выполнено не больше maxStatements запросов,
+     * а их суммарное время не превышает maxTime. Транзакция теста не фиксируется, поэтому изменения, которые Hibernate
+     * записал бы при фиксации, сохраняются в базу данных до завершения подсчета и тоже входят в бюджет.
+     * @param maxStatements
+     * @param maxTime
+     */
+    public void assertBudget(int maxStatements, Duration maxTime) {
+        EntityManager entityManager = transactionalEntityManager();
+        if (entityManager != null) {
+            entityManager.flush();
+        }
+        List<Statement> statements = recording.get();
+        recording.remove();
+        if (statements == null) {
+            fail("QueryCounter.start() was not called");
+        }
+        long totalMillis = statements.stream().mapToLong(statement -> statement.elapsedMillis).sum();
+        if (statements.size() > maxStatements) {
+            fail(String.format("Expected at most %d statements but %d were executed in %d ms:%n%s",
+                    maxStatements, statements.size(), totalMillis, report(statements)));
+        }
+        if (maxTime != null && totalMillis > maxTime.toMillis()) {
+            fail(String.format("Expected statements to take at most %d ms but they took %d ms:%n%s",
+                    maxTime.toMillis(), totalMillis, report(statements)));
+        }
+    }
+
+    private EntityManager transactionalEntityManager() {
+        return EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory.getObject());
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        List<Statement> statements = recording.get();
+        if (statements == null) {
+            return;
+        }
+        String sql = queryInfoList.stream()
+                .map(query -> query.getQuery().replaceAll("\\s+", " ").trim())
+                .collect(Collectors.joining("; "));
+        statements.add(new Statement(sql, execInfo.getElapsedTime(), execInfo.isBatch() ? execInfo.getBatchSize() : 0));
+    }
+
+    private static String report(List<Statement> statements) {
+        StringBuilder report = new StringBuilder();
+        for (int i = 0; i < statements.size(); i++) {
+            Statement statement = statements.get(i);
+            report.append(String.format("  %d. [%s, %d ms%s] %s%n", i + 1, statement.shape(), statement.elapsedMillis,
+                    statement.batchSize > 0 ? ", batch of " + statement.batchSize : "", statement.sql));
+        }
+        return report.toString();
+    }
+
+    private static final class Statement {
+
+        private final String sql;
+        private final long elapsedMillis;
+        private final int batchSize;
+
+        private Statement(String sql, long elapsedMillis, int batchSize) {
+            this.sql = sql;
+            this.elapsedMillis = elapsedMillis;
+            this.batchSize = batchSize;
+        }
+
+        private String shape() {
+            int end = sql.indexOf(' ');
+            return (end < 0 ? sql : sql.substring(0, end)).toUpperCase(Locale.ROOT);
+        }
+    }
+
+}
@@ -0,0 +1,65 @@
+package ru.skypro.avito.configuration.datasource;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * QueryCountingConfiguration - это тестовая конфигурация, которая оборачивает основной DataSource в datasource-proxy
+ * и передает все выполненные запросы в QueryCounter. Подключается к тестам через @Import.
+ */
+@TestConfiguration
+public class QueryCountingConfiguration {
+
+    @Bean
+    public QueryCounter queryCounter(ObjectProvider<EntityManagerFactory> entityManagerFactory) {
+        return new QueryCounter(entityManagerFactory);
+    }
+
+    @Bean
+    public static BeanPostProcessor queryCountingDataSourcePostProcessor(ObjectProvider<QueryCounter> queryCounter) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && "dataSource".equals(beanName)) {
+                    return ProxyDataSourceBuilder.create((DataSource) bean)
+                            .name(beanName)
+                            .listener(new LazyListener(queryCounter))
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Счетчик запрашивается при первом запросе: постпроцессор создается раньше обычных бинов и не должен их создавать.
+     */
+    private static final class LazyListener implements QueryExecutionListener {
+
+        private final ObjectProvider<QueryCounter> queryCounter;
+
+        private LazyListener(ObjectProvider<QueryCounter> queryCounter) {
+            this.queryCounter = queryCounter;
+        }
+
+        @Override
+        public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        }
+
+        @Override
+        public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            queryCounter.getObject().afterQuery(execInfo, queryInfoList);
+        }
+    }
+
+}
@@ -0,0 +1,110 @@
+package ru.skypro.avito.configuration.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ReplicaRoutingDataSourceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    @BeforeEach
+    void setUp() {
+        // Создаются две независимые базы H2 в памяти: основная и реплика. В каждой лежит строка с ее именем.
+        DataSource primary = database("primary");
+        DataSource replica = database("replica");
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, Map.of("replica-1", replica),
+                new ReadYourWritesTracker(Duration.ofMinutes(1), 100), () -> meterRegistry);
+        routing.afterPropertiesSet();
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        SecurityContextHolder.clearContext();
+    }
+
+    /**
+     * Данный тест testReadOnlyTransactionGoesToReplica() проверяет, что транзакция только для чтения направляется на реплику,
+     * а обычная транзакция - на основную базу данных.
+     */
+    @Test
+    public void testReadOnlyTransactionGoesToReplica() {
+        assertEquals("replica", readOnly.execute(status -> currentNode()));
+        assertEquals("primary", readWrite.execute(status -> currentNode()));
+        assertEquals(1.0, meterRegistry.counter("avito.datasource.routed", "route", "replica-1").count());
+    }
+
+    /**
+     * Данный тест testUserReadsOwnWritesFromPrimary() проверяет, что после пишущей транзакции
+     * чтения того же пользователя идут на основную базу, а чтения других пользователей - на реплику.
+     */
+    @Test
+    public void testUserReadsOwnWritesFromPrimary() {
+        authenticate("writer");
+        readWrite.execute(status -> currentNode());
+        assertEquals("primary", readOnly.execute(status -> currentNode()));
+
+        authenticate("reader");
+        assertEquals("replica", readOnly.execute(status -> currentNode()));
+    }
+
+    /**
+     * Данный тест testPrimaryScopeSendsReadOnlyTransactionToPrimary() проверяет, что внутри primaryScope()
+     * транзакция только для чтения идет на основную базу данных, а после закрытия области - снова на реплику.
+     */
+    @Test
+    public void testPrimaryScopeSendsReadOnlyTransactionToPrimary() {
+        try (ReplicaRoutingDataSource.PrimaryScope outer = ReplicaRoutingDataSource.primaryScope()) {
+            try (ReplicaRoutingDataSource.PrimaryScope inner = ReplicaRoutingDataSource.primaryScope()) {
+                assertEquals("primary", readOnly.execute(status -> currentNode()));
+            }
+            assertEquals("primary", readOnly.execute(status -> currentNode()));
+        }
+        assertEquals("replica", readOnly.execute(status -> currentNode()));
+    }
+
+    private String currentNode() {
+        return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    private static void authenticate(String username) {
+        SecurityContextHolder.getContext()
+                .setAuthentication(new UsernamePasswordAuthenticationToken(username, null, List.of()));
+    }
+
+    private static DataSource database(String name) {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:routing-" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.execute("CREATE TABLE IF NOT EXISTS node(name VARCHAR(20))");
+        template.execute("DELETE FROM node");
+        template.update("INSERT INTO node(name) VALUES (?)", name);
+        return dataSource;
+    }
+
+}
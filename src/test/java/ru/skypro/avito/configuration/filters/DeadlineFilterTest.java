@@ -0,0 +1,77 @@
+package ru.skypro.avito.configuration.filters;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import ru.skypro.avito.util.RequestDeadline;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeadlineFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DeadlineFilter filter = new DeadlineFilter(Duration.ofSeconds(5), Duration.ofSeconds(10),
+            Duration.ofSeconds(30), Duration.ofSeconds(20), meterRegistry);
+
+    /**
+     * Данный тест testDeadlineDependsOnEndpointAndHeader() проверяет, что срок по умолчанию зависит от метода,
+     * заголовок X-Request-Timeout его заменяет, но не больше max, а после запроса срок снимается.
+     */
+    @Test
+    public void testDeadlineDependsOnEndpointAndHeader() throws Exception {
+        assertEquals(5, remainingSeconds(new MockHttpServletRequest("GET", "/ads")));
+        assertEquals(10, remainingSeconds(new MockHttpServletRequest("PATCH", "/ads/1")));
+
+        MockHttpServletRequest shortened = new MockHttpServletRequest("GET", "/ads");
+        shortened.addHeader(DeadlineFilter.TIMEOUT_HEADER, "1500");
+        assertEquals(2, remainingSeconds(shortened));
+
+        MockHttpServletRequest extended = new MockHttpServletRequest("GET", "/ads");
+        extended.addHeader(DeadlineFilter.TIMEOUT_HEADER, "600000");
+        assertEquals(20, remainingSeconds(extended));
+
+        assertFalse(RequestDeadline.isSet());
+    }
+
+    /**
+     * Данный тест testFailureAfterDeadlineReturnsServiceUnavailable() проверяет, что ошибка после истечения срока
+     * превращается в 503 с Retry-After, а ошибка до истечения срока пробрасывается дальше.
+     */
+    @Test
+    public void testFailureAfterDeadlineReturnsServiceUnavailable() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/ads");
+        request.addHeader(DeadlineFilter.TIMEOUT_HEADER, "1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (rq, rs) -> {
+            while (!RequestDeadline.isExpired()) {
+                Thread.onSpinWait();
+            }
+            throw new QueryTimeoutException("canceling statement due to statement timeout");
+        });
+
+        assertEquals(503, response.getStatus());
+        assertNotNull(response.getHeader(HttpHeaders.RETRY_AFTER));
+        assertEquals(1, meterRegistry.get("avito.deadline.expired").counter().count());
+
+        assertThrows(IllegalStateException.class, () -> filter.doFilter(new MockHttpServletRequest("GET", "/ads"),
+                new MockHttpServletResponse(), (rq, rs) -> {
+                    throw new IllegalStateException();
+                }));
+        assertFalse(RequestDeadline.isSet());
+    }
+
+    private long remainingSeconds(MockHttpServletRequest request) throws Exception {
+        long[] remaining = new long[1];
+        filter.doFilter(request, new MockHttpServletResponse(),
+                (rq, rs) -> remaining[0] = RequestDeadline.remainingNanos());
+        return (remaining[0] + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+    }
+
+}
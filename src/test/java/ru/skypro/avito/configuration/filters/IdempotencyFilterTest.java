@@ -0,0 +1,104 @@
+package ru.skypro.avito.configuration.filters;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.unit.DataSize;
+import ru.skypro.avito.idempotency.IdempotencyStore;
+
+import javax.servlet.http.HttpServletResponse;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class IdempotencyFilterTest {
+
+    private final IdempotencyStore store = mock(IdempotencyStore.class);
+    private final IdempotencyFilter filter = new IdempotencyFilter(store, DataSize.ofKilobytes(1), new SimpleMeterRegistry());
+
+    @AfterEach
+    void cleanUp() {
+        SecurityContextHolder.clearContext();
+    }
+
+    /**
+     * Данный тест testKeyIsNotReleasedWhenStoringSuccessfulResponseFails() проверяет, что если успешный ответ
+     * не удалось сохранить, клиент все равно получает его, а ключ не освобождается и повтор не создаст дубликат.
+     */
+    @Test
+    public void testKeyIsNotReleasedWhenStoringSuccessfulResponseFails() throws Exception {
+        when(store.find(anyString())).thenReturn(Optional.empty());
+        when(store.tryLock(anyString(), anyString())).thenReturn(true);
+        doThrow(new DataAccessResourceFailureException("connection lost"))
+                .when(store).complete(anyString(), anyInt(), any(), any());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(comment("{\"text\":\"TEXT\"}"), response,
+                (request, rs) -> ((HttpServletResponse) rs).setStatus(201));
+
+        assertEquals(201, response.getStatus());
+        verify(store, never()).release(anyString());
+    }
+
+    /**
+     * Данный тест testFingerprintIncludesJsonBody() проверяет, что отпечаток запроса содержит хэш тела JSON,
+     * а само тело после чтения фильтром доходит до обработчика без изменений.
+     */
+    @Test
+    public void testFingerprintIncludesJsonBody() throws Exception {
+        when(store.find(anyString())).thenReturn(Optional.empty());
+        when(store.tryLock(anyString(), anyString())).thenReturn(true);
+        String[] body = new String[1];
+
+        filter.doFilter(comment("{\"text\":\"first\"}"), new MockHttpServletResponse(),
+                (request, response) -> body[0] = new String(request.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+        filter.doFilter(comment("{\"text\":\"second\"}"), new MockHttpServletResponse(), (request, response) -> { });
+
+        assertEquals("{\"text\":\"first\"}", body[0]);
+        verify(store).tryLock(anyString(), eq("POST /ads/1/comments " + sha256("{\"text\":\"first\"}")));
+        verify(store).tryLock(anyString(), eq("POST /ads/1/comments " + sha256("{\"text\":\"second\"}")));
+    }
+
+    /**
+     * Данный тест testJsonBodyOverLimitIsRejected() проверяет, что тело JSON больше max-body-size получает 413
+     * и ключ не занимается.
+     */
+    @Test
+    public void testJsonBodyOverLimitIsRejected() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(comment("{\"text\":\"" + "x".repeat(2048) + "\"}"), response, (request, rs) -> fail());
+
+        assertEquals(413, response.getStatus());
+        verify(store, never()).tryLock(anyString(), anyString());
+    }
+
+    private static MockHttpServletRequest comment(String json) {
+        SecurityContextHolder.getContext()
+                .setAuthentication(new UsernamePasswordAuthenticationToken("user", null, List.of()));
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/ads/1/comments");
+        request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY, "retry-1");
+        request.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        request.setContent(json.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    private static String sha256(String json) throws NoSuchAlgorithmException {
+        return String.format("%064x", new BigInteger(1,
+                MessageDigest.getInstance("SHA-256").digest(json.getBytes(StandardCharsets.UTF_8))));
+    }
+
+}
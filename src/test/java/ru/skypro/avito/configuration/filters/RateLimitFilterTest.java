@@ -0,0 +1,149 @@
+package ru.skypro.avito.configuration.filters;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RateLimitFilterTest {
+
+    private static final String BAD_CREDENTIALS = "Basic YWRtaW46d3Jvbmc=";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RateLimits rateLimits = new RateLimits(2, 0.001, 100, 0.001, 100, 0.001, 1000, meterRegistry);
+    private final AuthRateLimitFilter authFilter = new AuthRateLimitFilter(rateLimits);
+    private final RateLimitFilter filter = new RateLimitFilter(rateLimits);
+
+    /**
+     * Данный тест testLoginIsRejectedWithRetryAfterWhenBucketIsEmpty() проверяет, что после исчерпания лимита входа
+     * запрос получает 429 с заголовком Retry-After и не передается дальше по цепочке.
+     */
+    @Test
+    public void testLoginIsRejectedWithRetryAfterWhenBucketIsEmpty() throws Exception {
+        assertEquals(200, perform("POST", "/login", "10.0.0.1", null).getStatus());
+        assertEquals(200, perform("POST", "/login", "10.0.0.1", null).getStatus());
+
+        MockHttpServletResponse response = perform("POST", "/login", "10.0.0.1", null);
+
+        assertEquals(429, response.getStatus());
+        assertNotNull(response.getHeader(HttpHeaders.RETRY_AFTER));
+        assertTrue(Long.parseLong(response.getHeader(HttpHeaders.RETRY_AFTER)) > 0);
+        assertEquals(1, meterRegistry.get("avito.rate-limit.requests")
+                .tag("class", "auth").tag("outcome", "rejected").counter().count());
+    }
+
+    /**
+     * Данный тест testBucketsAreSeparatedByClientAndEndpointClass() проверяет, что исчерпанный лимит входа
+     * не влияет ни на другой IP-адрес, ни на запросы чтения того же клиента.
+     */
+    @Test
+    public void testBucketsAreSeparatedByClientAndEndpointClass() throws Exception {
+        perform("POST", "/login", "10.0.0.1", null);
+        perform("POST", "/login", "10.0.0.1", null);
+        assertEquals(429, perform("POST", "/login", "10.0.0.1", null).getStatus());
+
+        assertEquals(200, perform("POST", "/login", "10.0.0.2", null).getStatus());
+        assertEquals(200, perform("GET", "/ads", "10.0.0.1", null).getStatus());
+    }
+
+    /**
+     * Данный тест testRepeatedBadBasicCredentialsAreRejectedBeforeAuthentication() проверяет, что отклоненные (401)
+     * учетные данные Basic расходуют лимит пользователя с этого IP-адреса, после чего его запросы получают 429
+     * и не доходят до проверки пароля, а успешная аутентификация лимит не расходует.
+     * Лимит не затрагивает ни того же пользователя с другого адреса, ни другого пользователя с того же адреса.
+     */
+    @Test
+    public void testRepeatedBadBasicCredentialsAreRejectedBeforeAuthentication() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertEquals(200, perform("GET", "/users/me", "10.0.0.3", "Basic dXNlcjpwYXNz").getStatus());
+        }
+
+        assertEquals(401, perform("GET", "/users/me", "10.0.0.1", BAD_CREDENTIALS).getStatus());
+        assertEquals(401, perform("GET", "/users/me", "10.0.0.1", BAD_CREDENTIALS).getStatus());
+
+        MockHttpServletResponse response = perform("GET", "/users/me", "10.0.0.1", BAD_CREDENTIALS);
+        assertEquals(429, response.getStatus());
+        assertNotNull(response.getHeader(HttpHeaders.RETRY_AFTER));
+        assertEquals(401, perform("GET", "/users/me", "10.0.0.2", BAD_CREDENTIALS).getStatus());
+        assertEquals(200, perform("GET", "/users/me", "10.0.0.1", "Basic dXNlcjpwYXNz").getStatus());
+        assertEquals(200, perform("POST", "/login", "10.0.0.1", null).getStatus());
+    }
+
+    /**
+     * Данный тест testConcurrentBadCredentialsReserveTokens() проверяет, что токен берется до проверки учетных данных:
+     * запросы с неверным паролем, пришедшие, пока предыдущие еще проверяются, не проходят сверх емкости корзины.
+     */
+    @Test
+    public void testConcurrentBadCredentialsReserveTokens() throws Exception {
+        int[] statuses = new int[2];
+
+        int first = perform("GET", "/users/me", "10.0.0.4", BAD_CREDENTIALS, () -> {
+            statuses[0] = perform("GET", "/users/me", "10.0.0.4", BAD_CREDENTIALS, () -> {
+                statuses[1] = perform("GET", "/users/me", "10.0.0.4", BAD_CREDENTIALS, null).getStatus();
+            }).getStatus();
+        }).getStatus();
+
+        assertEquals(401, first);
+        assertEquals(401, statuses[0]);
+        assertEquals(429, statuses[1]);
+    }
+
+    /**
+     * Выполняет запрос через оба фильтра. Сервлет заменяет Spring Security и контроллер:
+     * отклоняет учетные данные BAD_CREDENTIALS с 401, а остальные запросы обрабатывает с 200.
+     */
+    private MockHttpServletResponse perform(String method, String uri, String remoteAddr, String authorization)
+            throws Exception {
+        return perform(method, uri, remoteAddr, authorization, null);
+    }
+
+    /**
+     * Выполняет запрос так же, как perform(), но сервлет перед ответом выполняет действие during,
+     * то есть пока учетные данные этого запроса еще "проверяются".
+     */
+    private MockHttpServletResponse perform(String method, String uri, String remoteAddr, String authorization,
+                                            Nested during) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setRemoteAddr(remoteAddr);
+        if (authorization != null) {
+            request.addHeader(HttpHeaders.AUTHORIZATION, authorization);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicBoolean handled = new AtomicBoolean();
+        HttpServlet servlet = new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws ServletException {
+                handled.set(true);
+                if (during != null) {
+                    try {
+                        during.run();
+                    } catch (Exception e) {
+                        throw new ServletException(e);
+                    }
+                }
+                if (BAD_CREDENTIALS.equals(req.getHeader(HttpHeaders.AUTHORIZATION))) {
+                    resp.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                }
+            }
+        };
+        new MockFilterChain(servlet, authFilter, filter).doFilter(request, response);
+        assertEquals(response.getStatus() != 429, handled.get());
+        return response;
+    }
+
+    @FunctionalInterface
+    private interface Nested {
+        void run() throws Exception;
+    }
+
+}
@@ -0,0 +1,130 @@
+package ru.skypro.avito.configuration.filters;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+import ru.skypro.avito.upload.UploadSessionStore;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class UploadAdmissionFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final UploadSessionStore uploadSessionStore = mock(UploadSessionStore.class);
+    private final UploadAdmissionFilter filter = new UploadAdmissionFilter(DataSize.ofMegabytes(1),
+            Duration.ofMillis(50), DataSize.ofMegabytes(10), uploadSessionStore, meterRegistry);
+
+    /**
+     * Данный тест testUploadOverBudgetIsRejectedWhileAnotherIsInFlight() проверяет, что загрузка, не помещающаяся
+     * в оставшийся бюджет, получает 503 с Retry-After, а после завершения первой загрузки бюджет освобождается.
+     */
+    @Test
+    public void testUploadOverBudgetIsRejectedWhileAnotherIsInFlight() throws Exception {
+        MockHttpServletResponse[] nested = new MockHttpServletResponse[1];
+
+        MockHttpServletResponse first = perform(DataSize.ofKilobytes(700).toBytes(),
+                (request, response) -> nested[0] = perform(DataSize.ofKilobytes(400).toBytes(), (rq, rs) -> { }));
+
+        assertEquals(200, first.getStatus());
+        assertEquals(503, nested[0].getStatus());
+        assertNotNull(nested[0].getHeader(HttpHeaders.RETRY_AFTER));
+        assertEquals(1, meterRegistry.get("avito.upload.admission.rejected").counter().count());
+
+        assertEquals(200, perform(DataSize.ofKilobytes(400).toBytes(), (request, response) -> { }).getStatus());
+    }
+
+    /**
+     * Данный тест testSmallUploadsShareBudget() проверяет, что загрузки, помещающиеся в бюджет вместе, выполняются одновременно,
+     * а запросы без multipart не учитываются.
+     */
+    @Test
+    public void testSmallUploadsShareBudget() throws Exception {
+        MockHttpServletResponse[] nested = new MockHttpServletResponse[2];
+
+        perform(DataSize.ofKilobytes(300).toBytes(), (request, response) -> {
+            nested[0] = perform(DataSize.ofKilobytes(300).toBytes(), (rq, rs) -> { });
+            MockHttpServletRequest json = new MockHttpServletRequest("POST", "/ads/1/comments");
+            json.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            json.setContent(new byte[16]);
+            nested[1] = new MockHttpServletResponse();
+            filter.doFilter(json, nested[1], (rq, rs) -> { });
+        });
+
+        assertEquals(200, nested[0].getStatus());
+        assertEquals(200, nested[1].getStatus());
+        assertEquals(0, meterRegistry.get("avito.upload.admission.rejected").counter().count());
+    }
+
+    /**
+     * Данный тест testUploadCompletionIsAdmittedBySessionSize() проверяет, что запрос завершения загрузки по частям
+     * учитывается в бюджете по размеру файла сессии, хотя его тело - небольшой JSON.
+     */
+    @Test
+    public void testUploadCompletionIsAdmittedBySessionSize() throws Exception {
+        when(uploadSessionStore.size("large")).thenReturn(DataSize.ofKilobytes(700).toBytes());
+        MockHttpServletResponse[] nested = new MockHttpServletResponse[1];
+
+        perform(DataSize.ofKilobytes(400).toBytes(), (request, response) -> {
+            MockHttpServletRequest complete = new MockHttpServletRequest("POST", "/ads");
+            complete.setQueryString("upload=large");
+            complete.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            complete.setContent(new byte[16]);
+            nested[0] = new MockHttpServletResponse();
+            filter.doFilter(complete, nested[0], (rq, rs) -> { });
+        });
+
+        assertEquals(503, nested[0].getStatus());
+        assertEquals(1, meterRegistry.get("avito.upload.admission.rejected").counter().count());
+    }
+
+    /**
+     * Данный тест testMultipartIsNotParsedBeforeAdmission() проверяет, что фильтр не обращается к параметрам
+     * multipart-запроса (это заставило бы контейнер разобрать тело) ни до, ни во время проверки бюджета.
+     */
+    @Test
+    public void testMultipartIsNotParsedBeforeAdmission() throws Exception {
+        boolean[] parsed = new boolean[1];
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/ads") {
+            @Override
+            public String getParameter(String name) {
+                parsed[0] = true;
+                return super.getParameter(name);
+            }
+
+            @Override
+            public Map<String, String[]> getParameterMap() {
+                parsed[0] = true;
+                return super.getParameterMap();
+            }
+        };
+        request.setContentType(MediaType.MULTIPART_FORM_DATA_VALUE + "; boundary=test");
+        request.setContent(new byte[1024]);
+        boolean[] admittedUnparsed = new boolean[1];
+
+        filter.doFilter(request, new MockHttpServletResponse(), (rq, rs) -> admittedUnparsed[0] = !parsed[0]);
+
+        assertTrue(admittedUnparsed[0]);
+        verifyNoInteractions(uploadSessionStore);
+    }
+
+    private MockHttpServletResponse perform(long contentLength, FilterChain chain) throws IOException, ServletException {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/ads");
+        request.setContentType(MediaType.MULTIPART_FORM_DATA_VALUE + "; boundary=test");
+        request.setContent(new byte[(int) contentLength]);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+}
@@ -1,13 +1,22 @@
 package ru.skypro.avito.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.mock.web.MockPart;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -15,16 +24,39 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
+import ru.skypro.avito.blob.BlobCollector;
+import ru.skypro.avito.cache.AdsPageCache;
+import ru.skypro.avito.cache.FullAdsCache;
+import ru.skypro.avito.configuration.datasource.QueryCounter;
+import ru.skypro.avito.configuration.datasource.QueryCountingConfiguration;
 import ru.skypro.avito.dto.CreateAds;
 import ru.skypro.avito.enums.Role;
+import ru.skypro.avito.mapper.AdsMapper;
 import ru.skypro.avito.model.Ads;
 import ru.skypro.avito.model.Image;
 import ru.skypro.avito.model.User;
+import ru.skypro.avito.repository.AdsImageRepository;
 import ru.skypro.avito.repository.AdsRepository;
 import ru.skypro.avito.repository.ImageRepository;
 import ru.skypro.avito.repository.UserRepository;
 import ru.skypro.avito.service.CustomUserDetailsService;
 
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -32,6 +64,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @SpringBootTest
 @AutoConfigureMockMvc
 @Transactional
+@Import(QueryCountingConfiguration.class)
 public class AdsControllerTest {
 
     @Autowired
@@ -48,6 +81,18 @@ public class AdsControllerTest {
     private CustomUserDetailsService userDetailsService;
     @Autowired
     private ImageRepository imageRepository;
+    @Autowired
+    private AdsImageRepository adsImageRepository;
+    @Autowired
+    private AdsPageCache adsPageCache;
+    @Autowired
+    private FullAdsCache fullAdsCache;
+    @Autowired
+    private BlobCollector blobCollector;
+    @Autowired
+    private QueryCounter queryCounter;
+    @Autowired
+    private MeterRegistry meterRegistry;
 
     private Authentication auth;
     private final MockPart imageFile
@@ -60,6 +105,9 @@ public class AdsControllerTest {
 
     @BeforeEach
     void setUp() {
+        // Данные тестов откатываются без сообщений шины инвалидации, поэтому кэш готовых ответов очищается явно.
+        adsPageCache.clear();
+
         user.setUsername("username@mail.ru");
         user.setFirstName("User");
         user.setLastName("Test");
@@ -106,6 +154,115 @@ public class AdsControllerTest {
                 .andExpect(jsonPath("$.results").isArray());
     }
 
+    /**
+     * Данный тест testGetAdsMeWithFieldsReturnsOnlyRequestedFields() представляет собой интеграционный тест для эндпоинта /ads/me
+     * методом HTTP GET, который проверяет, что параметр fields сужает ответ до перечисленных полей,
+     * а неизвестное поле отклоняется с 400.
+     * @throws Exception
+     */
+    @Test
+    public void testGetAdsMeWithFieldsReturnsOnlyRequestedFields() throws Exception {
+        mockMvc.perform(get("/ads/me").param("fields", "pk,title,price,image")
+                        .with(authentication(auth)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(1))
+                .andExpect(jsonPath("$.results[0].pk").value(ads.getId()))
+                .andExpect(jsonPath("$.results[0].title").value(ads.getTitle()))
+                .andExpect(jsonPath("$.results[0].price").value(ads.getPrice()))
+                .andExpect(jsonPath("$.results[0].image").hasJsonPath())
+                .andExpect(jsonPath("$.results[0].description").doesNotExist())
+                .andExpect(jsonPath("$.results[0].author").doesNotExist());
+
+        mockMvc.perform(get("/ads/me").param("fields", "pk,password")
+                        .with(authentication(auth)))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Данный тест testGetAdsMeNegotiatesBinaryFormats() представляет собой интеграционный тест для эндпоинта /ads/me
+     * методом HTTP GET, который проверяет, что по заголовку Accept список объявлений отдается в CBOR и Smile.
+     * @throws Exception
+     */
+    @Test
+    public void testGetAdsMeNegotiatesBinaryFormats() throws Exception {
+        Map<MediaType, ObjectMapper> formats = Map.of(
+                MediaType.APPLICATION_CBOR, new CBORMapper(),
+                MediaType.parseMediaType("application/x-jackson-smile"), new SmileMapper());
+
+        for (Map.Entry<MediaType, ObjectMapper> format : formats.entrySet()) {
+            byte[] body = mockMvc.perform(get("/ads/me")
+                            .accept(format.getKey())
+                            .with(authentication(auth)))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith(format.getKey()))
+                    .andReturn().getResponse().getContentAsByteArray();
+
+            JsonNode ads = format.getValue().readTree(body);
+            assertEquals(1, ads.get("count").asInt());
+            assertEquals(this.ads.getId(), ads.get("results").get(0).get("pk").asLong());
+            assertEquals(this.ads.getTitle(), ads.get("results").get(0).get("title").asText());
+        }
+    }
+
+    /**
+     * Данный тест testGetAllAdsIsServedFromPageCache() представляет собой интеграционный тест для эндпоинта /ads методом HTTP GET,
+     * который проверяет, что повторный анонимный запрос отдается из кэша готовых ответов, в том числе в сжатом виде.
+     * @throws Exception
+     */
+    @Test
+    public void testGetAllAdsIsServedFromPageCache() throws Exception {
+
+        // Первый запрос строит ответ и сохраняет его в кэш.
+        byte[] body = mockMvc.perform(get("/ads"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(jsonPath("$.results[?(@.pk == %s)]", ads.getId()).exists())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Объявление, сохраненное в обход сервиса, не меняет версию списка, поэтому второй запрос отдается из кэша.
+        Ads other = new Ads();
+        other.setTitle("Other");
+        other.setDescription("description");
+        other.setPrice(2000);
+        other.setAuthor(user);
+        adsRepository.save(other);
+
+        byte[] gzipped = mockMvc.perform(get("/ads").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT_ENCODING)))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            assertArrayEquals(body, in.readAllBytes());
+        }
+    }
+
+    /**
+     * Данный тест testGetAllAdsWithUnknownParameterBypassesPageCache() представляет собой интеграционный тест для эндпоинта /ads
+     * методом HTTP GET, который проверяет, что запрос с параметром, не влияющим на список, не кэшируется.
+     * @throws Exception
+     */
+    @Test
+    public void testGetAllAdsWithUnknownParameterBypassesPageCache() throws Exception {
+
+        mockMvc.perform(get("/ads").param("nocache", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[?(@.pk == %s)]", ads.getId()).exists());
+
+        // Объявление, сохраненное в обход сервиса, не меняет версию списка, но запрос без кэша его видит.
+        Ads other = new Ads();
+        other.setTitle("Other");
+        other.setDescription("description");
+        other.setPrice(2000);
+        other.setAuthor(user);
+        adsRepository.save(other);
+
+        mockMvc.perform(get("/ads").param("nocache", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[?(@.pk == %s)]", other.getId()).exists());
+    }
+
     /**
      * Данный тест testAddAdsReturnCorrectAddedAdsFromDatabase() представляет собой интеграционный тест для эндпоинта /ads методом HTTP POST,
      * который проверяет корректное добавление объявления в базу данных и возвращение соответствующего JSON-ответа.
@@ -190,6 +347,80 @@ public class AdsControllerTest {
                 .andExpect(jsonPath("$.phone").value(user.getPhone()));
     }
 
+    /**
+     * Данный тест testGetFullAdReturnsNotModifiedUntilAdsChanged() представляет собой интеграционный тест для эндпоинта /ads/{id}
+     * методом HTTP GET, который проверяет, что запрос с актуальным ETag получает 304, а после изменения объявления - полный ответ.
+     * @throws Exception
+     */
+    @Test
+    public void testGetFullAdReturnsNotModifiedUntilAdsChanged() throws Exception {
+        String etag = mockMvc.perform(get("/ads/{id}", ads.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/ads/{id}", ads.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        // Изменение объявления в обход сервиса увеличивает его версию, но не сбрасывает кэш:
+        // запись кэша устарела и должна быть перечитана.
+        ads.setPrice(2000);
+        adsRepository.saveAndFlush(ads);
+
+        mockMvc.perform(get("/ads/{id}", ads.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(etag)))
+                .andExpect(jsonPath("$.price").value(2000));
+    }
+
+    /**
+     * Данный тест testGetAdsBatchReturnsFoundAndMissingAds() представляет собой интеграционный тест для эндпоинта /ads/batch
+     * методом HTTP GET, который проверяет, что найденные объявления возвращаются в порядке запроса без повторов,
+     * несуществующие идентификаторы - отдельным списком, а слишком большой список отклоняется с 400.
+     * @throws Exception
+     */
+    @Test
+    public void testGetAdsBatchReturnsFoundAndMissingAds() throws Exception {
+        long missingId = ads.getId() + 1_000_000;
+
+        mockMvc.perform(get("/ads/batch").param("ids", missingId + "," + ads.getId() + "," + ads.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(1))
+                .andExpect(jsonPath("$.results[0].pk").value(ads.getId()))
+                .andExpect(jsonPath("$.results[0].title").value(ads.getTitle()))
+                .andExpect(jsonPath("$.results[0].email").value(user.getUsername()))
+                .andExpect(jsonPath("$.missing[0]").value(missingId));
+
+        String tooMany = LongStream.rangeClosed(1, 101)
+                .mapToObj(String::valueOf)
+                .collect(Collectors.joining(","));
+        mockMvc.perform(get("/ads/batch").param("ids", tooMany))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Данный тест testGetTrendingAdsReturnsViewedAds() представляет собой интеграционный тест для эндпоинта /ads/trending методом HTTP GET,
+     * который проверяет, что просмотренное объявление попадает в список популярных объявлений.
+     * @throws Exception
+     */
+    @Test
+    public void testGetTrendingAdsReturnsViewedAds() throws Exception {
+
+        // Выполняется просмотр объявления, который повышает его рейтинг.
+        mockMvc.perform(get("/ads/{id}", ads.getId()))
+                .andExpect(status().isOk());
+
+        // Проверяется, что просмотренное объявление присутствует в списке популярных объявлений.
+        mockMvc.perform(get("/ads/trending"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").isNumber())
+                .andExpect(jsonPath("$.results[?(@.pk == %s)]", ads.getId()).exists());
+
+        // Отрицательный limit отклоняется с 400.
+        mockMvc.perform(get("/ads/trending").param("limit", "-1"))
+                .andExpect(status().isBadRequest());
+    }
+
     /**
      * Данный тест testRemoveAdsReturnsOkWhenAdsRemoved() представляет собой интеграционный тест для эндпоинта /ads/{id} методом HTTP DELETE,
      * который проверяет корректное удаление объявления по его идентификатору из базы данных и возвращение статуса 200 OK.
@@ -244,6 +475,96 @@ public class AdsControllerTest {
                 .andExpect(jsonPath("$.price").value(newPrice));
     }
 
+    /**
+     * Данный тест testAdsEndpointsStayWithinQueryBudget() проверяет бюджет запросов к базе данных для получения
+     * объявления, списка объявлений пользователя и изменения объявления (вместе с проверкой прав в @PreAuthorize).
+     * @throws Exception
+     */
+    @Test
+    public void testAdsEndpointsStayWithinQueryBudget() throws Exception {
+        Ads other = new Ads();
+        other.setTitle("Other Ads");
+        other.setDescription("description");
+        other.setPrice(500);
+        other.setAuthor(user);
+        adsRepository.save(other);
+
+        createAds.setTitle("New Ads");
+        createAds.setDescription("New Description");
+        createAds.setPrice(2000);
+        queryCounter.start();
+        mockMvc.perform(patch("/ads/{id}", ads.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(createAds))
+                        .with(authentication(auth)))
+                .andExpect(status().isOk());
+        queryCounter.assertBudget(5, Duration.ofMillis(500));
+
+        queryCounter.start();
+        mockMvc.perform(get("/ads/{id}", ads.getId())
+                        .with(authentication(auth)))
+                .andExpect(status().isOk());
+        queryCounter.assertBudget(2, Duration.ofMillis(500));
+
+        // Повторный запрос без If-None-Match отдается из кэша вместе с ETag и не обращается к базе данных.
+        queryCounter.start();
+        mockMvc.perform(get("/ads/{id}", ads.getId())
+                        .with(authentication(auth)))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG));
+        queryCounter.assertBudget(0);
+
+        // Первый запрос списка после изменения дополнительно читает состояние таблицы объявлений для ETag.
+        queryCounter.start();
+        mockMvc.perform(get("/ads/me")
+                        .with(authentication(auth)))
+                .andExpect(status().isOk());
+        queryCounter.assertBudget(3, Duration.ofMillis(500));
+    }
+
+    /**
+     * Данный тест testUpdateAdsWithStaleIfMatchReturnsConflict() представляет собой интеграционный тест для эндпоинта /ads/{id}
+     * методом HTTP PATCH, который проверяет, что изменение с актуальным ETag в заголовке If-Match выполняется,
+     * а повторное изменение с тем же (уже устаревшим) ETag получает 409 Conflict и не перезаписывает объявление.
+     * @throws Exception
+     */
+    @Test
+    public void testUpdateAdsWithStaleIfMatchReturnsConflict() throws Exception {
+        String etag = mockMvc.perform(get("/ads/{id}", ads.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        CreateAds first = new CreateAds();
+        first.setTitle("First");
+        first.setDescription("First editor");
+        first.setPrice(2000);
+        mockMvc.perform(patch("/ads/{id}", ads.getId())
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(first))
+                        .with(authentication(auth)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("First"))
+                .andExpect(jsonPath("$.author").value(user.getId()));
+
+        CreateAds second = new CreateAds();
+        second.setTitle("Second");
+        second.setDescription("Second editor");
+        second.setPrice(3000);
+        mockMvc.perform(patch("/ads/{id}", ads.getId())
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(second))
+                        .with(authentication(auth)))
+                .andExpect(status().isConflict());
+
+        // Транзакция теста не фиксируется, поэтому сообщение шины о первом изменении сбрасывается вручную.
+        fullAdsCache.invalidate(ads.getId());
+        mockMvc.perform(get("/ads/{id}", ads.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("First"));
+    }
+
     /**
      * Данный тест testGetAdsMeReturnsCorrectAdsList() представляет собой интеграционный тест для эндпоинта /ads/me методом HTTP GET,
      * который проверяет корректное получение списка объявлений текущего пользователя (авторизованного пользователя) из базы данных.
@@ -294,6 +615,112 @@ public class AdsControllerTest {
                 .andExpect(status().isOk());
     }
 
+    /**
+     * Данный тест testReplacedAdsImageIsReclaimedByBlobCollector() представляет собой интеграционный тест для эндпоинта
+     * /ads/{id}/image методом HTTP PATCH, который проверяет, что замена изображения только отсоединяет старое изображение,
+     * а BlobCollector удаляет его, не затрагивая новое.
+     * @throws Exception
+     */
+    @Test
+    public void testReplacedAdsImageIsReclaimedByBlobCollector() throws Exception {
+        byte[] png = {(byte) 0x89, 'P', 'N', 'G', 1, 2, 3};
+        byte[] jpeg = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, 4, 5, 6};
+
+        mockMvc.perform(multipart(HttpMethod.PATCH, "/ads/{id}/image", ads.getId())
+                        .file(new MockMultipartFile("image", "old.png", "image/png", png))
+                        .with(authentication(auth)))
+                .andExpect(status().isOk());
+        Long oldImageId = ads.getImage().getId();
+        mockMvc.perform(multipart(HttpMethod.PATCH, "/ads/{id}/image", ads.getId())
+                        .file(new MockMultipartFile("image", "new.jpg", "image/jpeg", jpeg))
+                        .with(authentication(auth)))
+                .andExpect(status().isOk());
+        Long newImageId = ads.getImage().getId();
+
+        // Изменения сохраняются в базу данных до запуска сборщика, который работает через JdbcTemplate.
+        imageRepository.flush();
+        assertTrue(imageRepository.existsById(oldImageId));
+
+        blobCollector.collect();
+        assertFalse(imageRepository.existsById(oldImageId));
+        assertTrue(imageRepository.existsById(newImageId));
+    }
+
+    /**
+     * Данный тест testAddAdsImagesBuildsGallery() представляет собой интеграционный тест для эндпоинта /ads/{id}/images
+     * методом HTTP POST, который проверяет, что первое изображение становится обложкой, повторный файл пропускается,
+     * файл, не являющийся изображением, отклоняется с 400, а при удалении обложки ею становится следующее изображение.
+     * @throws Exception
+     */
+    @Test
+    public void testAddAdsImagesBuildsGallery() throws Exception {
+        byte[] png = {(byte) 0x89, 'P', 'N', 'G', 1, 2, 3};
+        byte[] jpeg = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, 4, 5, 6};
+
+        mockMvc.perform(multipart("/ads/{id}/images", ads.getId())
+                        .file(new MockMultipartFile("images", "cover.png", "image/png", png))
+                        .file(new MockMultipartFile("images", "photo.jpg", "image/jpeg", jpeg))
+                        .file(new MockMultipartFile("images", "copy.png", "image/png", png))
+                        .with(authentication(auth)))
+                .andExpect(status().isOk());
+
+        // Транзакция теста не фиксируется, поэтому сообщение шины об изменении галереи сбрасывается вручную.
+        fullAdsCache.invalidate(ads.getId());
+        mockMvc.perform(get("/ads/{id}", ads.getId())
+                        .with(authentication(auth)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.images.length()").value(2))
+                .andExpect(jsonPath("$.images[0]").value(AdsMapper.ADS_IMAGE + ads.getImage().getId()));
+
+        mockMvc.perform(multipart("/ads/{id}/images", ads.getId())
+                        .file(new MockMultipartFile("images", "notes.txt", "image/png", "text".getBytes()))
+                        .with(authentication(auth)))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(delete("/ads/{id}/images/{imageId}", ads.getId(), ads.getImage().getId())
+                        .with(authentication(auth)))
+                .andExpect(status().isOk());
+        assertArrayEquals(jpeg, ads.getImage().getData());
+        assertEquals(0, adsImageRepository.findRefsByAdsIdIn(List.of(ads.getId())).size());
+    }
+
+    /**
+     * Данный тест testGetAdsMeSinceReturnsChangedAndDeletedAds() представляет собой интеграционный тест для эндпоинта
+     * /ads/me?since= методом HTTP GET, который проверяет, что синхронизация возвращает объявление, измененное после метки,
+     * и идентификатор объявления, удаленного после нее, а выданная метка не возвращает уже полученные изменения.
+     * @throws Exception
+     */
+    @Test
+    public void testGetAdsMeSinceReturnsChangedAndDeletedAds() throws Exception {
+        String since = String.valueOf(Instant.now().minusSeconds(60).toEpochMilli());
+
+        mockMvc.perform(get("/ads/me")
+                        .param("since", since)
+                        .param("fields", "pk,title")
+                        .with(authentication(auth)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changed[0].pk").value(ads.getId()))
+                .andExpect(jsonPath("$.changed[0].title").value(ads.getTitle()))
+                .andExpect(jsonPath("$.changed[0].price").doesNotExist())
+                .andExpect(jsonPath("$.deleted").isEmpty());
+
+        mockMvc.perform(delete("/ads/{id}", ads.getId())
+                        .with(authentication(auth)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/ads/me")
+                        .param("since", since)
+                        .with(authentication(auth)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changed").isEmpty())
+                .andExpect(jsonPath("$.deleted[0]").value(ads.getId()));
+        mockMvc.perform(get("/ads/me")
+                        .param("since", String.valueOf(Instant.now().plusSeconds(120).toEpochMilli()))
+                        .with(authentication(auth)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").isEmpty());
+    }
+
     /**
      * Данный тест testGetImage() представляет собой интеграционный тест для эндпоинта /ads/image/{id} методом HTTP GET,
      * который проверяет корректное получение изображения для объявления из базы данных.
@@ -328,5 +755,31 @@ public class AdsControllerTest {
                 .andExpect(content().bytes(image.getData()));
     }
 
+    /**
+     * Данный тест testGetImageIsRecordedInMetrics() проверяет, что отданное изображение учитывается в счетчике
+     * avito.transfer.bytes, вызов сервиса - в таймере avito.service.method, и что метрики Hibernate и пула опубликованы.
+     * @throws Exception
+     */
+    @Test
+    public void testGetImageIsRecordedInMetrics() throws Exception {
+        image.setData("image".getBytes());
+        image.setMediaType("image/jpeg");
+        imageRepository.save(image);
+        Counter downloaded = meterRegistry.counter("avito.transfer.bytes", "direction", "download", "kind", "image");
+        double before = downloaded.count();
+
+        mockMvc.perform(get("/ads/image/{id}", image.getId())
+                        .with(authentication(auth)))
+                .andExpect(status().isOk());
+
+        assertEquals(before + image.getData().length, downloaded.count());
+        assertTrue(meterRegistry.get("avito.service.method")
+                .tags("class", "ImageServiceImpl", "method", "getImageById", "exception", "none")
+                .timer().count() > 0);
+
+        // Статистика Hibernate и состояние пула соединений публикуются автоматически.
+        assertNotNull(meterRegistry.find("hibernate.sessions.open").meter());
+        assertNotNull(meterRegistry.find("hikaricp.connections.pending").gauge());
+    }
 
 }
@@ -7,36 +7,48 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
+import ru.skypro.avito.configuration.datasource.QueryCounter;
+import ru.skypro.avito.configuration.datasource.QueryCountingConfiguration;
+import ru.skypro.avito.configuration.filters.IdempotencyFilter;
 import ru.skypro.avito.dto.AdsCommentDto;
 import ru.skypro.avito.enums.Role;
 import ru.skypro.avito.model.Ads;
 import ru.skypro.avito.model.Comment;
 import ru.skypro.avito.model.User;
+import ru.skypro.avito.outbox.OutboxStore;
 import ru.skypro.avito.repository.AdsRepository;
 import ru.skypro.avito.repository.CommentRepository;
 import ru.skypro.avito.repository.UserRepository;
 import ru.skypro.avito.service.CustomUserDetailsService;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
 @AutoConfigureMockMvc
 @Transactional
+@Import(QueryCountingConfiguration.class)
 public class CommentControllerTest {
 
     @Autowired
@@ -53,6 +65,10 @@ public class CommentControllerTest {
     private CommentRepository commentRepository;
     @Autowired
     private CustomUserDetailsService userDetailsService;
+    @Autowired
+    private OutboxStore outboxStore;
+    @Autowired
+    private QueryCounter queryCounter;
 
     private Authentication auth;
     private final User user = new User();
@@ -107,6 +123,67 @@ public class CommentControllerTest {
                 .andExpect(jsonPath("$.results[0].text").value(comment.getText()));
     }
 
+    /**
+     * Данный тест testGetCommentsStaysWithinQueryBudget() проверяет, что список комментариев объявления загружается
+     * не более чем двумя запросами независимо от числа комментариев и их авторов.
+     * @throws Exception
+     */
+    @Test
+    public void testGetCommentsStaysWithinQueryBudget() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            User author = new User();
+            author.setUsername("author" + i + "@mail.ru");
+            author.setFirstName("Author");
+            author.setLastName("Test");
+            author.setPhone("+7960927928" + i);
+            author.setPassword("password");
+            author.setRole(Role.USER);
+            author.setEnabled(true);
+            userRepository.save(author);
+
+            Comment authored = new Comment();
+            authored.setText("Text " + i);
+            authored.setAds(ads);
+            authored.setCreatedAt(Instant.now());
+            authored.setAuthor(author);
+            commentRepository.save(authored);
+        }
+
+        queryCounter.start();
+        mockMvc.perform(get("/ads/{id}/comments", ads.getId())
+                        .with(authentication(auth)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(4));
+        queryCounter.assertBudget(2, Duration.ofMillis(500));
+    }
+
+    @Test
+    public void testGetCommentsReturnsNotModifiedUntilCommentAdded() throws Exception {
+        String etag = mockMvc.perform(get("/ads/{id}/comments", ads.getId())
+                        .with(authentication(auth)))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/ads/{id}/comments", ads.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .with(authentication(auth)))
+                .andExpect(status().isNotModified());
+
+        commentDto.setText("TEXT");
+        mockMvc.perform(post("/ads/{id}/comments", ads.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(commentDto))
+                        .with(authentication(auth)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/ads/{id}/comments", ads.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .with(authentication(auth)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(2));
+    }
+
     @Test
     public void testAddAdsCommentReturnsAddedComment() throws Exception {
         commentDto.setText("TEXT");
@@ -121,6 +198,108 @@ public class CommentControllerTest {
                 .andExpect(jsonPath("$.authorFirstName").value(user.getFirstName()));
     }
 
+    @Test
+    public void testRetriedAddAdsCommentWithIdempotencyKeyIsReplayed() throws Exception {
+        commentDto.setText("TEXT");
+
+        String pk = mockMvc.perform(post("/ads/{id}/comments", ads.getId())
+                        .header(IdempotencyFilter.IDEMPOTENCY_KEY, "retry-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(commentDto))
+                        .with(authentication(auth)))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(IdempotencyFilter.REPLAYED))
+                .andReturn().getResponse().getContentAsString();
+
+        mockMvc.perform(post("/ads/{id}/comments", ads.getId())
+                        .header(IdempotencyFilter.IDEMPOTENCY_KEY, "retry-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(commentDto))
+                        .with(authentication(auth)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(IdempotencyFilter.REPLAYED, "true"))
+                .andExpect(content().json(pk));
+
+        mockMvc.perform(post("/ads")
+                        .header(IdempotencyFilter.IDEMPOTENCY_KEY, "retry-1")
+                        .with(authentication(auth)))
+                .andExpect(status().isUnprocessableEntity());
+
+        // Тот же ключ с другим текстом комментария - это другой запрос.
+        commentDto.setText("OTHER TEXT");
+        mockMvc.perform(post("/ads/{id}/comments", ads.getId())
+                        .header(IdempotencyFilter.IDEMPOTENCY_KEY, "retry-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(commentDto))
+                        .with(authentication(auth)))
+                .andExpect(status().isUnprocessableEntity());
+
+        mockMvc.perform(get("/ads/{id}/comments", ads.getId())
+                        .with(authentication(auth)))
+                .andExpect(jsonPath("$.count").value(2));
+    }
+
+    @Test
+    public void testAddedCommentAppearsInChangeFeed() throws Exception {
+        commentDto.setText("TEXT");
+        Authentication admin = new UsernamePasswordAuthenticationToken(user.getUsername(), null,
+                List.of(new SimpleGrantedAuthority(Role.ADMIN.name())));
+
+        mockMvc.perform(post("/ads/{id}/comments", ads.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(commentDto))
+                        .with(authentication(auth)))
+                .andExpect(status().isOk());
+        outboxStore.relay();
+
+        mockMvc.perform(get("/changes")
+                        .param("after", "0")
+                        .param("limit", "1000")
+                        .with(authentication(admin)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[?(@.type == 'CommentAdded' && @.key == '%s')].data.adsId", ads.getId())
+                        .value(ads.getId().intValue()));
+        mockMvc.perform(get("/changes")
+                        .with(authentication(auth)))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/changes")
+                        .param("limit", "0")
+                        .with(authentication(admin)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testGetCommentsSinceReturnsChangedAndDeletedComments() throws Exception {
+        String since = Instant.now().minusSeconds(60).toString();
+
+        mockMvc.perform(get("/ads/{id}/comments", ads.getId())
+                        .param("since", since)
+                        .with(authentication(auth)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changed[0].pk").value(comment.getId()))
+                .andExpect(jsonPath("$.deleted").isEmpty())
+                .andExpect(jsonPath("$.since").isString());
+
+        mockMvc.perform(delete("/ads/{adId}/comments/{commentId}", ads.getId(), comment.getId())
+                        .with(authentication(auth)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/ads/{id}/comments", ads.getId())
+                        .param("since", since)
+                        .with(authentication(auth)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changed").isEmpty())
+                .andExpect(jsonPath("$.deleted[0]").value(comment.getId()));
+        mockMvc.perform(get("/ads/{id}/comments", ads.getId())
+                        .param("since", "2000-01-01T00:00:00Z")
+                        .with(authentication(auth)))
+                .andExpect(status().isGone());
+        mockMvc.perform(get("/ads/{id}/comments", ads.getId())
+                        .param("since", "yesterday")
+                        .with(authentication(auth)))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void testDeleteAdsCommentReturnsOkWhenCommentRemoved() throws Exception {
         mockMvc.perform(delete("/ads/{adId}/comments/{commentId}", ads.getId(), comment.getId())
@@ -142,4 +321,33 @@ public class CommentControllerTest {
                 .andExpect(jsonPath("$.text").value(comment.getText()));
     }
 
+    @Test
+    public void testUpdateCommentsWithStaleIfMatchReturnsConflict() throws Exception {
+        String etag = mockMvc.perform(get("/ads/{id}/comments", ads.getId())
+                        .with(authentication(auth)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        commentDto.setText("First");
+        mockMvc.perform(patch("/ads/{adId}/comments/{commentId}", ads.getId(), comment.getId())
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(commentDto))
+                        .with(authentication(auth)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.text").value("First"));
+
+        commentDto.setText("Second");
+        mockMvc.perform(patch("/ads/{adId}/comments/{commentId}", ads.getId(), comment.getId())
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(commentDto))
+                        .with(authentication(auth)))
+                .andExpect(status().isConflict());
+
+        mockMvc.perform(get("/ads/{id}/comments", ads.getId())
+                        .with(authentication(auth)))
+                .andExpect(jsonPath("$.results[0].text").value("First"));
+    }
+
 }
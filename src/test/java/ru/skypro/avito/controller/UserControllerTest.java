@@ -7,22 +7,35 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockPart;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.transaction.TestTransaction;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
+import ru.skypro.avito.configuration.datasource.QueryCounter;
+import ru.skypro.avito.configuration.datasource.QueryCountingConfiguration;
+import ru.skypro.avito.dto.CreateUpload;
 import ru.skypro.avito.dto.NewPassword;
+import ru.skypro.avito.dto.UploadStatus;
 import ru.skypro.avito.enums.Role;
+import ru.skypro.avito.model.Ads;
 import ru.skypro.avito.model.Avatar;
 import ru.skypro.avito.model.User;
+import ru.skypro.avito.repository.AdsRepository;
 import ru.skypro.avito.repository.AvatarRepository;
 import ru.skypro.avito.repository.UserRepository;
 import ru.skypro.avito.service.CustomUserDetailsService;
 
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -31,6 +44,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @SpringBootTest
 @AutoConfigureMockMvc
 @Transactional
+@Import(QueryCountingConfiguration.class)
 public class UserControllerTest {
 
     @Autowired
@@ -40,11 +54,15 @@ public class UserControllerTest {
     @Autowired
     private AvatarRepository avatarRepository;
     @Autowired
+    private AdsRepository adsRepository;
+    @Autowired
     private PasswordEncoder encoder;
     @Autowired
     private ObjectMapper objectMapper;
     @Autowired
     private CustomUserDetailsService userDetailsService;
+    @Autowired
+    private QueryCounter queryCounter;
 
     private Authentication auth;
     private final User user = new User();
@@ -96,6 +114,32 @@ public class UserControllerTest {
                 .andExpect(jsonPath("$.username").value(user.getUsername()));
     }
 
+    /**
+     * Данный тест testUserEndpointsStayWithinQueryBudget() проверяет бюджет запросов к базе данных для получения
+     * и изменения профиля пользователя.
+     * @throws Exception
+     */
+    @Test
+    public void testUserEndpointsStayWithinQueryBudget() throws Exception {
+        queryCounter.start();
+        mockMvc.perform(get("/users/me")
+                        .with(authentication(auth)))
+                .andExpect(status().isOk());
+        queryCounter.assertBudget(1, Duration.ofMillis(500));
+
+        user.setFirstName("Resu");
+        queryCounter.start();
+        mockMvc.perform(patch("/users/me")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(user))
+                        .with(authentication(auth)))
+                .andExpect(status().isOk());
+        queryCounter.assertBudget(4, Duration.ofMillis(500));
+
+        // Поле user отсоединено от контекста персистентности, поэтому для удаления в clearAll() берется актуальная версия.
+        user.setVersion(userRepository.findById(user.getId()).orElseThrow().getVersion());
+    }
+
     @Test
     public void testUpdateUserReturnsUpdatedUser() throws Exception {
         String newFirstName = "Resu";
@@ -112,6 +156,47 @@ public class UserControllerTest {
                 .andExpect(jsonPath("$.lastName").value(newLastName));
     }
 
+    /**
+     * Данный тест testUpdateUserInvalidatesCachedAdsOfAuthor() проверяет, что после фиксации изменения имени пользователя
+     * закэшированная полная информация о его объявлениях сбрасывается и отдается с новым именем автора.
+     * Транзакция теста фиксируется, чтобы сообщение шины инвалидации было доставлено, поэтому данные удаляются вручную.
+     * @throws Exception
+     */
+    @Test
+    public void testUpdateUserInvalidatesCachedAdsOfAuthor() throws Exception {
+        Ads ads = new Ads();
+        ads.setTitle("Ads");
+        ads.setDescription("description");
+        ads.setPrice(1000);
+        ads.setAuthor(user);
+        adsRepository.save(ads);
+        try {
+            mockMvc.perform(get("/ads/{id}", ads.getId()))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.authorFirstName").value("User"));
+
+            // Тело запроса строится отдельно: поле user управляется контекстом персистентности теста.
+            mockMvc.perform(patch("/users/me")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(Map.of(
+                                    "firstName", "Resu", "lastName", user.getLastName(), "phone", user.getPhone())))
+                            .with(authentication(auth)))
+                    .andExpect(status().isOk());
+            TestTransaction.flagForCommit();
+            TestTransaction.end();
+
+            mockMvc.perform(get("/ads/{id}", ads.getId()))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.authorFirstName").value("Resu"));
+        } finally {
+            if (!TestTransaction.isActive()) {
+                adsRepository.deleteById(ads.getId());
+                userRepository.deleteById(user.getId());
+                TestTransaction.start();
+            }
+        }
+    }
+
     @Test
     public void testUpdateUserAvatar() throws Exception {
         mockMvc.perform(patch("/users/me/image")
@@ -124,6 +209,51 @@ public class UserControllerTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    public void testUpdateUserAvatarFromChunkedUpload() throws Exception {
+        CreateUpload createUpload = new CreateUpload();
+        createUpload.setSize(10L);
+        createUpload.setContentType("image/png");
+
+        String body = mockMvc.perform(post("/uploads")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(createUpload))
+                        .with(authentication(auth)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String uploadId = objectMapper.readValue(body, UploadStatus.class).getId();
+
+        mockMvc.perform(put("/uploads/{id}", uploadId).param("offset", "5")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content("56789".getBytes())
+                        .with(authentication(auth)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(5))
+                .andExpect(jsonPath("$.missing[0].start").value(0))
+                .andExpect(jsonPath("$.missing[0].end").value(5));
+
+        mockMvc.perform(patch("/users/me/image").param("upload", uploadId)
+                        .with(authentication(auth)))
+                .andExpect(status().isConflict());
+
+        mockMvc.perform(put("/uploads/{id}", uploadId).param("offset", "0")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content("01234".getBytes())
+                        .with(authentication(auth)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.missing").isEmpty());
+
+        mockMvc.perform(patch("/users/me/image").param("upload", uploadId)
+                        .with(authentication(auth)))
+                .andExpect(status().isOk());
+
+        assertTrue(avatarRepository.findAll().stream()
+                .anyMatch(saved -> Arrays.equals("0123456789".getBytes(), saved.getData())));
+
+        mockMvc.perform(get("/uploads/{id}", uploadId).with(authentication(auth)))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     public void testGetAvatar() throws Exception {
         avatar.setData("avatar".getBytes());
@@ -0,0 +1,108 @@
+package ru.skypro.avito.event;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DomainEventPipelineTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    /**
+     * Данный тест testFailedHandlerIsRetriedWithoutRepeatingOthers() проверяет, что обработчик, упавший один раз,
+     * получает событие повторно, а остальные обработчики получают его ровно один раз и в порядке публикации.
+     */
+    @Test
+    public void testFailedHandlerIsRetriedWithoutRepeatingOthers() throws Exception {
+        List<DomainEvent> received = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger attempts = new AtomicInteger();
+        DomainEventHandler flaky = event -> {
+            if (event instanceof AdCreated && attempts.getAndIncrement() == 0) {
+                throw new IllegalStateException("index unavailable");
+            }
+        };
+        DomainEventPipeline pipeline = pipeline(List.of(flaky, received::add), 3);
+
+        pipeline.onEvent(new AdCreated(1L, 10L));
+        pipeline.onEvent(new CommentAdded(1L, 100L));
+        pipeline.onEvent(new AdDeleted(1L));
+        pipeline.close();
+
+        assertEquals(List.of(new AdCreated(1L, 10L), new CommentAdded(1L, 100L), new AdDeleted(1L)), received);
+        assertEquals(2, attempts.get());
+        assertTrue(pipeline.getDeadLetters().isEmpty());
+        assertEquals(3, meterRegistry.get("avito.events.published").counters().stream()
+                .mapToDouble(counter -> counter.count()).sum());
+    }
+
+    /**
+     * Данный тест testEventIsDeadLetteredAfterAllAttempts() проверяет, что событие, которое обработчик
+     * не смог обработать за все попытки, попадает в dead letter.
+     */
+    @Test
+    public void testEventIsDeadLetteredAfterAllAttempts() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        DomainEventPipeline pipeline = pipeline(List.of(event -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("broken");
+        }), 3);
+
+        pipeline.onEvent(new UserUpdated("user@gmail.com"));
+        pipeline.close();
+
+        assertEquals(3, attempts.get());
+        List<DeadLetter> deadLetters = pipeline.getDeadLetters();
+        assertEquals(1, deadLetters.size());
+        assertEquals(new UserUpdated("user@gmail.com"), deadLetters.get(0).getEvent());
+        assertEquals(3, deadLetters.get(0).getAttempts());
+        assertEquals(1, meterRegistry.get("avito.events.dead-lettered").tag("reason", "failed").counter().count());
+    }
+
+    /**
+     * Данный тест testEventAfterCommitDoesNotWaitForFullQueue() проверяет, что событие, полученное в обратном вызове
+     * фиксации транзакции, не ждет места в заполненной очереди, а сразу попадает в dead letter.
+     */
+    @Test
+    public void testEventAfterCommitDoesNotWaitForFullQueue() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        DomainEventPipeline pipeline = new DomainEventPipeline(List.of(event -> {
+            started.countDown();
+            release.await();
+        }), meterRegistry, 1, 1, Duration.ofSeconds(30), 1, Duration.ofMillis(1), 100, Duration.ofSeconds(5));
+        pipeline.onEvent(new AdDeleted(1L));
+        started.await();
+        pipeline.onEvent(new AdDeleted(2L));
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        long start = System.nanoTime();
+        try {
+            pipeline.onEvent(new AdDeleted(3L));
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+            release.countDown();
+        }
+
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(new AdDeleted(3L), pipeline.getDeadLetters().get(0).getEvent());
+        assertEquals(1, meterRegistry.get("avito.events.dead-lettered").tag("reason", "rejected").counter().count());
+        pipeline.close();
+    }
+
+    private DomainEventPipeline pipeline(List<DomainEventHandler> handlers, int maxAttempts) {
+        return new DomainEventPipeline(handlers, meterRegistry, 2, 100, Duration.ofSeconds(1),
+                maxAttempts, Duration.ofMillis(1), 100, Duration.ofSeconds(5));
+    }
+
+}
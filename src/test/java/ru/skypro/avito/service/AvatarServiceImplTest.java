@@ -28,7 +28,7 @@ public class AvatarServiceImplTest {
 
         // Создается объект Avatar с идентификатором (id) равным 1 и данными (data) в виде массива байт, содержащих строку "avatar".
         Avatar avatar = new Avatar();
-        avatar.setId(1);
+        avatar.setId(1L);
         avatar.setData("avatar".getBytes());
 
         // С помощью метода doNothing().when(avatarRepository).delete(avatar) настраивается заглушка (mock)
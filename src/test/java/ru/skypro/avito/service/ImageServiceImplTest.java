@@ -28,7 +28,7 @@ public class ImageServiceImplTest {
 
         // Создается объект Image с идентификатором (id) равным 1 и данными (data) в виде массива байт, содержащих строку "image".
         Image image = new Image();
-        image.setId(1);
+        image.setId(1L);
         image.setData("image".getBytes());
 
         // С помощью метода doNothing().when(imageRepository).delete(image) настраивается заглушка (mock) на вызов метода delete()
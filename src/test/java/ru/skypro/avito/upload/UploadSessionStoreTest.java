@@ -0,0 +1,66 @@
+package ru.skypro.avito.upload;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import ru.skypro.avito.exception.UploadConflictException;
+import ru.skypro.avito.exception.UploadNotFoundException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UploadSessionStoreTest {
+
+    private static final byte[] DATA = "0123456789".getBytes();
+
+    @TempDir
+    Path directory;
+
+    private UploadSessionStore store;
+
+    @AfterEach
+    public void tearDown() {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    /**
+     * Данный тест testFailedCompletionKeepsSession() проверяет, что если сохранение изображения не удалось
+     * (commit() не вызван), сессия и ее файл остаются и завершение можно повторить, а после подтверждения сессия удаляется.
+     */
+    @Test
+    public void testFailedCompletionKeepsSession() throws IOException {
+        String id = upload();
+
+        try (UploadedFile file = store.complete(id, "user")) {
+            assertArrayEquals(DATA, file.getBytes());
+            // Пока файл передан сервису, новые части и повторное завершение отклоняются.
+            assertThrows(UploadConflictException.class, () -> store.complete(id, "user"));
+            assertThrows(UploadConflictException.class,
+                    () -> store.write(id, "user", 0, DATA.length, new ByteArrayInputStream(DATA)));
+        }
+        assertTrue(store.status(id, "user").getMissing().isEmpty());
+
+        try (UploadedFile file = store.complete(id, "user")) {
+            assertArrayEquals(DATA, file.getBytes());
+            file.commit();
+        }
+        assertThrows(UploadNotFoundException.class, () -> store.status(id, "user"));
+        assertEquals(-1, store.size(id));
+    }
+
+    private String upload() throws IOException {
+        store = new UploadSessionStore(directory.toString(), DataSize.ofKilobytes(1), Duration.ofHours(1), 5);
+        String id = store.create("user", (long) DATA.length, "image/png").getId();
+        store.write(id, "user", 0, DATA.length, new ByteArrayInputStream(DATA));
+        assertEquals(DATA.length, store.size(id));
+        return id;
+    }
+
+}
@@ -0,0 +1,73 @@
+package ru.skypro.avito.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdaptiveConcurrencyLimitTest {
+
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Данный тест testRejectsAboveLimit() проверяет, что одновременно выдается не больше limit разрешений,
+     * а освобожденное место снова можно занять.
+     */
+    @Test
+    public void testRejectsAboveLimit() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10, 2);
+
+        assertEquals(1, limit.tryAcquire());
+        assertEquals(2, limit.tryAcquire());
+        assertEquals(0, limit.tryAcquire());
+
+        limit.release(MILLI, 2, false);
+        assertEquals(1, limit.getInFlight());
+        assertTrue(limit.tryAcquire() > 0);
+    }
+
+    /**
+     * Данный тест testLimitGrowsWhileLatencyIsStable() проверяет, что при полной загрузке и неизменной задержке
+     * лимит растет до максимального.
+     */
+    @Test
+    public void testLimitGrowsWhileLatencyIsStable() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 50, 2);
+
+        for (int i = 0; i < 200; i++) {
+            int inFlight = limit.tryAcquire();
+            limit.release(10 * MILLI, limit.getLimit(), false);
+            assertTrue(inFlight > 0);
+        }
+        assertEquals(50, limit.getLimit());
+    }
+
+    /**
+     * Данный тест testLimitShrinksWhenLatencyGrowsOrRequestsDrop() проверяет, что лимит снижается,
+     * когда задержка становится намного больше обычной, и при ошибках перегрузки, но не ниже минимального.
+     */
+    @Test
+    public void testLimitShrinksWhenLatencyGrowsOrRequestsDrop() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(40, 2, 50, 2);
+        for (int i = 0; i < 50; i++) {
+            limit.tryAcquire();
+            limit.release(10 * MILLI, limit.getLimit(), false);
+        }
+        int before = limit.getLimit();
+
+        for (int i = 0; i < 20; i++) {
+            limit.tryAcquire();
+            limit.release(100 * MILLI, limit.getLimit(), false);
+        }
+        assertTrue(limit.getLimit() < before);
+
+        for (int i = 0; i < 100; i++) {
+            limit.tryAcquire();
+            limit.release(10 * MILLI, limit.getLimit(), true);
+        }
+        assertEquals(2, limit.getLimit());
+    }
+
+}
@@ -0,0 +1,94 @@
+package ru.skypro.avito.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class DecayingTopKTest {
+
+    private static final long HOUR = Duration.ofHours(1).toMillis();
+
+    /**
+     * Данный тест testTopReturnsKeysOrderedByScore() проверяет, что ключи возвращаются в порядке убывания накопленного счета.
+     */
+    @Test
+    public void testTopReturnsKeysOrderedByScore() {
+        DecayingTopK<Integer> topK = new DecayingTopK<>(10, Duration.ofHours(1), 0);
+
+        topK.add(1, 1, 0);
+        topK.add(2, 5, 0);
+        topK.add(3, 3, 0);
+        topK.add(1, 10, 0);
+
+        assertEquals(List.of(1, 2, 3), topK.top(10));
+        assertEquals(List.of(1, 2), topK.top(2));
+    }
+
+    /**
+     * Данный тест testOldEventsDecay() проверяет, что более свежее событие с меньшим весом
+     * обгоняет старое событие после нескольких периодов полураспада.
+     */
+    @Test
+    public void testOldEventsDecay() {
+        DecayingTopK<Integer> topK = new DecayingTopK<>(10, Duration.ofHours(1), 0);
+
+        // Вес 10 три часа назад эквивалентен весу 1.25 сейчас.
+        topK.add(1, 10, 0);
+        topK.add(2, 2, 3 * HOUR);
+
+        assertEquals(List.of(2, 1), topK.top(10));
+    }
+
+    /**
+     * Данный тест testCapacityIsBounded() проверяет, что структура хранит не более capacity ключей
+     * и вытесняет ключ с минимальным счетом.
+     */
+    @Test
+    public void testCapacityIsBounded() {
+        DecayingTopK<Integer> topK = new DecayingTopK<>(2, Duration.ofHours(1), 0);
+
+        topK.add(1, 3, 0);
+        topK.add(2, 2, 0);
+        topK.add(3, 1, 0);
+        topK.add(4, 5, 0);
+
+        assertEquals(2, topK.size());
+        assertEquals(List.of(4, 1), topK.top(10));
+    }
+
+    /**
+     * Данный тест testRemoveKeepsHeapConsistent() проверяет, что удаление ключа из середины кучи сохраняет порядок остальных.
+     */
+    @Test
+    public void testRemoveKeepsHeapConsistent() {
+        DecayingTopK<Integer> topK = new DecayingTopK<>(10, Duration.ofHours(1), 0);
+        for (int i = 1; i <= 7; i++) {
+            topK.add(i, i, 0);
+        }
+
+        topK.remove(3);
+        topK.remove(7);
+        topK.add(1, 10, 0);
+
+        assertEquals(List.of(1, 6, 5, 4, 2), topK.top(10));
+    }
+
+    /**
+     * Данный тест testRescaleKeepsOrder() проверяет, что сдвиг точки отсчета при очень больших показателях экспоненты не меняет порядок.
+     */
+    @Test
+    public void testRescaleKeepsOrder() {
+        DecayingTopK<Integer> topK = new DecayingTopK<>(10, Duration.ofMillis(1), 0);
+
+        topK.add(1, 1, 0);
+        topK.add(2, 1, 1);
+        topK.add(3, 1, 10_000);
+        topK.add(2, 1, 10_000);
+
+        assertEquals(List.of(2, 3, 1), topK.top(10));
+    }
+
+}
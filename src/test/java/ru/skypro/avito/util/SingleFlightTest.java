@@ -0,0 +1,121 @@
+package ru.skypro.avito.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTest {
+
+    private final SingleFlight<Integer, String> singleFlight = new SingleFlight<>();
+
+    /**
+     * Данный тест testConcurrentCallsShareOneLoad() проверяет, что одновременные вызовы с одним ключом
+     * выполняют загрузку один раз и получают один и тот же результат.
+     */
+    @Test
+    public void testConcurrentCallsShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Future<String> leader = executor.submit(() -> singleFlight.load(1, () -> {
+                loads.incrementAndGet();
+                started.countDown();
+                await(release);
+                return "ads";
+            }, 5, TimeUnit.SECONDS));
+            started.await();
+
+            List<Future<String>> followers = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                followers.add(executor.submit(() -> singleFlight.load(1, () -> {
+                    loads.incrementAndGet();
+                    return "other";
+                }, 5, TimeUnit.SECONDS)));
+            }
+            // Ожидающие вызовы не должны завершиться раньше лидера.
+            Thread.sleep(100);
+            release.countDown();
+
+            assertEquals("ads", leader.get());
+            for (Future<String> follower : followers) {
+                assertEquals("ads", follower.get());
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Данный тест testFollowersReceiveLeaderException() проверяет, что исключение загрузки получает и лидер, и ожидающие вызовы,
+     * а после неудачной загрузки ключ освобождается.
+     */
+    @Test
+    public void testFollowersReceiveLeaderException() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("not found");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = executor.submit(() -> singleFlight.load(1, () -> {
+                started.countDown();
+                await(release);
+                throw failure;
+            }, 5, TimeUnit.SECONDS));
+            started.await();
+            Future<String> follower = executor.submit(() -> singleFlight.load(1, () -> "other", 5, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            release.countDown();
+
+            assertSame(failure, assertThrows(Exception.class, leader::get).getCause());
+            assertSame(failure, assertThrows(Exception.class, follower::get).getCause());
+            assertEquals("next", singleFlight.load(1, () -> "next", 1, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Данный тест testFollowerTimesOutWhileLeaderIsSlow() проверяет, что ожидание чужой загрузки ограничено таймаутом.
+     */
+    @Test
+    public void testFollowerTimesOutWhileLeaderIsSlow() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> singleFlight.load(1, () -> {
+                started.countDown();
+                await(release);
+                return "ads";
+            }, 5, TimeUnit.SECONDS));
+            started.await();
+
+            assertThrows(TimeoutException.class, () -> singleFlight.load(1, () -> "other", 50, TimeUnit.MILLISECONDS));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+package ru.skypro.avito.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StripedExecutorTest {
+
+    /**
+     * Данный тест testTasksWithSameKeyRunInOrder() проверяет, что задачи с одним ключом выполняются в порядке отправки,
+     * а shutdown() дожидается выполнения принятых задач.
+     */
+    @Test
+    public void testTasksWithSameKeyRunInOrder() throws Exception {
+        StripedExecutor executor = new StripedExecutor(4, 1000, "test-");
+        List<List<Integer>> results = new ArrayList<>();
+        for (int key = 0; key < 8; key++) {
+            results.add(Collections.synchronizedList(new ArrayList<>()));
+        }
+        for (int i = 0; i < 500; i++) {
+            for (int key = 0; key < 8; key++) {
+                List<Integer> result = results.get(key);
+                int value = i;
+                assertTrue(executor.submit(key, () -> result.add(value), 1, TimeUnit.SECONDS));
+            }
+        }
+
+        assertTrue(executor.shutdown(5, TimeUnit.SECONDS));
+        for (List<Integer> result : results) {
+            assertEquals(500, result.size());
+            for (int i = 0; i < result.size(); i++) {
+                assertEquals(i, result.get(i));
+            }
+        }
+    }
+
+    /**
+     * Данный тест testSubmitWaitsAndFailsWhenQueueIsFull() проверяет, что при заполненной очереди полосы
+     * отправка ждет не дольше таймаута и возвращает false, а после остановки задачи не принимаются.
+     */
+    @Test
+    public void testSubmitWaitsAndFailsWhenQueueIsFull() throws Exception {
+        StripedExecutor executor = new StripedExecutor(1, 1, "test-");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            assertTrue(executor.submit(1, () -> {
+                started.countDown();
+                await(release);
+            }, 1, TimeUnit.SECONDS));
+            started.await();
+            assertTrue(executor.submit(1, () -> { }, 1, TimeUnit.SECONDS));
+            assertEquals(1, executor.queued());
+
+            long start = System.nanoTime();
+            assertFalse(executor.submit(2, () -> { }, 50, TimeUnit.MILLISECONDS));
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        } finally {
+            release.countDown();
+        }
+        assertTrue(executor.shutdown(5, TimeUnit.SECONDS));
+        assertFalse(executor.submit(1, () -> { }, 1, TimeUnit.SECONDS));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,96 @@
+package ru.skypro.avito.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Данный тест testFullBucketAllowsBurstUpToCapacity() проверяет, что новая корзина пропускает ровно capacity запросов подряд,
+     * а следующий запрос получает время ожидания одного токена.
+     */
+    @Test
+    public void testFullBucketAllowsBurstUpToCapacity() {
+        TokenBucket bucket = new TokenBucket(3, 1, 0);
+
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(SECOND, bucket.tryAcquire(0));
+    }
+
+    /**
+     * Данный тест testBucketRefillsOverTime() проверяет, что токены возвращаются со скоростью пополнения,
+     * но не сверх емкости корзины.
+     */
+    @Test
+    public void testBucketRefillsOverTime() {
+        TokenBucket bucket = new TokenBucket(2, 2, 0);
+        bucket.tryAcquire(0);
+        bucket.tryAcquire(0);
+
+        // За полсекунды при скорости 2 токена в секунду появляется один токен.
+        assertEquals(0, bucket.tryAcquire(SECOND / 2));
+        assertTrue(bucket.tryAcquire(SECOND / 2) > 0);
+
+        // После долгого простоя корзина снова полная, но не больше емкости.
+        long later = 100 * SECOND;
+        assertEquals(0, bucket.tryAcquire(later));
+        assertEquals(0, bucket.tryAcquire(later));
+        assertTrue(bucket.tryAcquire(later) > 0);
+    }
+
+    /**
+     * Данный тест testRefundReturnsTokenButNotAboveCapacity() проверяет, что возвращенный токен снова можно взять,
+     * а возврат в полную корзину не увеличивает ее емкость.
+     */
+    @Test
+    public void testRefundReturnsTokenButNotAboveCapacity() {
+        TokenBucket bucket = new TokenBucket(1, 1, 0);
+        assertEquals(0, bucket.tryAcquire(0));
+        assertTrue(bucket.tryAcquire(0) > 0);
+
+        bucket.refund(0);
+        assertEquals(0, bucket.tryAcquire(0));
+
+        bucket.refund(0);
+        bucket.refund(0);
+        assertEquals(0, bucket.tryAcquire(0));
+        assertTrue(bucket.tryAcquire(0) > 0);
+    }
+
+    /**
+     * Данный тест testConcurrentAcquireNeverExceedsCapacity() проверяет, что при одновременных запросах из нескольких потоков
+     * выдается не больше токенов, чем емкость корзины.
+     */
+    @Test
+    public void testConcurrentAcquireNeverExceedsCapacity() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1000, 0.001, 0);
+        int[] granted = new int[8];
+        Thread[] threads = new Thread[granted.length];
+        for (int t = 0; t < threads.length; t++) {
+            int index = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    if (bucket.tryAcquire(0) == 0) {
+                        granted[index]++;
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        int total = 0;
+        for (int t = 0; t < threads.length; t++) {
+            threads[t].join();
+            total += granted[t];
+        }
+        assertEquals(1000, total);
+    }
+
+}